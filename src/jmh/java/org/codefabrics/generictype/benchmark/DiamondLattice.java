@@ -0,0 +1,92 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype.benchmark;
+
+import java.lang.reflect.TypeVariable;
+
+import org.codefabrics.generictype.GeneratedClassLoader;
+
+/**
+ * A {@link DiamondLattice} is a generated stack of interface diamonds of a
+ * given depth. Level <code>i</code> consists of the interfaces
+ * <code>L<i>i</i></code> and <code>R<i>i</i></code>, which both extend the
+ * interface <code>D<i>i-1</i></code>, and the interface <code>D<i>i</i></code>
+ * which extends both of them. The topmost interface <code>D0</code> declares
+ * the type variable <code>T</code>, and the class <code>Root</code> binds it to
+ * {@link String} by implementing <code>D<i>depth</i>&lt;String&gt;</code>.
+ * <p>
+ * The number of classes grows linearly with the depth, but the number of
+ * paths from <code>Root</code> to <code>D0</code> doubles with each level.
+ * </p>
+ * <p>
+ * The classes are generated by a {@link GeneratedClassLoader}, since javac
+ * needs exponential time to compile such a lattice.
+ * </p>
+ * 
+ * @author Michael Karneim
+ */
+public class DiamondLattice {
+	private final int depth;
+	private final Class<?> root;
+	private final TypeVariable<? extends Class<?>> variable;
+
+	/**
+	 * Generates and loads a lattice of the given depth.
+	 * 
+	 * @param depth
+	 *            the number of stacked diamonds
+	 */
+	@SuppressWarnings("unchecked")
+	public DiamondLattice(int depth) {
+		this.depth = depth;
+		String pkg = "lattice" + depth + ".";
+		String object = "Ljava/lang/Object;";
+		String declaration = "<T:" + object + ">" + object;
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		Class<?> top = loader.defineInterface(pkg + "D0", declaration);
+		for (int i = 1; i <= depth; i++) {
+			String below = pkg + "D" + (i - 1);
+			loader.defineInterface(pkg + "L" + i, declaration + toSignature(below, "TT;"), below);
+			loader.defineInterface(pkg + "R" + i, declaration + toSignature(below, "TT;"), below);
+			loader.defineInterface(pkg + "D" + i, declaration + toSignature(pkg + "L" + i, "TT;")
+					+ toSignature(pkg + "R" + i, "TT;"), pkg + "L" + i, pkg + "R" + i);
+		}
+		root = loader.defineClass(pkg + "Root", "java.lang.Object",
+				object + toSignature(pkg + "D" + depth, "Ljava/lang/String;"), pkg + "D" + depth);
+		variable = (TypeVariable<? extends Class<?>>) top.getTypeParameters()[0];
+	}
+
+	private static String toSignature(String name, String argument) {
+		return "L" + name.replace('.', '/') + "<" + argument + ">;";
+	}
+
+	/**
+	 * Returns the number of stacked diamonds.
+	 * 
+	 * @return the number of stacked diamonds
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the class that binds the variable to {@link String}.
+	 * 
+	 * @return the class that binds the variable to {@link String}
+	 */
+	public Class<?> getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the type variable <code>T</code> of the topmost interface.
+	 * 
+	 * @return the type variable of the topmost interface
+	 */
+	public TypeVariable<? extends Class<?>> getVariable() {
+		return variable;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codefabrics.generictype.GenericType;
+import org.codefabrics.generictype.TypeParameterTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DiamondLatticeBenchmark} measures the average time of an uncached
+ * resolution in a {@link DiamondLattice} of growing depth. Since each class of
+ * the lattice is visited only once, the time should grow linearly with the
+ * depth, although the number of paths through the lattice grows exponentially.
+ * The depth is limited to 20, since loading deeper lattices takes the JVM
+ * itself exponential time.
+ * <p>
+ * Run it with
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.includes=DiamondLatticeBenchmark</code>
+ * .
+ * </p>
+ * 
+ * @author Michael Karneim
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiamondLatticeBenchmark {
+
+	@Param({ "4", "8", "12", "16", "20" })
+	public int depth;
+
+	private DiamondLattice lattice;
+	private GenericType root;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		GenericType.setCacheEnabled(false);
+		lattice = new DiamondLattice(depth);
+		root = new GenericType(lattice.getRoot());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		GenericType.setCacheEnabled(true);
+	}
+
+	@Benchmark
+	public GenericType getTypeParameter() {
+		return root.getTypeParameter(lattice.getVariable());
+	}
+
+	@Benchmark
+	public TypeParameterTable resolveAll() {
+		return root.resolveAll();
+	}
+}
@@ -0,0 +1,351 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype.benchmark;
+
+import java.io.Serializable;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+
+import org.codefabrics.generictype.VariableMapping;
+
+/**
+ * The {@link Hierarchy} enumerates the class hierarchies used by the
+ * benchmarks. Each hierarchy binds the type variable <code>T</code> of its
+ * topmost generic type to {@link String} in its root class, declares a field
+ * named <code>value</code> of type <code>T</code>, a method
+ * <code>getValue()</code> returning <code>T</code>, and an open root class that
+ * leaves <code>T</code> unbound.
+ * 
+ * @author Michael Karneim
+ */
+public enum Hierarchy {
+	/**
+	 * A class that directly extends its generic superclass.
+	 */
+	SHALLOW(ShallowString.class, ShallowBase.class, ShallowBase.class, ShallowBase.class),
+	/**
+	 * A class that is 24 levels below its generic superclass.
+	 */
+	DEEP(DeepString.class, Deep23.class, Deep0.class, Deep0.class),
+	/**
+	 * A class that implements 16 generic interfaces, and the variable is
+	 * declared by the last one.
+	 */
+	WIDE(WideString.class, WideOpen.class, Wide15.class, WideBase.class),
+	/**
+	 * A class that implements a lattice of 8 stacked interface diamonds.
+	 */
+	DIAMOND(DiamondString.class, DiamondOpen.class, Diamond0.class, DiamondBase.class);
+
+	private final Class<?> root;
+	private final Class<?> openRoot;
+	private final TypeVariable<? extends Class<?>> variable;
+	private final TypeVariable<? extends Class<?>> superclassVariable;
+
+	@SuppressWarnings("unchecked")
+	private Hierarchy(Class<?> root, Class<?> openRoot, Class<?> declaringClass, Class<?> baseClass) {
+		this.root = root;
+		this.openRoot = openRoot;
+		this.variable = (TypeVariable<? extends Class<?>>) declaringClass.getTypeParameters()[0];
+		this.superclassVariable = (TypeVariable<? extends Class<?>>) baseClass.getTypeParameters()[0];
+	}
+
+	/**
+	 * Returns the class that binds the variable to {@link String}.
+	 * 
+	 * @return the class that binds the variable to {@link String}
+	 */
+	public Class<?> getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the generic class that leaves the variable unbound.
+	 * 
+	 * @return the generic class that leaves the variable unbound
+	 */
+	public Class<?> getOpenRoot() {
+		return openRoot;
+	}
+
+	/**
+	 * Returns the type variable <code>T</code> of the topmost generic type.
+	 * 
+	 * @return the type variable of the topmost generic type
+	 */
+	public TypeVariable<? extends Class<?>> getVariable() {
+		return variable;
+	}
+
+	/**
+	 * Returns the type variable <code>T</code> of the topmost generic
+	 * superclass, which declares the field <code>value</code>.
+	 * 
+	 * @return the type variable of the topmost generic superclass
+	 */
+	public TypeVariable<? extends Class<?>> getSuperclassVariable() {
+		return superclassVariable;
+	}
+
+	/**
+	 * Returns a {@link VariableMapping} populated with the generic
+	 * superclasses of the root class.
+	 * 
+	 * @return a {@link VariableMapping} for the superclass chain of the root
+	 */
+	public VariableMapping createSuperclassMapping() {
+		VariableMapping result = new VariableMapping();
+		Type superType = root.getGenericSuperclass();
+		while (superType != null) {
+			Class<?> superClass;
+			if (superType instanceof ParameterizedType) {
+				result = new VariableMapping(result, (ParameterizedType) superType);
+				superClass = (Class<?>) ((ParameterizedType) superType).getRawType();
+			} else {
+				superClass = (Class<?>) superType;
+			}
+			superType = superClass.getGenericSuperclass();
+		}
+		return result;
+	}
+
+	public static class ShallowBase<T extends Serializable> {
+		T value;
+
+		public T getValue() {
+			return value;
+		}
+	}
+
+	public static class ShallowString extends ShallowBase<String> {
+	}
+
+	public static class Deep0<T extends Serializable> {
+		T value;
+
+		public T getValue() {
+			return value;
+		}
+	}
+
+	public static class Deep1<T extends Serializable> extends Deep0<T> {
+	}
+
+	public static class Deep2<T extends Serializable> extends Deep1<T> {
+	}
+
+	public static class Deep3<T extends Serializable> extends Deep2<T> {
+	}
+
+	public static class Deep4<T extends Serializable> extends Deep3<T> {
+	}
+
+	public static class Deep5<T extends Serializable> extends Deep4<T> {
+	}
+
+	public static class Deep6<T extends Serializable> extends Deep5<T> {
+	}
+
+	public static class Deep7<T extends Serializable> extends Deep6<T> {
+	}
+
+	public static class Deep8<T extends Serializable> extends Deep7<T> {
+	}
+
+	public static class Deep9<T extends Serializable> extends Deep8<T> {
+	}
+
+	public static class Deep10<T extends Serializable> extends Deep9<T> {
+	}
+
+	public static class Deep11<T extends Serializable> extends Deep10<T> {
+	}
+
+	public static class Deep12<T extends Serializable> extends Deep11<T> {
+	}
+
+	public static class Deep13<T extends Serializable> extends Deep12<T> {
+	}
+
+	public static class Deep14<T extends Serializable> extends Deep13<T> {
+	}
+
+	public static class Deep15<T extends Serializable> extends Deep14<T> {
+	}
+
+	public static class Deep16<T extends Serializable> extends Deep15<T> {
+	}
+
+	public static class Deep17<T extends Serializable> extends Deep16<T> {
+	}
+
+	public static class Deep18<T extends Serializable> extends Deep17<T> {
+	}
+
+	public static class Deep19<T extends Serializable> extends Deep18<T> {
+	}
+
+	public static class Deep20<T extends Serializable> extends Deep19<T> {
+	}
+
+	public static class Deep21<T extends Serializable> extends Deep20<T> {
+	}
+
+	public static class Deep22<T extends Serializable> extends Deep21<T> {
+	}
+
+	public static class Deep23<T extends Serializable> extends Deep22<T> {
+	}
+
+	public static class DeepString extends Deep23<String> {
+	}
+
+	public static class WideBase<T extends Serializable> {
+		T value;
+	}
+
+	public interface Wide0<T> {
+	}
+
+	public interface Wide1<T> {
+	}
+
+	public interface Wide2<T> {
+	}
+
+	public interface Wide3<T> {
+	}
+
+	public interface Wide4<T> {
+	}
+
+	public interface Wide5<T> {
+	}
+
+	public interface Wide6<T> {
+	}
+
+	public interface Wide7<T> {
+	}
+
+	public interface Wide8<T> {
+	}
+
+	public interface Wide9<T> {
+	}
+
+	public interface Wide10<T> {
+	}
+
+	public interface Wide11<T> {
+	}
+
+	public interface Wide12<T> {
+	}
+
+	public interface Wide13<T> {
+	}
+
+	public interface Wide14<T> {
+	}
+
+	public interface Wide15<T extends Serializable> {
+		T getValue();
+	}
+
+	public static abstract class WideOpen<T extends Serializable> extends WideBase<T> implements Wide0<T>, Wide1<T>, Wide2<T>, Wide3<T>, Wide4<T>, Wide5<T>, Wide6<T>, Wide7<T>, Wide8<T>, Wide9<T>, Wide10<T>, Wide11<T>, Wide12<T>, Wide13<T>, Wide14<T>, Wide15<T> {
+	}
+
+	public static abstract class WideString extends WideOpen<String> {
+	}
+
+	public static class DiamondBase<T extends Serializable> {
+		T value;
+	}
+
+	public interface Diamond0<T extends Serializable> {
+		T getValue();
+	}
+
+	public interface Diamond1Left<T extends Serializable> extends Diamond0<T> {
+	}
+
+	public interface Diamond1Right<T extends Serializable> extends Diamond0<T> {
+	}
+
+	public interface Diamond1<T extends Serializable> extends Diamond1Left<T>, Diamond1Right<T> {
+	}
+
+	public interface Diamond2Left<T extends Serializable> extends Diamond1<T> {
+	}
+
+	public interface Diamond2Right<T extends Serializable> extends Diamond1<T> {
+	}
+
+	public interface Diamond2<T extends Serializable> extends Diamond2Left<T>, Diamond2Right<T> {
+	}
+
+	public interface Diamond3Left<T extends Serializable> extends Diamond2<T> {
+	}
+
+	public interface Diamond3Right<T extends Serializable> extends Diamond2<T> {
+	}
+
+	public interface Diamond3<T extends Serializable> extends Diamond3Left<T>, Diamond3Right<T> {
+	}
+
+	public interface Diamond4Left<T extends Serializable> extends Diamond3<T> {
+	}
+
+	public interface Diamond4Right<T extends Serializable> extends Diamond3<T> {
+	}
+
+	public interface Diamond4<T extends Serializable> extends Diamond4Left<T>, Diamond4Right<T> {
+	}
+
+	public interface Diamond5Left<T extends Serializable> extends Diamond4<T> {
+	}
+
+	public interface Diamond5Right<T extends Serializable> extends Diamond4<T> {
+	}
+
+	public interface Diamond5<T extends Serializable> extends Diamond5Left<T>, Diamond5Right<T> {
+	}
+
+	public interface Diamond6Left<T extends Serializable> extends Diamond5<T> {
+	}
+
+	public interface Diamond6Right<T extends Serializable> extends Diamond5<T> {
+	}
+
+	public interface Diamond6<T extends Serializable> extends Diamond6Left<T>, Diamond6Right<T> {
+	}
+
+	public interface Diamond7Left<T extends Serializable> extends Diamond6<T> {
+	}
+
+	public interface Diamond7Right<T extends Serializable> extends Diamond6<T> {
+	}
+
+	public interface Diamond7<T extends Serializable> extends Diamond7Left<T>, Diamond7Right<T> {
+	}
+
+	public interface Diamond8Left<T extends Serializable> extends Diamond7<T> {
+	}
+
+	public interface Diamond8Right<T extends Serializable> extends Diamond7<T> {
+	}
+
+	public interface Diamond8<T extends Serializable> extends Diamond8Left<T>, Diamond8Right<T> {
+	}
+
+	public static abstract class DiamondOpen<T extends Serializable> extends DiamondBase<T> implements Diamond8<T> {
+	}
+
+	public static abstract class DiamondString extends DiamondOpen<String> {
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype.benchmark;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import org.codefabrics.generictype.GenericType;
+import org.codefabrics.generictype.TypeParameterTable;
+import org.codefabrics.generictype.VariableMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link ResolutionBenchmark} measures the throughput of the resolution
+ * hot paths of {@link GenericType} and {@link VariableMapping} for each
+ * {@link Hierarchy}, with and without the resolution cache.
+ * <p>
+ * Run it with <code>mvn -Pjmh test-compile exec:exec</code>. The allocation
+ * rate is reported by the JMH gc profiler, which is enabled by the
+ * <code>jmh</code> profile.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolutionBenchmark {
+
+	@Param({ "SHALLOW", "DEEP", "WIDE", "DIAMOND" })
+	public Hierarchy hierarchy;
+
+	@Param({ "true", "false" })
+	public boolean cache;
+
+	private GenericType root;
+	private GenericType openVariable;
+	private VariableMapping superclassMapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		GenericType.setCacheEnabled(cache);
+		root = new GenericType(hierarchy.getRoot());
+		openVariable = new GenericType(hierarchy.getOpenRoot()).getTypeParameter(hierarchy.getVariable());
+		superclassMapping = hierarchy.createSuperclassMapping();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		GenericType.setCacheEnabled(true);
+	}
+
+	@Benchmark
+	public GenericType getTypeParameter() {
+		return root.getTypeParameter(hierarchy.getVariable());
+	}
+
+	@Benchmark
+	public TypeParameterTable resolveAll() {
+		return root.resolveAll();
+	}
+
+	@Benchmark
+	public GenericType getFieldType() {
+		return root.getFieldType("value");
+	}
+
+	@Benchmark
+	public GenericType getMethodReturnType() {
+		return root.getMethodReturnType("getValue");
+	}
+
+	@Benchmark
+	public Type narrow() {
+		return openVariable.narrow(openVariable.getType(), Object.class);
+	}
+
+	@Benchmark
+	public Type resolve() {
+		return superclassMapping.resolve(hierarchy.getSuperclassVariable());
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+
+/**
+ * The {@link Assignability} decides whether a value of one generic type can be
+ * assigned to a variable of another generic type, following the subtyping
+ * rules of the Java Language Specification (section 4.10):
+ * <ul>
+ * <li>a class or parameterized type is assignable to its supertypes, where
+ * the type arguments of the supertype are resolved along the hierarchy with a
+ * {@link SupertypePath};</li>
+ * <li>type arguments are invariant, unless the target argument is a wildcard
+ * that contains the source argument;</li>
+ * <li>a type variable or wildcard is assignable to everything one of its upper
+ * bounds is assignable to;</li>
+ * <li>a generic array type is assignable like its component type.</li>
+ * </ul>
+ * A raw type is assignable to every parameterization of its supertypes, as
+ * with an unchecked conversion. The owner types of parameterized types are
+ * not compared.
+ *
+ * @author Michael Karneim
+ */
+final class Assignability {
+	private Assignability() {
+	}
+
+	/**
+	 * Returns <code>true</code> if a value of the source type is assignable to
+	 * the target type. Both types must be canonical.
+	 *
+	 * @param targetType
+	 * @param sourceType
+	 * @return <code>true</code> if the source type is assignable to the target
+	 *         type
+	 */
+	static boolean isAssignable(Type targetType, Type sourceType) {
+		if (targetType.equals(sourceType)) {
+			return true;
+		}
+		if (sourceType instanceof TypeVariable<?>) {
+			return isAnyAssignable(targetType, ((TypeVariable<?>) sourceType).getBounds());
+		}
+		if (sourceType instanceof WildcardType) {
+			return isAnyAssignable(targetType, ((WildcardType) sourceType).getUpperBounds());
+		}
+		if (targetType instanceof Class<?>) {
+			return isAssignableToClass((Class<?>) targetType, sourceType);
+		}
+		if (targetType instanceof ParameterizedType) {
+			return isAssignableToParameterizedType((ParameterizedType) targetType, sourceType);
+		}
+		if (targetType instanceof GenericArrayType) {
+			Type sourceComponentType = getComponentType(sourceType);
+			return sourceComponentType != null
+					&& isAssignable(((GenericArrayType) targetType).getGenericComponentType(), sourceComponentType);
+		}
+		if (targetType instanceof WildcardType) {
+			// only assignable to the unknown type if it is known to be a
+			// supertype of its lower bound
+			Type[] lowerBounds = ((WildcardType) targetType).getLowerBounds();
+			return lowerBounds.length > 0 && isAssignable(lowerBounds[0], sourceType);
+		}
+		// a type variable is only assignable from itself and from the type
+		// variables and wildcards bounded by it, which are handled above
+		return false;
+	}
+
+	private static boolean isAnyAssignable(Type targetType, Type[] sourceBounds) {
+		for (Type bound : sourceBounds) {
+			if (isAssignable(targetType, bound)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isAssignableToClass(Class<?> targetType, Type sourceType) {
+		if (sourceType instanceof Class<?>) {
+			return targetType.isAssignableFrom((Class<?>) sourceType);
+		}
+		if (sourceType instanceof ParameterizedType) {
+			return targetType.isAssignableFrom((Class<?>) ((ParameterizedType) sourceType).getRawType());
+		}
+		// a generic array type
+		if (targetType.isArray()) {
+			Type sourceComponentType = getComponentType(sourceType);
+			return !targetType.getComponentType().isPrimitive()
+					&& isAssignable(targetType.getComponentType(), sourceComponentType);
+		}
+		return targetType.isAssignableFrom(Object[].class);
+	}
+
+	private static boolean isAssignableToParameterizedType(ParameterizedType targetType, Type sourceType) {
+		Class<?> targetClass = (Class<?>) targetType.getRawType();
+		Class<?> sourceClass;
+		if (sourceType instanceof Class<?>) {
+			sourceClass = (Class<?>) sourceType;
+		} else if (sourceType instanceof ParameterizedType) {
+			sourceClass = (Class<?>) ((ParameterizedType) sourceType).getRawType();
+		} else {
+			// a generic array type
+			return false;
+		}
+		if (!targetClass.isAssignableFrom(sourceClass)) {
+			return false;
+		}
+		TypeVariable<?>[] variables = targetClass.getTypeParameters();
+		if (variables.length == 0 || sourceType instanceof Class<?> && sourceClass.getTypeParameters().length > 0) {
+			// unchecked conversion of a raw type
+			return true;
+		}
+		SupertypePath path = SupertypePath.find(sourceClass, variables[0]);
+		if (path.isRaw()) {
+			return true;
+		}
+		VariableMapping mapping = new VariableMapping();
+		if (sourceType instanceof ParameterizedType) {
+			mapping = new VariableMapping(mapping, (ParameterizedType) sourceType);
+		}
+		mapping = path.apply(mapping);
+		Type[] targetArguments = targetType.getActualTypeArguments();
+		for (int i = 0; i < variables.length; i++) {
+			if (!contains(targetArguments[i], CanonicalTypes.resolve(variables[i], mapping))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given target type argument contains the
+	 * given source type argument.
+	 */
+	private static boolean contains(Type targetArgument, Type sourceArgument) {
+		if (!(targetArgument instanceof WildcardType)) {
+			return targetArgument.equals(sourceArgument);
+		}
+		WildcardType wildcard = (WildcardType) targetArgument;
+		for (Type upperBound : wildcard.getUpperBounds()) {
+			if (!isAssignable(upperBound, sourceArgument)) {
+				return false;
+			}
+		}
+		Type[] lowerBounds = wildcard.getLowerBounds();
+		if (lowerBounds.length > 0) {
+			Type sourceLowerBound = sourceArgument;
+			if (sourceArgument instanceof WildcardType) {
+				Type[] sourceLowerBounds = ((WildcardType) sourceArgument).getLowerBounds();
+				if (sourceLowerBounds.length == 0) {
+					return false;
+				}
+				sourceLowerBound = sourceLowerBounds[0];
+			}
+			return isAssignable(sourceLowerBound, lowerBounds[0]);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the component type of the given array type, or
+	 * <code>null</code> if it isn't an array type.
+	 */
+	private static Type getComponentType(Type type) {
+		if (type instanceof GenericArrayType) {
+			return ((GenericArrayType) type).getGenericComponentType();
+		}
+		if (type instanceof Class<?>) {
+			return ((Class<?>) type).getComponentType();
+		}
+		return null;
+	}
+}
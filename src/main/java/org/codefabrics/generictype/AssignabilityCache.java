@@ -0,0 +1,127 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Type;
+
+/**
+ * The {@link AssignabilityCache} memoizes the results of
+ * {@link GenericType#isAssignable(Type, Type)} by root class and pair of
+ * canonical types.
+ * <p>
+ * Like the entries of a {@link ResolutionCache}, the entries are attached to
+ * their root class by a {@link ClassValue}. Each root class gets a table with
+ * a fixed number of slots, and a new entry replaces the entry in its slot. So
+ * the cache stays bounded even for {@link Object}, to which all pairs of JDK
+ * types are attached. A lookup probes a single slot and does not allocate.
+ * </p>
+ * <p>
+ * The slots are read and written without synchronization. This is a benign
+ * race, since the entries are immutable and a lost entry is only computed
+ * again.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class AssignabilityCache {
+	// the number of slots per root class, a power of two
+	private static final int SLOTS = 256;
+
+	private volatile boolean enabled = true;
+	private volatile ClassValue<Entry[]> tables = newTables();
+
+	private static final class Entry {
+		final Type target;
+		final Type source;
+		final boolean assignable;
+
+		Entry(Type target, Type source, boolean assignable) {
+			this.target = target;
+			this.source = source;
+			this.assignable = assignable;
+		}
+	}
+
+	private static ClassValue<Entry[]> newTables() {
+		return new ClassValue<Entry[]>() {
+			@Override
+			protected Entry[] computeValue(Class<?> type) {
+				return new Entry[SLOTS];
+			}
+		};
+	}
+
+	/**
+	 * Returns <code>true</code> if this cache is enabled.
+	 *
+	 * @return <code>true</code> if this cache is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables this cache. Disabling the cache also removes all
+	 * cached entries.
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		tables = newTables();
+	}
+
+	/**
+	 * Returns the result cached for the given pair of canonical types in the
+	 * given root class, or <code>null</code> if no result is cached.
+	 *
+	 * @param rootClass
+	 * @param target
+	 * @param source
+	 * @return the cached result or <code>null</code>
+	 */
+	public Boolean get(Class<?> rootClass, Type target, Type source) {
+		if (!enabled) {
+			return null;
+		}
+		Entry entry = tables.get(rootClass)[slot(target, source)];
+		if (entry != null && entry.target.equals(target) && entry.source.equals(source)) {
+			return entry.assignable;
+		}
+		return null;
+	}
+
+	/**
+	 * Caches the result for the given pair of canonical types in the given
+	 * root class, replacing the entry of another pair in the same slot.
+	 *
+	 * @param rootClass
+	 * @param target
+	 * @param source
+	 * @param assignable
+	 */
+	public void put(Class<?> rootClass, Type target, Type source, boolean assignable) {
+		if (enabled) {
+			tables.get(rootClass)[slot(target, source)] = new Entry(target, source, assignable);
+		}
+	}
+
+	private static int slot(Type target, Type source) {
+		int hash = 31 * target.hashCode() + source.hashCode();
+		// spread the high bits, since the table only uses the low ones
+		hash ^= hash >>> 16;
+		return hash & SLOTS - 1;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link BeanDescriptor} is an immutable table of the resolved types of
+ * all fields and all getters of a type and its super types. A getter is an
+ * instance method without parameters that doesn't return <code>void</code>,
+ * is not declared by {@link Object} and whose name starts with
+ * <code>get</code> or <code>is</code>.
+ * <p>
+ * It is created by {@link GenericType#describe()} with a single walk over the
+ * type hierarchy. The variable mapping of each super type is created only once
+ * and is shared by all members declared by that super type. Each lookup is a
+ * single hash probe.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class BeanDescriptor {
+	private final Type rootType;
+	private final Map<String, GenericType> fieldTypes;
+	private final Map<String, GenericType> methodReturnTypes;
+
+	private BeanDescriptor(Type rootType, Map<String, GenericType> fieldTypes,
+			Map<String, GenericType> methodReturnTypes) {
+		this.rootType = rootType;
+		this.fieldTypes = Collections.unmodifiableMap(fieldTypes);
+		this.methodReturnTypes = Collections.unmodifiableMap(methodReturnTypes);
+	}
+
+	/**
+	 * Creates the {@link BeanDescriptor} of the given type.
+	 *
+	 * @param rootType
+	 *            the type to describe
+	 * @param rawType
+	 *            the raw type of the root type
+	 * @param mapping
+	 *            the mapping that is valid inside the raw type
+	 * @return the {@link BeanDescriptor} of the given type
+	 */
+	static BeanDescriptor create(Type rootType, Class<?> rawType, VariableMapping mapping) {
+		// fields
+		FieldIndex fieldIndex = FieldIndex.of(rawType);
+		VariableMapping[] fieldMappings = fieldIndex.getMappings(mapping);
+		Map<String, GenericType> fieldTypes = new LinkedHashMap<String, GenericType>();
+		for (String fieldname : fieldIndex.getFieldnames()) {
+			FieldIndex.Entry entry = fieldIndex.get(fieldname);
+			fieldTypes.put(fieldname, GenericType.getGenericType(fieldMappings[entry.depth], entry.genericType));
+		}
+		// getters
+		MethodIndex methodIndex = MethodIndex.of(rawType);
+		// each super type is reached by exactly one path, so the mapping of a
+		// path is identified by the last super type on it
+		Map<ParameterizedType, VariableMapping> methodMappings = //
+		new IdentityHashMap<ParameterizedType, VariableMapping>();
+		Map<String, GenericType> methodReturnTypes = new LinkedHashMap<String, GenericType>();
+		for (String methodName : methodIndex.getMethodNames()) {
+			MethodIndex.Entry entry = methodIndex.get(methodName, MethodIndex.NO_PARAMETERS);
+			if (entry == null || !isGetter(entry.method)) {
+				continue;
+			}
+			VariableMapping methodMapping = mapping;
+			for (ParameterizedType superType : entry.path) {
+				VariableMapping next = methodMappings.get(superType);
+				if (next == null) {
+					next = new VariableMapping(methodMapping, superType);
+					methodMappings.put(superType, next);
+				}
+				methodMapping = next;
+			}
+			methodReturnTypes.put(methodName, GenericType.getGenericType(methodMapping, entry.genericReturnType));
+		}
+		return new BeanDescriptor(rootType, fieldTypes, methodReturnTypes);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given method without parameters is a
+	 * getter.
+	 */
+	private static boolean isGetter(Method method) {
+		if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class
+				|| method.getDeclaringClass() == Object.class) {
+			return false;
+		}
+		String name = method.getName();
+		return name.length() > 3 && name.startsWith("get") || name.length() > 2 && name.startsWith("is");
+	}
+
+	/**
+	 * Returns the type this descriptor has been created for.
+	 *
+	 * @return the type this descriptor has been created for
+	 */
+	public Type getRootType() {
+		return rootType;
+	}
+
+	/**
+	 * Returns the names of all fields of the root type and its superclasses.
+	 *
+	 * @return the names of all fields
+	 */
+	public Set<String> getFieldnames() {
+		return fieldTypes.keySet();
+	}
+
+	/**
+	 * Returns the type of the field with the given name as a
+	 * {@link GenericType}, or <code>null</code> if there is no such field.
+	 * Returns the same type as {@link GenericType#findFieldType(String)}.
+	 *
+	 * @param fieldname
+	 * @return the type of the field with the given name, or <code>null</code>
+	 */
+	public GenericType getFieldType(String fieldname) {
+		return fieldTypes.get(fieldname);
+	}
+
+	/**
+	 * Returns the names of all getters of the root type and its super types.
+	 *
+	 * @return the names of all getters
+	 */
+	public Set<String> getMethodNames() {
+		return methodReturnTypes.keySet();
+	}
+
+	/**
+	 * Returns the return type of the getter with the given name as a
+	 * {@link GenericType}, or <code>null</code> if there is no such getter.
+	 * Returns the same type as
+	 * {@link GenericType#findMethodReturnType(String)}.
+	 *
+	 * @param methodName
+	 * @return the return type of the getter, or <code>null</code>
+	 */
+	public GenericType getMethodReturnType(String methodName) {
+		return methodReturnTypes.get(methodName);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append(rootType).append(" {");
+		String separator = "";
+		for (Map.Entry<String, GenericType> entry : fieldTypes.entrySet()) {
+			result.append(separator).append(entry.getKey()).append(": ").append(entry.getValue().getType());
+			separator = ", ";
+		}
+		for (Map.Entry<String, GenericType> entry : methodReturnTypes.entrySet()) {
+			result.append(separator).append(entry.getKey()).append("(): ").append(entry.getValue().getType());
+			separator = ", ";
+		}
+		return result.append('}').toString();
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@link BulkResolution} resolves a set of type variables for many classes
+ * in parallel.
+ * <p>
+ * The classes are split into chunks that are processed by a
+ * {@link java.util.concurrent.ForkJoinPool} or an {@link ExecutorService}. The
+ * walks through common supertypes are shared between all classes by means of
+ * the memoized {@link SupertypePath}s.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+class BulkResolution {
+	/** The number of classes below which a chunk is not split any further. */
+	static final int CHUNK_SIZE = 64;
+
+	private final List<Class<?>> classes;
+	private final List<TypeVariable<? extends Class<?>>> variables;
+	private final Map<Class<?>, Map<TypeVariable<?>, GenericType>> results;
+
+	BulkResolution(List<Class<?>> classes, List<TypeVariable<? extends Class<?>>> variables) {
+		this.classes = classes;
+		this.variables = variables;
+		this.results = new ConcurrentHashMap<Class<?>, Map<TypeVariable<?>, GenericType>>(classes.size() * 2);
+	}
+
+	/**
+	 * Returns the results as an unmodifiable map from each class to the values
+	 * of the variables that parameterize it.
+	 *
+	 * @return the results
+	 */
+	Map<Class<?>, Map<TypeVariable<?>, GenericType>> getResults() {
+		return Collections.unmodifiableMap(new HashMap<Class<?>, Map<TypeVariable<?>, GenericType>>(results));
+	}
+
+	/**
+	 * Returns a fork/join task that resolves all classes.
+	 *
+	 * @return a fork/join task that resolves all classes
+	 */
+	RecursiveAction newTask() {
+		return new Chunk(0, classes.size());
+	}
+
+	/**
+	 * Resolves all classes with the given executor and waits until all of them
+	 * have been resolved.
+	 *
+	 * @param executor
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting
+	 */
+	void invokeAll(ExecutorService executor) throws InterruptedException {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int from = 0; from < classes.size(); from += CHUNK_SIZE) {
+			final int start = from;
+			final int end = Math.min(from + CHUNK_SIZE, classes.size());
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					resolve(start, end);
+					return null;
+				}
+			});
+		}
+		for (Future<Void> future : executor.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	private void resolve(int start, int end) {
+		for (int i = start; i < end; i++) {
+			Class<?> cls = classes.get(i);
+			Map<TypeVariable<?>, GenericType> values = new LinkedHashMap<TypeVariable<?>, GenericType>();
+			for (TypeVariable<? extends Class<?>> var : variables) {
+				GenericType value = GenericType.resolveTypeParameterOfClass(cls, var);
+				if (value != null) {
+					values.put(var, value);
+				}
+			}
+			results.put(cls, Collections.unmodifiableMap(values));
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class Chunk extends RecursiveAction {
+		private final int start;
+		private final int end;
+
+		Chunk(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= CHUNK_SIZE) {
+				resolve(start, end);
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new Chunk(start, middle), new Chunk(middle, end));
+			}
+		}
+	}
+}
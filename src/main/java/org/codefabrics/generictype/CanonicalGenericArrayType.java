@@ -0,0 +1,55 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Type;
+
+/**
+ * The {@link CanonicalGenericArrayType} is an immutable
+ * {@link GenericArrayType} with a precomputed hash code.
+ * <p>
+ * Instances are created and interned by {@link CanonicalTypes}. Its
+ * {@link #equals(Object)} and {@link #hashCode()} are compatible with the
+ * {@link GenericArrayType}s of the JDK.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class CanonicalGenericArrayType implements GenericArrayType {
+	private final Type genericComponentType;
+	private final int hashCode;
+
+	CanonicalGenericArrayType(Type genericComponentType) {
+		this.genericComponentType = genericComponentType;
+		this.hashCode = genericComponentType.hashCode();
+	}
+
+	public Type getGenericComponentType() {
+		return genericComponentType;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof GenericArrayType) {
+			return genericComponentType.equals(((GenericArrayType) obj).getGenericComponentType());
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return CanonicalTypes.getTypeName(genericComponentType) + "[]";
+	}
+}
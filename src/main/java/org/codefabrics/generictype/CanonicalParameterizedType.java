@@ -0,0 +1,96 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * The {@link CanonicalParameterizedType} is an immutable
+ * {@link ParameterizedType} with a precomputed hash code.
+ * <p>
+ * Instances are created and interned by {@link CanonicalTypes}. Its
+ * {@link #equals(Object)} and {@link #hashCode()} are compatible with the
+ * {@link ParameterizedType}s of the JDK.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class CanonicalParameterizedType implements ParameterizedType {
+	private final Type ownerType;
+	private final Class<?> rawType;
+	private final Type[] actualTypeArguments;
+	private final int hashCode;
+
+	CanonicalParameterizedType(Type ownerType, Class<?> rawType, Type[] actualTypeArguments) {
+		this.ownerType = ownerType;
+		this.rawType = rawType;
+		this.actualTypeArguments = actualTypeArguments;
+		this.hashCode = Arrays.hashCode(actualTypeArguments) ^ (ownerType == null ? 0 : ownerType.hashCode())
+				^ rawType.hashCode();
+	}
+
+	public Type[] getActualTypeArguments() {
+		return actualTypeArguments.clone();
+	}
+
+	public Type getRawType() {
+		return rawType;
+	}
+
+	public Type getOwnerType() {
+		return ownerType;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof CanonicalParameterizedType) {
+			CanonicalParameterizedType other = (CanonicalParameterizedType) obj;
+			return hashCode == other.hashCode && rawType == other.rawType && equal(ownerType, other.ownerType)
+					&& Arrays.equals(actualTypeArguments, other.actualTypeArguments);
+		}
+		if (obj instanceof ParameterizedType) {
+			ParameterizedType other = (ParameterizedType) obj;
+			return rawType.equals(other.getRawType()) && equal(ownerType, other.getOwnerType())
+					&& Arrays.equals(actualTypeArguments, other.getActualTypeArguments());
+		}
+		return false;
+	}
+
+	private static boolean equal(Type a, Type b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		if (ownerType != null) {
+			result.append(CanonicalTypes.getTypeName(ownerType)).append('$').append(rawType.getSimpleName());
+		} else {
+			result.append(rawType.getName());
+		}
+		if (actualTypeArguments.length > 0) {
+			result.append('<');
+			for (int i = 0; i < actualTypeArguments.length; i++) {
+				if (i > 0) {
+					result.append(", ");
+				}
+				result.append(CanonicalTypes.getTypeName(actualTypeArguments[i]));
+			}
+			result.append('>');
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link CanonicalTypes} create canonical instances of
+ * {@link ParameterizedType}, {@link WildcardType} and {@link GenericArrayType}.
+ * <p>
+ * Canonical types are interned in a weak table, so two canonical types are
+ * equal if and only if they are identical. Their hash codes are computed once.
+ * This makes them cheap keys for hash maps. Canonical types are still equal to
+ * the equivalent types created by the JDK, and have the same hash codes.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class CanonicalTypes {
+	private static final ConcurrentMap<WeakKey, WeakKey> TABLE = new ConcurrentHashMap<WeakKey, WeakKey>();
+	private static final ReferenceQueue<Type> QUEUE = new ReferenceQueue<Type>();
+
+	private CanonicalTypes() {
+	}
+
+	/**
+	 * Returns the canonical instance of the given type. Classes and type
+	 * variables are returned as they are.
+	 *
+	 * @param type
+	 * @return the canonical instance of the given type
+	 * @throws IllegalArgumentException
+	 *             if the type is of an unsupported kind
+	 */
+	public static Type canonicalize(Type type) throws IllegalArgumentException {
+		return resolve(type, null, null);
+	}
+
+	/**
+	 * Returns the canonical {@link ParameterizedType} with the given raw type
+	 * and type arguments.
+	 *
+	 * @param ownerType
+	 *            the owner type, or <code>null</code> to use the declaring
+	 *            class of the raw type
+	 * @param rawType
+	 * @param actualTypeArguments
+	 * @return the canonical {@link ParameterizedType}
+	 * @throws IllegalArgumentException
+	 *             if the number of type arguments does not match the number of
+	 *             type parameters of the raw type
+	 */
+	public static ParameterizedType newParameterizedType(Type ownerType, Class<?> rawType, Type... actualTypeArguments)
+			throws IllegalArgumentException {
+		if (rawType.getTypeParameters().length != actualTypeArguments.length) {
+			throw new IllegalArgumentException(String.format("%s expects %s type arguments, but got %s!", rawType,
+					rawType.getTypeParameters().length, actualTypeArguments.length));
+		}
+		Type[] args = new Type[actualTypeArguments.length];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = canonicalize(actualTypeArguments[i]);
+		}
+		Type owner = ownerType == null ? rawType.getDeclaringClass() : canonicalize(ownerType);
+		return intern(new CanonicalParameterizedType(owner, rawType, args));
+	}
+
+	/**
+	 * Returns the canonical {@link WildcardType} with the given bounds.
+	 *
+	 * @param upperBounds
+	 *            the upper bounds, or an empty array for {@link Object}
+	 * @param lowerBounds
+	 * @return the canonical {@link WildcardType}
+	 */
+	public static WildcardType newWildcardType(Type[] upperBounds, Type[] lowerBounds) {
+		if (upperBounds.length == 0) {
+			upperBounds = new Type[] { Object.class };
+		}
+		return intern(new CanonicalWildcardType(canonicalize(upperBounds), canonicalize(lowerBounds)));
+	}
+
+	/**
+	 * Returns the array type with the given component type. This is a
+	 * {@link Class} if the component type is a class, or a canonical
+	 * {@link GenericArrayType} otherwise.
+	 *
+	 * @param componentType
+	 * @return the array type with the given component type
+	 */
+	public static Type newArrayType(Type componentType) {
+		Type component = canonicalize(componentType);
+		if (component instanceof Class<?>) {
+			return Array.newInstance((Class<?>) component, 0).getClass();
+		}
+		return intern(new CanonicalGenericArrayType(component));
+	}
+
+	/**
+	 * Returns the canonical instance of the given type with all variables
+	 * replaced by their values in the given mapping. Variables that are not
+	 * mapped are kept.
+	 *
+	 * @param type
+	 * @param mapping
+	 *            the mapping, or <code>null</code>
+	 * @return the canonical instance of the resolved type
+	 */
+	static Type resolve(Type type, VariableMapping mapping) {
+		return resolve(type, mapping, null);
+	}
+
+	private static Type resolve(Type type, VariableMapping mapping, List<TypeVariable<?>> resolving) {
+		if (type instanceof Class<?>) {
+			return type;
+		} else if (type instanceof TypeVariable<?>) {
+			TypeVariable<?> var = (TypeVariable<?>) type;
+			Type value = mapping == null ? null : mapping.resolve(var);
+			if (value == null || value == var) {
+				return var;
+			}
+			if (resolving == null) {
+				resolving = new ArrayList<TypeVariable<?>>(2);
+			} else if (resolving.contains(var)) {
+				// the value refers to the variable itself
+				return var;
+			}
+			resolving.add(var);
+			Type result = resolve(value, mapping, resolving);
+			resolving.remove(resolving.size() - 1);
+			return result;
+		} else if (type instanceof ParameterizedType) {
+			if (mapping == null && type instanceof CanonicalParameterizedType) {
+				return type;
+			}
+			ParameterizedType pType = (ParameterizedType) type;
+			Type[] args = pType.getActualTypeArguments();
+			for (int i = 0; i < args.length; i++) {
+				args[i] = resolve(args[i], mapping, resolving);
+			}
+			Type owner = pType.getOwnerType() == null ? null : resolve(pType.getOwnerType(), mapping, resolving);
+			return intern(new CanonicalParameterizedType(owner, (Class<?>) pType.getRawType(), args));
+		} else if (type instanceof WildcardType) {
+			if (mapping == null && type instanceof CanonicalWildcardType) {
+				return type;
+			}
+			WildcardType wType = (WildcardType) type;
+			Type[] upperBounds = wType.getUpperBounds();
+			if (upperBounds.length == 0) {
+				upperBounds = new Type[] { Object.class };
+			}
+			return intern(new CanonicalWildcardType(resolve(upperBounds, mapping, resolving), resolve(
+					wType.getLowerBounds(), mapping, resolving)));
+		} else if (type instanceof GenericArrayType) {
+			if (mapping == null && type instanceof CanonicalGenericArrayType) {
+				return type;
+			}
+			Type component = resolve(((GenericArrayType) type).getGenericComponentType(), mapping, resolving);
+			if (component instanceof Class<?>) {
+				return Array.newInstance((Class<?>) component, 0).getClass();
+			}
+			return intern(new CanonicalGenericArrayType(component));
+		} else {
+			throw new IllegalArgumentException("Unsupported type: " + type);
+		}
+	}
+
+	private static Type[] canonicalize(Type[] types) {
+		return resolve(types, null, null);
+	}
+
+	private static Type[] resolve(Type[] types, VariableMapping mapping, List<TypeVariable<?>> resolving) {
+		Type[] result = new Type[types.length];
+		for (int i = 0; i < types.length; i++) {
+			result[i] = resolve(types[i], mapping, resolving);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the interned instance that is equal to the given type.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Type> T intern(T type) {
+		expungeStaleEntries();
+		WeakKey key = new WeakKey(type);
+		while (true) {
+			WeakKey existing = TABLE.putIfAbsent(key, key);
+			if (existing == null) {
+				return type;
+			}
+			Type result = existing.get();
+			if (result != null) {
+				return (T) result;
+			}
+			// the existing entry has just been cleared
+			TABLE.remove(existing, existing);
+		}
+	}
+
+	private static void expungeStaleEntries() {
+		for (Reference<? extends Type> ref = QUEUE.poll(); ref != null; ref = QUEUE.poll()) {
+			TABLE.remove(ref, ref);
+		}
+	}
+
+	/**
+	 * Returns the name of the given type in the format of the JDK.
+	 */
+	static String getTypeName(Type type) {
+		if (type instanceof Class<?>) {
+			Class<?> cls = (Class<?>) type;
+			return cls.isArray() ? getTypeName(cls.getComponentType()) + "[]" : cls.getName();
+		}
+		return type.toString();
+	}
+
+	/**
+	 * A weak reference to an interned type that is equal to all references to
+	 * equal types.
+	 */
+	private static class WeakKey extends WeakReference<Type> {
+		private final int hashCode;
+
+		WeakKey(Type type) {
+			super(type, QUEUE);
+			this.hashCode = type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof WeakKey) {
+				WeakKey other = (WeakKey) obj;
+				Type type = get();
+				return hashCode == other.hashCode && type != null && type.equals(other.get());
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
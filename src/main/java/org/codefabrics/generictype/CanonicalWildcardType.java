@@ -0,0 +1,86 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+
+/**
+ * The {@link CanonicalWildcardType} is an immutable {@link WildcardType} with
+ * a precomputed hash code.
+ * <p>
+ * Instances are created and interned by {@link CanonicalTypes}. Its
+ * {@link #equals(Object)} and {@link #hashCode()} are compatible with the
+ * {@link WildcardType}s of the JDK.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class CanonicalWildcardType implements WildcardType {
+	private final Type[] upperBounds;
+	private final Type[] lowerBounds;
+	private final int hashCode;
+
+	CanonicalWildcardType(Type[] upperBounds, Type[] lowerBounds) {
+		this.upperBounds = upperBounds;
+		this.lowerBounds = lowerBounds;
+		this.hashCode = Arrays.hashCode(lowerBounds) ^ Arrays.hashCode(upperBounds);
+	}
+
+	public Type[] getUpperBounds() {
+		return upperBounds.clone();
+	}
+
+	public Type[] getLowerBounds() {
+		return lowerBounds.clone();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof CanonicalWildcardType) {
+			CanonicalWildcardType other = (CanonicalWildcardType) obj;
+			return hashCode == other.hashCode && Arrays.equals(upperBounds, other.upperBounds)
+					&& Arrays.equals(lowerBounds, other.lowerBounds);
+		}
+		if (obj instanceof WildcardType) {
+			WildcardType other = (WildcardType) obj;
+			return Arrays.equals(upperBounds, other.getUpperBounds())
+					&& Arrays.equals(lowerBounds, other.getLowerBounds());
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		Type[] bounds;
+		StringBuilder result = new StringBuilder("?");
+		if (lowerBounds.length > 0) {
+			bounds = lowerBounds;
+			result.append(" super ");
+		} else if (upperBounds.length > 0 && !upperBounds[0].equals(Object.class)) {
+			bounds = upperBounds;
+			result.append(" extends ");
+		} else {
+			return result.toString();
+		}
+		for (int i = 0; i < bounds.length; i++) {
+			if (i > 0) {
+				result.append(" & ");
+			}
+			result.append(CanonicalTypes.getTypeName(bounds[i]));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link ClassFileReader} reads the {@link ClassSignature} of a class
+ * directly from its class file, without loading the class.
+ * <p>
+ * Only the constant pool, the names of the superclass and the superinterfaces
+ * and the <code>Signature</code> attribute of the class are decoded. The
+ * <code>Signature</code> attributes of fields and methods are only decoded on
+ * request. All other attributes are skipped.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class ClassFileReader {
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private final ByteBuffer buffer;
+	// the member signatures by member name (and descriptor for methods), or
+	// null if members are skipped
+	private final Map<String, String> fieldSignatures;
+	private final Map<String, String> methodSignatures;
+	// the offset of each constant pool entry
+	private int[] offsets;
+
+	private ClassFileReader(ByteBuffer buffer, boolean withMembers) {
+		this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+		this.fieldSignatures = withMembers ? new HashMap<String, String>() : null;
+		this.methodSignatures = withMembers ? new HashMap<String, String>() : null;
+	}
+
+	/**
+	 * Reads the {@link ClassSignature} from the class file in the given
+	 * buffer, starting at its position.
+	 *
+	 * @param buffer
+	 * @return the signature of the class
+	 * @throws IOException
+	 *             if the buffer does not contain a valid class file
+	 */
+	static ClassSignature read(ByteBuffer buffer) throws IOException {
+		return read(buffer, false);
+	}
+
+	/**
+	 * Reads the {@link ClassSignature} from the class file in the given
+	 * buffer, starting at its position, together with the signatures of its
+	 * fields and methods.
+	 *
+	 * @param buffer
+	 * @return the signature of the class
+	 * @throws IOException
+	 *             if the buffer does not contain a valid class file
+	 */
+	static ClassSignature readWithMembers(ByteBuffer buffer) throws IOException {
+		return read(buffer, true);
+	}
+
+	private static ClassSignature read(ByteBuffer buffer, boolean withMembers) throws IOException {
+		try {
+			return new ClassFileReader(buffer, withMembers).read();
+		} catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated class file!", ex);
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IOException("Invalid class file!", ex);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException(ex.getMessage(), ex);
+		}
+	}
+
+	private ClassSignature read() throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a class file!");
+		}
+		// minor and major version
+		buffer.getInt();
+		readConstantPool();
+		// access flags
+		buffer.getShort();
+		String name = SignatureParser.toBinaryName(getClassName(readUnsignedShort()));
+		int superIndex = readUnsignedShort();
+		String superName = superIndex == 0 ? null : SignatureParser.toBinaryName(getClassName(superIndex));
+		int interfaceCount = readUnsignedShort();
+		List<String> interfaceNames = new ArrayList<String>(interfaceCount);
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaceNames.add(SignatureParser.toBinaryName(getClassName(readUnsignedShort())));
+		}
+		readMembers(fieldSignatures, false);
+		readMembers(methodSignatures, true);
+		String signature = readSignatureAttribute();
+		if (signature != null) {
+			ClassSignature result = SignatureParser.parseClassSignature(name, signature);
+			return fieldSignatures == null ? result : result.withMembers(fieldSignatures, methodSignatures);
+		}
+		// not generic
+		List<TypeSignature> interfaces = new ArrayList<TypeSignature>(interfaceCount);
+		for (String interfaceName : interfaceNames) {
+			interfaces.add(TypeSignature.classType(interfaceName, null, Collections.<TypeSignature> emptyList()));
+		}
+		TypeSignature superclass = superName == null ? null : TypeSignature.classType(superName, null,
+				Collections.<TypeSignature> emptyList());
+		ClassSignature result = new ClassSignature(name, Collections.<String> emptyList(),
+				Collections.<List<TypeSignature>> emptyList(), superclass, interfaces);
+		return fieldSignatures == null ? result : result.withMembers(fieldSignatures, methodSignatures);
+	}
+
+	private void readConstantPool() throws IOException {
+		int count = readUnsignedShort();
+		offsets = new int[count];
+		for (int i = 1; i < count; i++) {
+			offsets[i] = buffer.position();
+			int tag = buffer.get();
+			switch (tag) {
+			case CONSTANT_UTF8:
+				skip(readUnsignedShort());
+				break;
+			case CONSTANT_CLASS:
+			case CONSTANT_STRING:
+			case CONSTANT_METHOD_TYPE:
+			case CONSTANT_MODULE:
+			case CONSTANT_PACKAGE:
+				skip(2);
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				skip(3);
+				break;
+			case CONSTANT_INTEGER:
+			case CONSTANT_FLOAT:
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+			case CONSTANT_DYNAMIC:
+			case CONSTANT_INVOKE_DYNAMIC:
+				skip(4);
+				break;
+			case CONSTANT_LONG:
+			case CONSTANT_DOUBLE:
+				// takes two entries
+				skip(8);
+				i++;
+				break;
+			default:
+				throw new IOException(String.format("Unknown constant pool tag %s!", tag));
+			}
+		}
+	}
+
+	/**
+	 * Reads the fields or methods and puts the signature of each generic one
+	 * into the given map, if it is not <code>null</code>.
+	 */
+	private void readMembers(Map<String, String> signatures, boolean methods) throws IOException {
+		int count = readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			// access flags
+			skip(2);
+			int nameIndex = readUnsignedShort();
+			int descriptorIndex = readUnsignedShort();
+			if (signatures == null) {
+				skipAttributes();
+				continue;
+			}
+			String signature = readSignatureAttribute();
+			if (signature != null) {
+				String key = getUtf8(nameIndex);
+				if (methods) {
+					key += getUtf8(descriptorIndex);
+				}
+				signatures.put(key, signature);
+			}
+		}
+	}
+
+	/**
+	 * Reads the attributes at the current position and returns the value of
+	 * the <code>Signature</code> attribute among them, or <code>null</code>.
+	 */
+	private String readSignatureAttribute() throws IOException {
+		String result = null;
+		int attributeCount = readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			String attributeName = getUtf8(readUnsignedShort());
+			int length = buffer.getInt();
+			if ("Signature".equals(attributeName)) {
+				result = getUtf8(buffer.getShort(buffer.position()) & 0xFFFF);
+			}
+			skip(length);
+		}
+		return result;
+	}
+
+	private void skipAttributes() {
+		int attributeCount = readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			skip(2);
+			skip(buffer.getInt());
+		}
+	}
+
+	private String getClassName(int index) throws IOException {
+		int offset = offsets[index];
+		if (buffer.get(offset) != CONSTANT_CLASS) {
+			throw new IOException(String.format("Constant %s is not a class!", index));
+		}
+		return getUtf8(buffer.getShort(offset + 1) & 0xFFFF);
+	}
+
+	/**
+	 * Decodes the modified UTF-8 string at the given constant pool index.
+	 */
+	private String getUtf8(int index) throws IOException {
+		int offset = offsets[index];
+		if (buffer.get(offset) != CONSTANT_UTF8) {
+			throw new IOException(String.format("Constant %s is not a string!", index));
+		}
+		int length = buffer.getShort(offset + 1) & 0xFFFF;
+		char[] chars = new char[length];
+		int count = 0;
+		int pos = offset + 3;
+		int end = pos + length;
+		while (pos < end) {
+			int b = buffer.get(pos++) & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char) b;
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(pos++) & 0x3F));
+			} else {
+				int b2 = buffer.get(pos++) & 0x3F;
+				int b3 = buffer.get(pos++) & 0x3F;
+				chars[count++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	private int readUnsignedShort() {
+		return buffer.getShort() & 0xFFFF;
+	}
+
+	private void skip(int length) {
+		buffer.position(buffer.position() + length);
+	}
+}
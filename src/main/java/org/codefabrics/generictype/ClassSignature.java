@@ -0,0 +1,79 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link ClassSignature} is the immutable generic signature of a class:
+ * its type parameters, its superclass and its superinterfaces, and optionally
+ * the undecoded signatures of its generic fields and methods.
+ *
+ * @author Michael Karneim
+ */
+final class ClassSignature {
+	final String name;
+	final List<String> typeParameters;
+	final List<List<TypeSignature>> typeParameterBounds;
+	// null for java.lang.Object
+	final TypeSignature superclass;
+	final List<TypeSignature> interfaces;
+	// the signatures of the generic fields by name
+	final Map<String, String> fieldSignatures;
+	// the signatures of the generic methods by name and descriptor
+	final Map<String, String> methodSignatures;
+
+	ClassSignature(String name, List<String> typeParameters, List<List<TypeSignature>> typeParameterBounds,
+			TypeSignature superclass, List<TypeSignature> interfaces) {
+		this(name, typeParameters, typeParameterBounds, superclass, interfaces, Collections.<String, String> emptyMap(),
+				Collections.<String, String> emptyMap());
+	}
+
+	private ClassSignature(String name, List<String> typeParameters, List<List<TypeSignature>> typeParameterBounds,
+			TypeSignature superclass, List<TypeSignature> interfaces, Map<String, String> fieldSignatures,
+			Map<String, String> methodSignatures) {
+		this.name = name;
+		this.typeParameters = Collections.unmodifiableList(new ArrayList<String>(typeParameters));
+		this.typeParameterBounds = Collections.unmodifiableList(new ArrayList<List<TypeSignature>>(
+				typeParameterBounds));
+		this.superclass = superclass;
+		this.interfaces = Collections.unmodifiableList(new ArrayList<TypeSignature>(interfaces));
+		this.fieldSignatures = fieldSignatures;
+		this.methodSignatures = methodSignatures;
+	}
+
+	/**
+	 * Returns a copy of this signature with the given member signatures.
+	 */
+	ClassSignature withMembers(Map<String, String> fieldSignatures, Map<String, String> methodSignatures) {
+		return new ClassSignature(name, typeParameters, typeParameterBounds, superclass, interfaces,
+				Collections.unmodifiableMap(new HashMap<String, String>(fieldSignatures)),
+				Collections.unmodifiableMap(new HashMap<String, String>(methodSignatures)));
+	}
+
+	/**
+	 * Returns the superclass and the superinterfaces of this class.
+	 *
+	 * @return the direct supertypes of this class
+	 */
+	List<TypeSignature> getSupertypes() {
+		List<TypeSignature> result = new ArrayList<TypeSignature>(interfaces.size() + 1);
+		if (superclass != null) {
+			result.add(superclass);
+		}
+		result.addAll(interfaces);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return name + typeParameters + " extends " + superclass + " implements " + interfaces;
+	}
+}
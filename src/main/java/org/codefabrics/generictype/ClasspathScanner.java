@@ -0,0 +1,585 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The {@link ClasspathScanner} reads the generic signatures of all classes in
+ * a set of directories and jar files without loading them, and resolves type
+ * parameters on that bytecode-level model.
+ * <p>
+ * Jar files are memory-mapped, single class files are read into the heap, and
+ * only the constant pool and the <code>Signature</code> attribute of each class
+ * file are decoded. The supertypes of a scanned
+ * class that are not contained in the scanned roots, e.g. the classes of the
+ * JDK, are read as resources from the given {@link ClassLoader}, again without
+ * loading them.
+ * </p>
+ * <p>
+ * This makes it possible to find all classes that bind a type variable to
+ * some value, and then load only those:
+ * </p>
+ *
+ * <pre>
+ * ClasspathScanner scanner = ClasspathScanner.scan(new File(&quot;lib/plugins.jar&quot;));
+ * for (Map.Entry&lt;String, TypeSignature&gt; e : scanner.findBindings(Handler.class.getTypeParameters()[0]).entrySet()) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Michael Karneim
+ */
+public final class ClasspathScanner {
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	// marks a class that can't be found
+	private static final ClassSignature MISSING = new ClassSignature("", Collections.<String> emptyList(),
+			Collections.<List<TypeSignature>> emptyList(), null, Collections.<TypeSignature> emptyList());
+
+	private final Map<String, ClassSignature> classes;
+	private final ClassLoader classLoader;
+	// the classes read from the class loader
+	private final ConcurrentMap<String, ClassSignature> otherClasses = new ConcurrentHashMap<String, ClassSignature>();
+	// the memoized bindings of each class by type variable
+	private final ConcurrentMap<String, ConcurrentMap<String, Binding>> bindings = //
+	new ConcurrentHashMap<String, ConcurrentMap<String, Binding>>();
+
+	/**
+	 * The value of a type variable in a class, expressed in the type variables
+	 * of that class.
+	 */
+	private static final class Binding {
+		// marks a class that is not parameterized by the variable
+		static final Binding NONE = new Binding(null, false);
+
+		final TypeSignature value;
+		// false if the value has been passed through a raw type, so the type
+		// variables in it are not those of the class
+		final boolean open;
+
+		Binding(TypeSignature value, boolean open) {
+			this.value = value;
+			this.open = open;
+		}
+
+		/**
+		 * Returns this binding as seen from a subclass that extends the class
+		 * of this binding with the given values of its type variables.
+		 */
+		Binding substitute(Map<String, TypeSignature> values) {
+			if (!open) {
+				return this;
+			}
+			return new Binding(value.substitute(values), !values.isEmpty());
+		}
+	}
+
+	/**
+	 * A class on the stack of {@link ClasspathScanner#getBinding(String, String, String)}
+	 * and the index of the supertype that is searched next.
+	 */
+	private static final class Step {
+		final String className;
+		List<TypeSignature> supertypes;
+		int index;
+
+		Step(String className) {
+			this.className = className;
+		}
+	}
+
+	private ClasspathScanner(Map<String, ClassSignature> classes, ClassLoader classLoader) {
+		this.classes = classes;
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Scans the given directories and jar files. Supertypes outside of them
+	 * are read from the class loader of this class.
+	 *
+	 * @param roots
+	 *            directories and jar files
+	 * @return the scanner with the signatures of all scanned classes
+	 * @throws IOException
+	 *             if a root or a class file can't be read
+	 */
+	public static ClasspathScanner scan(File... roots) throws IOException {
+		return scan(Arrays.asList(roots), ClasspathScanner.class.getClassLoader());
+	}
+
+	/**
+	 * Scans the given directories and jar files. Supertypes outside of them
+	 * are read as resources from the given class loader.
+	 *
+	 * @param roots
+	 *            directories and jar files
+	 * @param classLoader
+	 *            the class loader to read other classes from
+	 * @return the scanner with the signatures of all scanned classes
+	 * @throws IOException
+	 *             if a root or a class file can't be read
+	 */
+	public static ClasspathScanner scan(Collection<File> roots, ClassLoader classLoader) throws IOException {
+		Map<String, ClassSignature> classes = new LinkedHashMap<String, ClassSignature>();
+		for (File root : roots) {
+			if (root.isDirectory()) {
+				scanDirectory(root, classes);
+			} else {
+				scanJar(root, classes);
+			}
+		}
+		return new ClasspathScanner(Collections.unmodifiableMap(classes), classLoader);
+	}
+
+	private static void scanDirectory(File root, Map<String, ClassSignature> classes) throws IOException {
+		ArrayDeque<File> stack = new ArrayDeque<File>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			File dir = stack.pop();
+			File[] files = dir.listFiles();
+			if (files == null) {
+				throw new IOException(String.format("Can't list directory %s!", dir));
+			}
+			Arrays.sort(files);
+			// push in reverse order, so that the first one is popped first
+			for (int i = files.length - 1; i >= 0; i--) {
+				File file = files[i];
+				if (file.isDirectory()) {
+					stack.push(file);
+				} else if (isClassFile(file.getName())) {
+					add(classes, readFile(file), file.getPath());
+				}
+			}
+		}
+	}
+
+	private static ByteBuffer readFile(File file) throws IOException {
+		// a single class file is too small to be worth a mapping
+		return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+	}
+
+	private static ByteBuffer mapFile(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// the mapping stays valid after the channel has been closed
+			channel.close();
+		}
+	}
+
+	/**
+	 * Scans the given jar file. The file is memory-mapped, its central
+	 * directory is read directly, and each class file is decoded from the
+	 * mapped bytes. Jar files in the ZIP64 format are read with a
+	 * {@link ZipFile} instead.
+	 */
+	private static void scanJar(File file, Map<String, ClassSignature> classes) throws IOException {
+		ByteBuffer buffer = mapFile(file).order(ByteOrder.LITTLE_ENDIAN);
+		int end = findEndOfCentralDirectory(buffer);
+		if (end < 0) {
+			throw new IOException(String.format("%s is not a jar file!", file));
+		}
+		int count = buffer.getShort(end + 10) & 0xFFFF;
+		long offset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+		if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+			scanZip64(file, classes);
+			return;
+		}
+		int pos = (int) offset;
+		for (int i = 0; i < count; i++) {
+			if (buffer.getInt(pos) != CENTRAL_HEADER) {
+				throw new IOException(String.format("Invalid central directory in %s!", file));
+			}
+			int method = buffer.getShort(pos + 10) & 0xFFFF;
+			int compressedSize = buffer.getInt(pos + 20);
+			int size = buffer.getInt(pos + 24);
+			int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+			int localHeader = buffer.getInt(pos + 42);
+			String name = getAscii(buffer, pos + 46, nameLength);
+			pos += 46 + nameLength + extraLength + commentLength;
+			if (!isClassFile(name) || name.startsWith("META-INF/")) {
+				continue;
+			}
+			if (buffer.getInt(localHeader) != LOCAL_HEADER) {
+				throw new IOException(String.format("Invalid entry %s in %s!", name, file));
+			}
+			int data = localHeader + 30 + (buffer.getShort(localHeader + 26) & 0xFFFF)
+					+ (buffer.getShort(localHeader + 28) & 0xFFFF);
+			ByteBuffer compressed = buffer.duplicate();
+			compressed.limit(data + compressedSize);
+			compressed.position(data);
+			compressed = compressed.slice();
+			if (method == STORED) {
+				add(classes, compressed, file + "!" + name);
+			} else if (method == DEFLATED) {
+				add(classes, inflate(compressed, size, name), file + "!" + name);
+			} else {
+				throw new IOException(String.format("Unsupported compression method %s of %s in %s!", method,
+						name, file));
+			}
+		}
+	}
+
+	private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+		// the record is followed by a comment of up to 65535 bytes
+		int min = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - 0xFFFF);
+		for (int pos = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; pos >= min; pos--) {
+			if (buffer.getInt(pos) == END_OF_CENTRAL_DIRECTORY) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	private static ByteBuffer inflate(ByteBuffer compressed, int size, String name) throws IOException {
+		byte[] input = new byte[compressed.remaining()];
+		compressed.get(input);
+		byte[] output = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input);
+			int length = 0;
+			while (length < size && !inflater.finished()) {
+				int n = inflater.inflate(output, length, size - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != size) {
+				throw new IOException(String.format("Truncated entry %s!", name));
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException(String.format("Invalid entry %s!", name), ex);
+		} finally {
+			inflater.end();
+		}
+		return ByteBuffer.wrap(output);
+	}
+
+	private static void scanZip64(File file, Map<String, ClassSignature> classes) throws IOException {
+		ZipFile zip = new ZipFile(file);
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (isClassFile(entry.getName()) && !entry.getName().startsWith("META-INF/")) {
+					InputStream in = zip.getInputStream(entry);
+					try {
+						add(classes, ByteBuffer.wrap(readFully(in)), file + "!" + entry.getName());
+					} finally {
+						in.close();
+					}
+				}
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	private static String getAscii(ByteBuffer buffer, int pos, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) (buffer.get(pos + i) & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	private static boolean isClassFile(String name) {
+		return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+	}
+
+	private static void add(Map<String, ClassSignature> classes, ByteBuffer classFile, String location)
+			throws IOException {
+		ClassSignature signature;
+		try {
+			signature = ClassFileReader.read(classFile);
+		} catch (IOException ex) {
+			throw new IOException(String.format("Can't read %s: %s", location, ex.getMessage()), ex);
+		}
+		if (!classes.containsKey(signature.name)) {
+			classes.put(signature.name, signature);
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = in.read(buffer)) >= 0) {
+			result.write(buffer, 0, n);
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * Returns the binary names of all scanned classes.
+	 *
+	 * @return the names of all scanned classes
+	 */
+	public Set<String> getClassNames() {
+		return classes.keySet();
+	}
+
+	/**
+	 * Loads the class with the given name from the class loader of this
+	 * scanner without initializing it.
+	 *
+	 * @param className
+	 *            the binary name of the class
+	 * @return the class with the given name
+	 * @throws ClassNotFoundException
+	 *             if the class can't be found
+	 */
+	public Class<?> loadClass(String className) throws ClassNotFoundException {
+		return Class.forName(className, false, classLoader);
+	}
+
+	/**
+	 * Returns the value of the given type variable in the class with the given
+	 * name. This is the bytecode-level equivalent of
+	 * {@link GenericType#getTypeParameter(TypeVariable)}.
+	 *
+	 * @param className
+	 *            the binary name of the class
+	 * @param variable
+	 * @return the value of the variable, or <code>null</code> if the variable
+	 *         does not parameterize the class or one of its supertypes
+	 */
+	public TypeSignature getTypeParameter(String className, TypeVariable<? extends Class<?>> variable) {
+		return getTypeParameter(className, variable.getGenericDeclaration().getName(), variable.getName());
+	}
+
+	/**
+	 * Returns the value of the type variable with the given name, declared by
+	 * the given class, in the class with the given name.
+	 * <p>
+	 * The value is a {@link TypeSignature.Kind#TYPE_VARIABLE} if the variable
+	 * is bound to a variable of the class or not bound at all.
+	 * </p>
+	 *
+	 * @param className
+	 *            the binary name of the class
+	 * @param declaringClassName
+	 *            the binary name of the class declaring the variable
+	 * @param variableName
+	 *            the name of the variable
+	 * @return the value of the variable, or <code>null</code> if the variable
+	 *         does not parameterize the class or one of its supertypes
+	 */
+	public TypeSignature getTypeParameter(String className, String declaringClassName, String variableName) {
+		return getBinding(className, declaringClassName, variableName).value;
+	}
+
+	/**
+	 * Returns the binding of the given variable in the class with the given
+	 * name. The supertypes are searched depth first, the superclass before
+	 * the superinterfaces, with an explicit stack. The binding of each class
+	 * passed is memoized, so classes with common supertypes share the walk
+	 * above them.
+	 */
+	private Binding getBinding(String className, String declaringClassName, String variableName) {
+		ConcurrentMap<String, Binding> classBindings = getBindings(declaringClassName, variableName);
+		Binding result = classBindings.get(className);
+		if (result != null) {
+			return result;
+		}
+		ArrayDeque<Step> stack = new ArrayDeque<Step>();
+		// the classes on the stack, to skip cycles in broken class files
+		Set<String> pending = new HashSet<String>();
+		stack.push(new Step(className));
+		pending.add(className);
+		while (!stack.isEmpty()) {
+			Step step = stack.peek();
+			result = null;
+			if (step.supertypes == null) {
+				ClassSignature signature = getClassSignature(step.className);
+				if (signature == null) {
+					result = Binding.NONE;
+				} else if (step.className.equals(declaringClassName)) {
+					result = signature.typeParameters.contains(variableName) ? new Binding(
+							TypeSignature.typeVariable(variableName, declaringClassName), true) : Binding.NONE;
+				} else {
+					step.supertypes = signature.getSupertypes();
+				}
+			}
+			// take the binding of the first supertype that binds the variable
+			while (result == null && step.index < step.supertypes.size()) {
+				TypeSignature supertype = step.supertypes.get(step.index);
+				Binding binding = classBindings.get(supertype.getName());
+				if (binding == null && pending.add(supertype.getName())) {
+					// resolve the supertype first
+					break;
+				}
+				if (binding != null && binding != Binding.NONE) {
+					result = binding.substitute(getValues(supertype));
+				} else {
+					step.index++;
+				}
+			}
+			if (result == null && step.index < step.supertypes.size()) {
+				stack.push(new Step(step.supertypes.get(step.index).getName()));
+				continue;
+			}
+			if (result == null) {
+				result = Binding.NONE;
+			}
+			stack.pop();
+			pending.remove(step.className);
+			Binding old = classBindings.putIfAbsent(step.className, result);
+			if (old != null) {
+				result = old;
+			}
+		}
+		return result;
+	}
+
+	private ConcurrentMap<String, Binding> getBindings(String declaringClassName, String variableName) {
+		String key = declaringClassName + "<" + variableName + ">";
+		ConcurrentMap<String, Binding> result = bindings.get(key);
+		if (result == null) {
+			result = new ConcurrentHashMap<String, Binding>();
+			ConcurrentMap<String, Binding> old = bindings.putIfAbsent(key, result);
+			if (old != null) {
+				result = old;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values of the type variables of the given supertype,
+	 * expressed in the type variables of the subclass.
+	 */
+	private Map<String, TypeSignature> getValues(TypeSignature supertype) {
+		List<TypeSignature> args = supertype.getTypeArguments();
+		if (args.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		ClassSignature signature = getClassSignature(supertype.getName());
+		if (signature == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, TypeSignature> result = new HashMap<String, TypeSignature>(args.size() * 2);
+		int count = Math.min(args.size(), signature.typeParameters.size());
+		for (int i = 0; i < count; i++) {
+			result.put(signature.typeParameters.get(i), args.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the value of the given type variable in each scanned class that
+	 * binds it, i.e. where its value is not a type variable.
+	 *
+	 * @param variable
+	 * @return the values of the variable by the binary names of the classes
+	 */
+	public Map<String, TypeSignature> findBindings(TypeVariable<? extends Class<?>> variable) {
+		return findBindings(variable.getGenericDeclaration().getName(), variable.getName());
+	}
+
+	/**
+	 * Returns the value of the type variable with the given name, declared by
+	 * the given class, in each scanned class that binds it, i.e. where its
+	 * value is not a type variable.
+	 *
+	 * @param declaringClassName
+	 *            the binary name of the class declaring the variable
+	 * @param variableName
+	 *            the name of the variable
+	 * @return the values of the variable by the binary names of the classes
+	 */
+	public Map<String, TypeSignature> findBindings(String declaringClassName, String variableName) {
+		Map<String, TypeSignature> result = new LinkedHashMap<String, TypeSignature>();
+		for (String className : classes.keySet()) {
+			TypeSignature value = getTypeParameter(className, declaringClassName, variableName);
+			if (value != null && value.getKind() != TypeSignature.Kind.TYPE_VARIABLE) {
+				result.put(className, value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the signature of the class with the given name, or
+	 * <code>null</code> if it can't be found.
+	 */
+	ClassSignature getClassSignature(String className) {
+		ClassSignature result = classes.get(className);
+		if (result != null) {
+			return result;
+		}
+		result = otherClasses.get(className);
+		if (result == null) {
+			result = readClassSignature(className);
+			ClassSignature old = otherClasses.putIfAbsent(className, result);
+			if (old != null) {
+				result = old;
+			}
+		}
+		return result == MISSING ? null : result;
+	}
+
+	private ClassSignature readClassSignature(String className) {
+		String resource = className.replace('.', '/') + ".class";
+		InputStream in = classLoader == null ? ClassLoader.getSystemResourceAsStream(resource) : classLoader
+				.getResourceAsStream(resource);
+		if (in == null) {
+			return MISSING;
+		}
+		try {
+			try {
+				return ClassFileReader.read(ByteBuffer.wrap(readFully(in)));
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			return MISSING;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s classes]", getClass().getSimpleName(), classes.size());
+	}
+}
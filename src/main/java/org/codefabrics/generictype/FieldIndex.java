@@ -0,0 +1,149 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link FieldIndex} maps the names of all fields of a class and its
+ * superclasses to the field that is visible by that name.
+ * <p>
+ * The index is built once per class and is immutable afterwards.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+class FieldIndex {
+	private static final ClassValue<FieldIndex> INDEX = new ClassValue<FieldIndex>() {
+		@Override
+		protected FieldIndex computeValue(Class<?> type) {
+			return new FieldIndex(type);
+		}
+	};
+
+	/**
+	 * Returns the {@link FieldIndex} of the given class.
+	 *
+	 * @param cls
+	 * @return the {@link FieldIndex} of the given class
+	 */
+	public static FieldIndex of(Class<?> cls) {
+		return INDEX.get(cls);
+	}
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	// the generic superclass of each level, or null if it is not parameterized
+	private final ParameterizedType[] superTypes;
+
+	private FieldIndex(Class<?> startClass) {
+		List<ParameterizedType> types = new ArrayList<ParameterizedType>();
+		Class<?> ownerClass = startClass;
+		int depth = 0;
+		while (ownerClass != null) {
+			for (Field field : ownerClass.getDeclaredFields()) {
+				if (!entries.containsKey(field.getName())) {
+					entries.put(field.getName(), new Entry(field, depth));
+				}
+			}
+			Type superType = TypeBackend.get().getGenericSuperclass(ownerClass);
+			if (superType instanceof ParameterizedType) {
+				ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
+				types.add(parameterizedSuperType);
+				ownerClass = (Class<?>) parameterizedSuperType.getRawType();
+			} else {
+				types.add(null);
+				ownerClass = (Class<?>) superType;
+			}
+			depth++;
+		}
+		superTypes = types.toArray(new ParameterizedType[types.size()]);
+	}
+
+	/**
+	 * Returns the entry of the field with the given name, or <code>null</code>
+	 * if there is no such field.
+	 *
+	 * @param fieldname
+	 * @return the entry of the field with the given name
+	 */
+	public Entry get(String fieldname) {
+		return entries.get(fieldname);
+	}
+
+	/**
+	 * Returns the names of all fields of the indexed class and its
+	 * superclasses.
+	 *
+	 * @return the names of all fields
+	 */
+	public Set<String> getFieldnames() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * Returns the mapping that is valid inside the class declaring the field of
+	 * the given entry.
+	 *
+	 * @param currentMapping
+	 *            the mapping that is valid inside the indexed class
+	 * @param entry
+	 * @return the mapping that is valid inside the declaring class
+	 */
+	public VariableMapping getMapping(VariableMapping currentMapping, Entry entry) {
+		for (int i = 0; i < entry.depth; i++) {
+			if (superTypes[i] != null) {
+				currentMapping = new VariableMapping(currentMapping, superTypes[i]);
+			}
+		}
+		return currentMapping;
+	}
+
+	/**
+	 * Returns the mappings that are valid inside each class of the superclass
+	 * chain, indexed by the depth of the class. Each mapping is created only
+	 * once and extends the mapping of the class below it.
+	 *
+	 * @param currentMapping
+	 *            the mapping that is valid inside the indexed class
+	 * @return the mappings that are valid inside each class of the chain
+	 */
+	public VariableMapping[] getMappings(VariableMapping currentMapping) {
+		VariableMapping[] result = new VariableMapping[superTypes.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = currentMapping;
+			if (superTypes[i] != null) {
+				currentMapping = new VariableMapping(currentMapping, superTypes[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * An {@link Entry} describes a field and the number of superclass hops
+	 * from the indexed class to the class declaring it.
+	 */
+	static class Entry {
+		final Field field;
+		final Type genericType;
+		final int depth;
+		// the field type resolved with an empty start mapping
+		volatile ResolutionCache.Memo<GenericType> unboundType;
+
+		Entry(Field field, int depth) {
+			this.field = field;
+			this.genericType = TypeBackend.get().getGenericType(field);
+			this.depth = depth;
+		}
+	}
+}
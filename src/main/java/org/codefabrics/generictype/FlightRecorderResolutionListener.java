@@ -0,0 +1,84 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link FlightRecorderResolutionListener} emits a Java Flight Recorder
+ * event named {@value ResolutionEvent#NAME} for each {@link Resolution} that
+ * takes longer or walks deeper into the type hierarchy than the configured
+ * thresholds.
+ * <p>
+ * The events carry the root type, the resolved variable or member, the
+ * duration, the walked depth and the number of created variable mappings.
+ * They are only recorded while a flight recording with this event enabled is
+ * running. This listener requires a Java runtime with the
+ * <code>jdk.jfr</code> module.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public class FlightRecorderResolutionListener implements ResolutionListener {
+	private final long durationThreshold;
+	private final int depthThreshold;
+
+	/**
+	 * Creates a {@link FlightRecorderResolutionListener} with the given
+	 * thresholds. A resolution is reported if it reaches any of them.
+	 *
+	 * @param durationThreshold
+	 *            the minimal duration of a reported resolution
+	 * @param unit
+	 *            the unit of the duration threshold
+	 * @param depthThreshold
+	 *            the minimal depth of a reported resolution
+	 */
+	public FlightRecorderResolutionListener(long durationThreshold, TimeUnit unit, int depthThreshold) {
+		this.durationThreshold = unit.toNanos(durationThreshold);
+		this.depthThreshold = depthThreshold;
+	}
+
+	/**
+	 * Creates a {@link FlightRecorderResolutionListener} with the given
+	 * thresholds and registers it as {@link ResolutionListener}.
+	 *
+	 * @param durationThreshold
+	 * @param unit
+	 * @param depthThreshold
+	 * @return the installed listener
+	 * @see GenericType#removeResolutionListener(ResolutionListener)
+	 */
+	public static FlightRecorderResolutionListener install(long durationThreshold, TimeUnit unit, int depthThreshold) {
+		FlightRecorderResolutionListener result = new FlightRecorderResolutionListener(durationThreshold, unit,
+				depthThreshold);
+		GenericType.addResolutionListener(result);
+		return result;
+	}
+
+	public void resolved(Resolution resolution) {
+		if (resolution.getDuration() < durationThreshold && resolution.getDepth() < depthThreshold) {
+			return;
+		}
+		ResolutionEvent event = new ResolutionEvent();
+		if (!event.isEnabled()) {
+			return;
+		}
+		event.operation = resolution.getOperation().name();
+		event.rootType = String.valueOf(resolution.getRootType());
+		event.target = String.valueOf(resolution.getTarget());
+		event.resolutionTime = resolution.getDuration();
+		event.depth = resolution.getDepth();
+		event.nodesVisited = resolution.getNodesVisited();
+		event.mappingsCreated = resolution.getMappingsCreated();
+		event.commit();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FlightRecorderResolutionListener[%sns, depth %s]", durationThreshold, depthThreshold);
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the
+ * {@link org.codefabrics.generictype.processor.ResolutionTableProcessor}
+ * generates a {@link ResolutionTable} at compile time.
+ * <p>
+ * The generated table contains the values of all type parameters, the types of
+ * all fields and the return types of all methods without parameters of the
+ * marked class that resolve to a plain {@link Class}. {@link GenericType} uses
+ * these values instead of resolving them by reflection. All other values are
+ * still resolved by reflection.
+ * </p>
+ * 
+ * @author Michael Karneim
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateResolutionTable {
+}
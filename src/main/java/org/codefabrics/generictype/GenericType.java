@@ -5,14 +5,24 @@
  */
 package org.codefabrics.generictype;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The {@link GenericType} is a facade for a {@link Type} object representing a
@@ -21,6 +31,25 @@ import java.util.List;
  * @author Michael Karneim
  */
 public class GenericType {
+	private static final ResolutionCache<TypeVariable<?>, GenericType> TYPE_PARAMETER_CACHE = //
+	new ResolutionCache<TypeVariable<?>, GenericType>();
+	private static final ResolutionCache<String, PropertyPath> PROPERTY_PATH_CACHE = //
+	new ResolutionCache<String, PropertyPath>();
+	private static final ResolutionCache<Class<?>, TypeParameterTable> TYPE_PARAMETER_TABLE_CACHE = //
+	new ResolutionCache<Class<?>, TypeParameterTable>();
+	private static final ResolutionCache<Class<?>, BeanDescriptor> BEAN_DESCRIPTOR_CACHE = //
+	new ResolutionCache<Class<?>, BeanDescriptor>();
+	// keyed by the pair of target and source type, attached to a class that
+	// sees both
+	private static final AssignabilityCache ASSIGNABILITY_CACHE = new AssignabilityCache();
+	// the results of narrow() for an empty mapping by narrowed type and target
+	// type, attached to a class that sees both
+	private static final ResolutionCache<Type, ConcurrentMap<Class<?>, Type>> NARROW_CACHE = //
+	new ResolutionCache<Type, ConcurrentMap<Class<?>, Type>>();
+
+	// marks a cached miss
+	private static final GenericType NOT_FOUND = new GenericType(new VariableMapping(), Void.class);
+
 	private final VariableMapping mapping;
 	private final Type type;
 
@@ -68,6 +97,118 @@ public class GenericType {
 		this(new VariableMapping(null), cls);
 	}
 
+	/**
+	 * Returns <code>true</code> if the results of
+	 * {@link #getTypeParameter(TypeVariable)}, {@link #resolveAll()},
+	 * {@link #getFieldType(String)}, {@link #getMethodReturnType(String)},
+	 * {@link #getMethodParameterTypes(String, Class...)},
+	 * {@link #describe()}, {@link #compilePath(String)},
+	 * {@link #isAssignable(Type, Type)} and {@link #narrow(Type, Class)} are
+	 * cached. The cache is enabled by default.
+	 * 
+	 * @return <code>true</code> if the resolution cache is enabled
+	 */
+	public static boolean isCacheEnabled() {
+		return TYPE_PARAMETER_CACHE.isEnabled();
+	}
+
+	/**
+	 * Enables or disables the caching of the results of
+	 * {@link #getTypeParameter(TypeVariable)}, {@link #resolveAll()},
+	 * {@link #getFieldType(String)}, {@link #getMethodReturnType(String)},
+	 * {@link #getMethodParameterTypes(String, Class...)},
+	 * {@link #describe()}, {@link #compilePath(String)},
+	 * {@link #isAssignable(Type, Type)} and {@link #narrow(Type, Class)}.
+	 * Disabling the cache removes all cached type parameters, field and
+	 * method types, tables, descriptors, paths, assignabilities and narrowed
+	 * types, and the memoized supertype paths.
+	 * <p>
+	 * Only results resolved for a {@link GenericType} that has been created for
+	 * a plain {@link Class} are cached, since their values do not depend on
+	 * any outer variable mapping.
+	 * </p>
+	 * 
+	 * @param enabled
+	 */
+	public static void setCacheEnabled(boolean enabled) {
+		TYPE_PARAMETER_CACHE.setEnabled(enabled);
+		PROPERTY_PATH_CACHE.setEnabled(enabled);
+		TYPE_PARAMETER_TABLE_CACHE.setEnabled(enabled);
+		BEAN_DESCRIPTOR_CACHE.setEnabled(enabled);
+		ASSIGNABILITY_CACHE.setEnabled(enabled);
+		NARROW_CACHE.setEnabled(enabled);
+		SupertypePath.PATHS.setEnabled(enabled);
+		if (!enabled) {
+			ResolutionCache.clearMemos();
+		}
+	}
+
+	/**
+	 * Removes all cached results of {@link #getTypeParameter(TypeVariable)},
+	 * {@link #resolveAll()}, {@link #getFieldType(String)},
+	 * {@link #getMethodReturnType(String)},
+	 * {@link #getMethodParameterTypes(String, Class...)}, {@link #describe()},
+	 * {@link #compilePath(String)}, {@link #isAssignable(Type, Type)} and
+	 * {@link #narrow(Type, Class)} of {@link GenericType}s created for a plain
+	 * {@link Class}, and the memoized supertype paths.
+	 */
+	public static void clearCache() {
+		TYPE_PARAMETER_CACHE.clear();
+		PROPERTY_PATH_CACHE.clear();
+		TYPE_PARAMETER_TABLE_CACHE.clear();
+		BEAN_DESCRIPTOR_CACHE.clear();
+		ASSIGNABILITY_CACHE.clear();
+		NARROW_CACHE.clear();
+		SupertypePath.PATHS.clear();
+		ResolutionCache.clearMemos();
+	}
+
+	/**
+	 * Registers the given listener to be notified after each resolution. As
+	 * long as no listener is registered, the resolutions are not instrumented.
+	 * 
+	 * @param listener
+	 * @see ResolutionMetrics#install()
+	 */
+	public static void addResolutionListener(ResolutionListener listener) {
+		Resolution.addListener(listener);
+	}
+
+	/**
+	 * Unregisters the given listener.
+	 * 
+	 * @param listener
+	 */
+	public static void removeResolutionListener(ResolutionListener listener) {
+		Resolution.removeListener(listener);
+	}
+
+	/**
+	 * Returns the backend that supplies the generic types of classes and their
+	 * members. The default is {@link TypeBackend#REFLECTION}.
+	 *
+	 * @return the current backend
+	 */
+	public static TypeBackend getTypeBackend() {
+		return TypeBackend.get();
+	}
+
+	/**
+	 * Sets the backend that supplies the generic types of classes and their
+	 * members. It should be set before the first resolution, since the
+	 * hierarchy of each class is indexed only once, with the backend that is
+	 * current at that time. The results of all resolutions are equal for all
+	 * backends.
+	 *
+	 * @param backend
+	 *            e.g. {@link TypeBackend#SIGNATURE}
+	 * @throws IllegalArgumentException
+	 *             if the backend is <code>null</code>
+	 */
+	public static void setTypeBackend(TypeBackend backend) throws IllegalArgumentException {
+		TypeBackend.set(backend);
+	}
+
 	/**
 	 * Returns the type represented by this {@link GenericType}. This can be one
 	 * of {@link Class}, {@link ParameterizedType}, and {@link TypeVariable}.
@@ -78,6 +219,19 @@ public class GenericType {
 		return type;
 	}
 
+	/**
+	 * Returns the type represented by this {@link GenericType} with all type
+	 * variables replaced by their actual values, as far as they are known.
+	 * Parameterized types, wildcard types and generic array types are returned
+	 * as canonical instances, so equal types are identical.
+	 *
+	 * @return the resolved type represented by this {@link GenericType}
+	 * @see CanonicalTypes
+	 */
+	public Type getCanonicalType() {
+		return CanonicalTypes.resolve(type, mapping);
+	}
+
 	/**
 	 * Returns <code>true</code> if this type represents a {@link TypeVariable}.
 	 * 
@@ -150,20 +304,69 @@ public class GenericType {
 	public GenericType getTypeParameter(TypeVariable<? extends Class<?>> variable) throws IllegalArgumentException,
 			IllegalStateException {
 		assertThatTypeVariableDoesParameterizeAClass(variable);
+		GenericType result = findTypeParameter(variable);
+		if (result == null) {
+			if (!isClass() && !isParameterizedType()) {
+				throw new UnsupportedOperationException(String.format(
+						"Type parameter resolution not supported for %s", type));
+			}
+			throw new IllegalArgumentException(String.format("%s does not parameterize this type %s!", variable, type));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the value of the given {@link TypeVariable} as a
+	 * {@link GenericType}, or <code>null</code> if the variable does not
+	 * parameterize this type or one of it's super types.
+	 * <p>
+	 * Unlike {@link #getTypeParameter(TypeVariable)} this method never throws
+	 * an exception, and misses are cached like hits. Use it to probe whether a
+	 * type binds a certain variable.
+	 * </p>
+	 * 
+	 * @param variable
+	 * @return the actual value of the given {@link TypeVariable} as a
+	 *         {@link GenericType}, or <code>null</code>
+	 */
+	public GenericType findTypeParameter(TypeVariable<?> variable) {
+		Resolution resolution = Resolution.begin(Resolution.Operation.TYPE_PARAMETER, type, variable);
+		try {
+			return resolveTypeParameter(variable);
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	private GenericType resolveTypeParameter(TypeVariable<?> variable) {
+		if (!(variable.getGenericDeclaration() instanceof Class<?>)) {
+			return null;
+		}
 		GenericType result = null;
 		if (type instanceof Class<?>) {
 			Class<?> cls = (Class<?>) type;
-			// Class<?> parameterizedClass = (Class<?>)
-			// variable.getGenericDeclaration();
-			// // Break-Condition
-			// if (parameterizedClass.equals(cls)) {
-			// GenericType result = new GenericType(mapping, variable);
-			// return result;
-			// }
+			// the value only depends on the class if there is no outer mapping
+			boolean cacheable = mapping.isEmpty();
+			if (cacheable) {
+				result = TYPE_PARAMETER_CACHE.get(cls, variable);
+				Resolution.cacheLookup(result != null);
+				if (result != null) {
+					return result == NOT_FOUND ? null : result;
+				}
+				result = getPrecomputedTypeParameter(cls, variable);
+				if (result != null) {
+					return TYPE_PARAMETER_CACHE.put(cls, variable, result);
+				}
+			}
 			VariableMapping aMapping = resolveTypeVariableInClass(variable, cls, mapping);
 			if (aMapping != null) {
 				result = getGenericType(aMapping, variable);
 			}
+			if (cacheable && (result != null || isMissCacheable(cls, variable))) {
+				result = TYPE_PARAMETER_CACHE.put(cls, variable, result == null ? NOT_FOUND : result);
+			}
 		} else if (type instanceof ParameterizedType) {
 			ParameterizedType pType = (ParameterizedType) type;
 			Class<?> rawType = (Class<?>) pType.getRawType();
@@ -171,14 +374,284 @@ public class GenericType {
 			if (aMapping != null) {
 				result = getGenericType(aMapping, variable);
 			}
+		}
+		return result == NOT_FOUND ? null : result;
+	}
+
+	/**
+	 * Returns the values of all type variables that parameterize this type or
+	 * one of it's super types.
+	 * <p>
+	 * The type hierarchy is walked only once. Each variable has the same value
+	 * that {@link #getTypeParameter(TypeVariable)} would return for it.
+	 * </p>
+	 * 
+	 * @return an immutable table of all type variables and their values
+	 * @throws UnsupportedOperationException
+	 *             if the type parameter resolution is not supported for this
+	 *             type
+	 */
+	public TypeParameterTable resolveAll() throws UnsupportedOperationException {
+		Class<?> rawType;
+		if (type instanceof Class<?>) {
+			rawType = (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			rawType = (Class<?>) ((ParameterizedType) type).getRawType();
 		} else {
 			throw new UnsupportedOperationException(String.format("Type parameter resolution not supported for %s",
 					type));
 		}
-		if (result == null) {
-			throw new IllegalArgumentException(String.format("%s does not parameterize this type %s!", variable, type));
+		boolean cacheable = type instanceof Class<?> && mapping.isEmpty();
+		if (cacheable) {
+			TypeParameterTable result = TYPE_PARAMETER_TABLE_CACHE.get(rawType, rawType);
+			if (result != null) {
+				return result;
+			}
+		}
+		Map<TypeVariable<?>, GenericType> values = new LinkedHashMap<TypeVariable<?>, GenericType>();
+		resolveAllInClass(rawType, mapping, values);
+		TypeParameterTable result = new TypeParameterTable(type, values);
+		if (cacheable) {
+			result = TYPE_PARAMETER_TABLE_CACHE.put(rawType, rawType, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the types of all fields and all getters of this type and its
+	 * super types, see {@link BeanDescriptor}.
+	 * <p>
+	 * The type hierarchy is walked only once, and the members declared by the
+	 * same super type share the same variable mapping. Each member has the
+	 * same type that {@link #findFieldType(String)} and
+	 * {@link #findMethodReturnType(String)} would return for it.
+	 * </p>
+	 * 
+	 * @return an immutable descriptor of all fields and getters
+	 * @throws UnsupportedOperationException
+	 *             if member type resolution is not supported for this type
+	 * @throws IllegalStateException
+	 *             if the type of a member is not supported, e.g. a generic
+	 *             array type
+	 */
+	public BeanDescriptor describe() throws UnsupportedOperationException, IllegalStateException {
+		Class<?> rawType;
+		if (type instanceof Class<?>) {
+			rawType = (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			rawType = (Class<?>) ((ParameterizedType) type).getRawType();
 		} else {
-			return result;
+			throw new UnsupportedOperationException(String.format("Member type resolution not supported for %s",
+					type));
+		}
+		boolean cacheable = type instanceof Class<?> && mapping.isEmpty();
+		if (cacheable) {
+			BeanDescriptor result = BEAN_DESCRIPTOR_CACHE.get(rawType, rawType);
+			if (result != null) {
+				return result;
+			}
+		}
+		BeanDescriptor result = BeanDescriptor.create(type, rawType, mapping);
+		if (cacheable) {
+			result = BEAN_DESCRIPTOR_CACHE.put(rawType, rawType, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the given type variables for each of the given classes in
+	 * parallel using a new {@link ForkJoinPool}.
+	 * 
+	 * @param classes
+	 * @param variables
+	 * @return a map from each class to the values of those of the given
+	 *         variables that parameterize it
+	 * @see #resolveAll(Collection, Collection, ForkJoinPool)
+	 */
+	public static Map<Class<?>, Map<TypeVariable<?>, GenericType>> resolveAll(Collection<? extends Class<?>> classes,
+			Collection<? extends TypeVariable<? extends Class<?>>> variables) {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return resolveAll(classes, variables, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Resolves the given type variables for each of the given classes in
+	 * parallel using the given {@link ForkJoinPool}.
+	 * <p>
+	 * The hierarchy walks through common supertypes are shared between all
+	 * classes, and each value is the same that
+	 * {@link #getTypeParameter(TypeVariable)} returns for a {@link GenericType}
+	 * created for the class.
+	 * </p>
+	 * 
+	 * @param classes
+	 * @param variables
+	 * @param pool
+	 * @return a map from each class to the values of those of the given
+	 *         variables that parameterize it
+	 */
+	public static Map<Class<?>, Map<TypeVariable<?>, GenericType>> resolveAll(Collection<? extends Class<?>> classes,
+			Collection<? extends TypeVariable<? extends Class<?>>> variables, ForkJoinPool pool) {
+		BulkResolution resolution = newBulkResolution(classes, variables);
+		pool.invoke(resolution.newTask());
+		return resolution.getResults();
+	}
+
+	/**
+	 * Resolves the given type variables for each of the given classes in
+	 * parallel using the given {@link ExecutorService}.
+	 * 
+	 * @param classes
+	 * @param variables
+	 * @param executor
+	 * @return a map from each class to the values of those of the given
+	 *         variables that parameterize it
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting for the
+	 *             results
+	 * @see #resolveAll(Collection, Collection, ForkJoinPool)
+	 */
+	public static Map<Class<?>, Map<TypeVariable<?>, GenericType>> resolveAll(Collection<? extends Class<?>> classes,
+			Collection<? extends TypeVariable<? extends Class<?>>> variables, ExecutorService executor)
+			throws InterruptedException {
+		BulkResolution resolution = newBulkResolution(classes, variables);
+		resolution.invokeAll(executor);
+		return resolution.getResults();
+	}
+
+	private static BulkResolution newBulkResolution(Collection<? extends Class<?>> classes,
+			Collection<? extends TypeVariable<? extends Class<?>>> variables) {
+		for (TypeVariable<?> var : variables) {
+			assertThatTypeVariableDoesParameterizeAClass(var);
+		}
+		return new BulkResolution(new ArrayList<Class<?>>(classes), new ArrayList<TypeVariable<? extends Class<?>>>(
+				variables));
+	}
+
+	/**
+	 * Returns the value of the given variable for a {@link GenericType} created
+	 * for the given class, or <code>null</code> if the variable does not
+	 * parameterize the class.
+	 * 
+	 * @param cls
+	 * @param variable
+	 * @return the value of the given variable, or <code>null</code>
+	 */
+	static GenericType resolveTypeParameterOfClass(Class<?> cls, TypeVariable<?> variable) {
+		GenericType result = TYPE_PARAMETER_CACHE.get(cls, variable);
+		if (result == null) {
+			result = getPrecomputedTypeParameter(cls, variable);
+			if (result != null) {
+				return TYPE_PARAMETER_CACHE.put(cls, variable, result);
+			}
+			SupertypePath path = SupertypePath.find(cls, variable);
+			if (path != null) {
+				result = getGenericType(path.apply(new VariableMapping()), variable);
+			}
+			if (result != null || isMissCacheable(cls, variable)) {
+				result = TYPE_PARAMETER_CACHE.put(cls, variable, result == null ? NOT_FOUND : result);
+			}
+		}
+		return result == NOT_FOUND ? null : result;
+	}
+
+	/**
+	 * Returns <code>true</code> if a miss of the given variable can be cached
+	 * in the given class. It can't if the class doesn't see the class declaring
+	 * the variable, since the cached key would keep the loader of that class
+	 * from being unloaded.
+	 */
+	private static boolean isMissCacheable(Class<?> cls, TypeVariable<?> variable) {
+		return ResolutionCache.isVisible(cls, (Class<?>) variable.getGenericDeclaration());
+	}
+
+	/**
+	 * Returns the value of the given variable from the generated
+	 * {@link ResolutionTable} of the given class, or <code>null</code> if it
+	 * has not been precomputed.
+	 * 
+	 * @param cls
+	 * @param variable
+	 * @return the precomputed value, or <code>null</code>
+	 */
+	private static GenericType getPrecomputedTypeParameter(Class<?> cls, TypeVariable<?> variable) {
+		Class<?> value = ResolutionTable.of(cls).getTypeParameter(variable);
+		return value == null ? null : new GenericType(value);
+	}
+
+	/**
+	 * Adds the values of all type variables of the given class and its super
+	 * types that have not been added so far.
+	 * <p>
+	 * The hierarchy is walked depth first with an explicit stack, in the same
+	 * order as the supertypes are searched by
+	 * {@link #getTypeParameter(TypeVariable)}, so the depth of the hierarchy
+	 * is not limited by the call stack. Each class is visited only once. The
+	 * first visit of a class adds the values of all variables above it, so any
+	 * later path to the same class, e.g. the second edge of an interface
+	 * diamond, can't add anything new. This keeps the walk linear in the
+	 * number of classes, instead of the number of paths.
+	 * </p>
+	 * 
+	 * @param startClass
+	 * @param startMapping
+	 * @param values
+	 */
+	private static void resolveAllInClass(Class<?> startClass, VariableMapping startMapping,
+			Map<TypeVariable<?>, GenericType> values) {
+		Set<Class<?>> visited = new HashSet<Class<?>>();
+		ArrayDeque<PendingType> stack = new ArrayDeque<PendingType>();
+		stack.push(new PendingType(startClass, startMapping, 0));
+		while (!stack.isEmpty()) {
+			PendingType pending = stack.pop();
+			Class<?> inClass;
+			VariableMapping currentMapping;
+			if (pending.type instanceof ParameterizedType) {
+				ParameterizedType inParameterizedType = (ParameterizedType) pending.type;
+				inClass = (Class<?>) inParameterizedType.getRawType();
+				if (visited.contains(inClass)) {
+					continue;
+				}
+				currentMapping = new VariableMapping(pending.mapping, inParameterizedType);
+			} else {
+				inClass = (Class<?>) pending.type;
+				currentMapping = pending.mapping;
+			}
+			if (!visited.add(inClass)) {
+				continue;
+			}
+			Resolution.nodeVisited();
+			Resolution.depthReached(pending.depth);
+			for (TypeVariable<?> var : inClass.getTypeParameters()) {
+				if (!values.containsKey(var)) {
+					values.put(var, getGenericType(currentMapping, var));
+				}
+			}
+			// push in reverse order, so that the superclass is popped first
+			Type[] superTypes = SupertypeClosure.of(inClass).superTypes;
+			for (int i = superTypes.length - 1; i >= 0; i--) {
+				stack.push(new PendingType(superTypes[i], currentMapping, pending.depth + 1));
+			}
+		}
+	}
+
+	/**
+	 * A supertype on the stack of {@link GenericType#resolveAllInClass}, with
+	 * the mapping that is valid inside its subtype.
+	 */
+	private static class PendingType {
+		final Type type;
+		final VariableMapping mapping;
+		final int depth;
+
+		PendingType(Type type, VariableMapping mapping, int depth) {
+			this.type = type;
+			this.mapping = mapping;
+			this.depth = depth;
 		}
 	}
 
@@ -194,6 +667,42 @@ public class GenericType {
 	 *             if field type resolution is not supported for this type
 	 */
 	public GenericType getFieldType(String fieldname) {
+		GenericType result = findFieldType(fieldname);
+		if (result == null) {
+			if (!isClass() && !isParameterizedType()) {
+				throw new UnsupportedOperationException(String.format("field type resolution not supported for %s",
+						type));
+			}
+			throw new IllegalStateException(String.format("Field %s not found in type %s!", fieldname, asClass()));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the type of the field with the given name as a
+	 * {@link GenericType}, or <code>null</code> if there is no such field in
+	 * this type or one of it's super types.
+	 * <p>
+	 * Unlike {@link #getFieldType(String)} this method never throws an
+	 * exception.
+	 * </p>
+	 * 
+	 * @param fieldname
+	 * @return the type of the field with the given name as a
+	 *         {@link GenericType}, or <code>null</code>
+	 */
+	public GenericType findFieldType(String fieldname) {
+		Resolution resolution = Resolution.begin(Resolution.Operation.FIELD_TYPE, type, fieldname);
+		try {
+			return resolveFieldType(fieldname);
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	private GenericType resolveFieldType(String fieldname) {
 		if (type instanceof ParameterizedType) {
 			Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
 			GenericType result = getFieldType(mapping, rawType, fieldname);
@@ -203,37 +712,272 @@ public class GenericType {
 			GenericType result = getFieldType(mapping, rawType, fieldname);
 			return result;
 		} else {
-			throw new UnsupportedOperationException(String.format("field type resolution not supported for %s", type));
+			return null;
 		}
 	}
 
 	/**
 	 * Returns the return type of the method with the given name (having no
 	 * parameters) as a {@link GenericType}.
+	 * 
+	 * @param methodName
+	 * @return the return type of the method as a {@link GenericType}.
+	 * @throws UnsupportedOperationException
+	 *             if method return type resolution is not supported for this
+	 *             type
+	 * @see #getMethodReturnType(String, Class...)
+	 */
+	public GenericType getMethodReturnType(String methodName) {
+		return getMethodReturnType(methodName, MethodIndex.NO_PARAMETERS);
+	}
+
+	/**
+	 * Returns the return type of the method with the given name and the given
+	 * erased parameter types as a {@link GenericType}.
 	 * <p>
-	 * <b>Please note:</b><br>
-	 * Only methods <b>without parameters</b> are supported right now!
+	 * The method is searched in this type, its superclasses and its
+	 * superinterfaces.
 	 * </p>
 	 * 
 	 * @param methodName
+	 * @param parameterTypes
+	 *            the erased parameter types of the method
 	 * @return the return type of the method as a {@link GenericType}.
 	 * @throws UnsupportedOperationException
 	 *             if method return type resolution is not supported for this
 	 *             type
 	 */
-	public GenericType getMethodReturnType(String methodName) {
+	public GenericType getMethodReturnType(String methodName, Class<?>... parameterTypes) {
+		GenericType result = findMethodReturnType(methodName, parameterTypes);
+		if (result == null) {
+			if (!isClass() && !isParameterizedType()) {
+				throw new UnsupportedOperationException(String.format(
+						"method return type resolution not supported for %s", type));
+			}
+			throw newMethodNotFoundException(methodName, parameterTypes);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the return type of the method with the given name (having no
+	 * parameters) as a {@link GenericType}, or <code>null</code> if there is
+	 * no such method in this type or one of it's super types.
+	 * <p>
+	 * Unlike {@link #getMethodReturnType(String)} this method never throws an
+	 * exception.
+	 * </p>
+	 * 
+	 * @param methodName
+	 * @return the return type of the method as a {@link GenericType}, or
+	 *         <code>null</code>
+	 */
+	public GenericType findMethodReturnType(String methodName) {
+		return findMethodReturnType(methodName, MethodIndex.NO_PARAMETERS);
+	}
+
+	/**
+	 * Returns the return type of the method with the given name and the given
+	 * erased parameter types as a {@link GenericType}, or <code>null</code> if
+	 * there is no such method in this type or one of it's super types.
+	 * <p>
+	 * Unlike {@link #getMethodReturnType(String, Class...)} this method never
+	 * throws an exception.
+	 * </p>
+	 * 
+	 * @param methodName
+	 * @param parameterTypes
+	 *            the erased parameter types of the method
+	 * @return the return type of the method as a {@link GenericType}, or
+	 *         <code>null</code>
+	 */
+	public GenericType findMethodReturnType(String methodName, Class<?>... parameterTypes) {
+		Resolution resolution = Resolution.begin(Resolution.Operation.METHOD_RETURN_TYPE, type, methodName);
+		try {
+			Class<?> rawType = getRawClass();
+			return rawType == null ? null : getMethodReturnType(mapping, rawType, methodName, parameterTypes);
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	/**
+	 * Returns the types of the parameters of the method with the given name
+	 * and the given erased parameter types as a list of {@link GenericType}s.
+	 * <p>
+	 * The method is searched in this type, its superclasses and its
+	 * superinterfaces. For example, the parameter type of
+	 * <code>setKey(Object)</code> in a class extending
+	 * <code>Pair&lt;String, Integer&gt;</code> resolves to {@link String}.
+	 * </p>
+	 * 
+	 * @param methodName
+	 * @param parameterTypes
+	 *            the erased parameter types of the method
+	 * @return an immutable list of the parameter types of the method
+	 * @throws UnsupportedOperationException
+	 *             if method parameter type resolution is not supported for
+	 *             this type
+	 */
+	public List<GenericType> getMethodParameterTypes(String methodName, Class<?>... parameterTypes) {
+		List<GenericType> result = findMethodParameterTypes(methodName, parameterTypes);
+		if (result == null) {
+			if (!isClass() && !isParameterizedType()) {
+				throw new UnsupportedOperationException(String.format(
+						"method parameter type resolution not supported for %s", type));
+			}
+			throw newMethodNotFoundException(methodName, parameterTypes);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the types of the parameters of the method with the given name
+	 * and the given erased parameter types as a list of {@link GenericType}s,
+	 * or <code>null</code> if there is no such method in this type or one of
+	 * it's super types.
+	 * <p>
+	 * Unlike {@link #getMethodParameterTypes(String, Class...)} this method
+	 * never throws an exception.
+	 * </p>
+	 * 
+	 * @param methodName
+	 * @param parameterTypes
+	 *            the erased parameter types of the method
+	 * @return an immutable list of the parameter types of the method, or
+	 *         <code>null</code>
+	 */
+	public List<GenericType> findMethodParameterTypes(String methodName, Class<?>... parameterTypes) {
+		Resolution resolution = Resolution.begin(Resolution.Operation.METHOD_PARAMETER_TYPES, type, methodName);
+		try {
+			Class<?> rawType = getRawClass();
+			return rawType == null ? null : getMethodParameterTypes(mapping, rawType, methodName, parameterTypes);
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	/**
+	 * Returns the class of this type, or <code>null</code> if this type is
+	 * neither a class nor a parameterized type.
+	 */
+	private Class<?> getRawClass() {
 		if (type instanceof ParameterizedType) {
-			Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
-			GenericType result = getMethodReturnType(mapping, rawType, methodName);
-			return result;
+			return (Class<?>) ((ParameterizedType) type).getRawType();
 		} else if (type instanceof Class<?>) {
-			Class<?> rawType = (Class<?>) type;
-			GenericType result = getMethodReturnType(mapping, rawType, methodName);
-			return result;
+			return (Class<?>) type;
 		} else {
-			throw new UnsupportedOperationException(String.format("method return type resolution not supported for %s",
-					type));
+			return null;
+		}
+	}
+
+	private IllegalArgumentException newMethodNotFoundException(String methodName, Class<?>[] parameterTypes) {
+		StringBuilder parameters = new StringBuilder();
+		for (Class<?> parameterType : parameterTypes) {
+			if (parameters.length() > 0) {
+				parameters.append(", ");
+			}
+			parameters.append(parameterType.getName());
+		}
+		return new IllegalArgumentException(String.format("Method %s(%s) not found in type %s!", methodName,
+				parameters, asClass()));
+	}
+
+	/**
+	 * Compiles the given dotted path of fields, getters and type parameters
+	 * against this type. See {@link PropertyPath} for the syntax of the path.
+	 * <p>
+	 * The returned {@link PropertyPath} is immutable and returns the resolved
+	 * type at the end of the path in constant time. Paths compiled against a
+	 * {@link GenericType} that has been created for a plain {@link Class} are
+	 * cached.
+	 * </p>
+	 * 
+	 * @param path
+	 *            e.g. <code>"owner.items.&lt;E&gt;"</code>
+	 * @return the compiled path
+	 * @throws IllegalArgumentException
+	 *             if a step of the path can't be resolved
+	 */
+	public PropertyPath compilePath(String path) throws IllegalArgumentException {
+		boolean cacheable = type instanceof Class<?> && mapping.isEmpty() && path != null;
+		if (cacheable) {
+			PropertyPath result = PROPERTY_PATH_CACHE.get((Class<?>) type, path);
+			if (result != null) {
+				return result;
+			}
+		}
+		PropertyPath result = PropertyPath.compile(this, path);
+		if (cacheable) {
+			result = PROPERTY_PATH_CACHE.put((Class<?>) type, path, result);
 		}
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if a value of the given source type can be
+	 * assigned to a variable of the given target type, e.g.
+	 * <code>List&lt;Integer&gt;</code> to
+	 * <code>Collection&lt;? extends Number&gt;</code>.
+	 * <p>
+	 * The type arguments of the supertypes of the source type are resolved
+	 * along its hierarchy. Type arguments must be equal, unless the target
+	 * argument is a wildcard containing the source argument. Type variables
+	 * and wildcards are assignable like their upper bounds. Raw types are
+	 * assignable like with an unchecked conversion. The results are cached per
+	 * pair of types in a bounded cache, unless the types refer to classes of
+	 * unrelated class loaders.
+	 * </p>
+	 *
+	 * @param targetType
+	 * @param sourceType
+	 * @return <code>true</code> if the source type is assignable to the target
+	 *         type
+	 * @throws IllegalArgumentException
+	 *             if one of the types is <code>null</code>
+	 */
+	public static boolean isAssignable(Type targetType, Type sourceType) throws IllegalArgumentException {
+		if (targetType == null || sourceType == null) {
+			throw new IllegalArgumentException("Type must not be null!");
+		}
+		Resolution resolution = Resolution.begin(Resolution.Operation.ASSIGNABLE, targetType, sourceType);
+		try {
+			Type target = CanonicalTypes.canonicalize(targetType);
+			Type source = CanonicalTypes.canonicalize(sourceType);
+			Class<?> owner = ResolutionCache.findOwner(target, source);
+			if (owner == null) {
+				return Assignability.isAssignable(target, source);
+			}
+			Boolean cached = ASSIGNABILITY_CACHE.get(owner, target, source);
+			Resolution.cacheLookup(cached != null);
+			if (cached != null) {
+				return cached;
+			}
+			boolean result = Assignability.isAssignable(target, source);
+			ASSIGNABILITY_CACHE.put(owner, target, source, result);
+			return result;
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if a value of the given type can be assigned
+	 * to a variable of this type, both with all known type variables
+	 * replaced by their values.
+	 *
+	 * @param other
+	 * @return <code>true</code> if the given type is assignable to this type
+	 * @see #isAssignable(Type, Type)
+	 */
+	public boolean isAssignableFrom(GenericType other) {
+		return isAssignable(getCanonicalType(), other.getCanonicalType());
 	}
 
 	public Type tryResolve(Type type) {
@@ -249,101 +993,189 @@ public class GenericType {
 		return resolvedType;
 	}
 
+	/**
+	 * Returns the most specific class the given type can be narrowed to within
+	 * this type that is assignable to the given target type. Type variables
+	 * are resolved with the mapping of this type. For unresolved type
+	 * variables and wildcards the most specific of their bounds is returned,
+	 * e.g. <code>JComponent</code> for
+	 * <code>T extends JComponent &amp; FileFilter</code>, or the type itself if
+	 * no bound is assignable to the target type.
+	 * <p>
+	 * The results of a {@link GenericType} created for a plain {@link Class}
+	 * are cached per type and target type, so a repeated call does not
+	 * allocate. Types that refer to classes of unrelated class loaders are not
+	 * cached.
+	 * </p>
+	 *
+	 * @param aType
+	 * @param targetType
+	 *            the target type, or <code>null</code> for any
+	 * @return the narrowed type, or <code>null</code> if the given type is
+	 *         <code>null</code>
+	 */
 	public Type narrow(Type aType, Class<?> targetType) {
-		if (aType == null) {
-			return null;
+		Resolution resolution = Resolution.begin(Resolution.Operation.NARROW, type, aType);
+		try {
+			if (aType == null) {
+				return null;
+			}
+			// every bound is assignable to Object, so null narrows like Object
+			Class<?> target = targetType == null ? Object.class : targetType;
+			if (!mapping.isEmpty()) {
+				// the result depends on the mapping of this type
+				return narrowType(aType, targetType);
+			}
+			Class<?> owner = ResolutionCache.findOwner(aType, target);
+			if (owner == null) {
+				return narrowType(aType, targetType);
+			}
+			ConcurrentMap<Class<?>, Type> results = NARROW_CACHE.get(owner, aType);
+			Type result = results == null ? null : results.get(target);
+			Resolution.cacheLookup(result != null);
+			if (result == null) {
+				result = narrowType(aType, targetType);
+				if (results == null) {
+					results = NARROW_CACHE.put(owner, aType, new ConcurrentHashMap<Class<?>, Type>(4));
+				}
+				Type old = results.putIfAbsent(target, result);
+				if (old != null) {
+					result = old;
+				}
+			}
+			return result;
+		} finally {
+			if (resolution != null) {
+				resolution.end();
+			}
+		}
+	}
+
+	/**
+	 * The scan of the bounds of a type variable or wildcard for
+	 * {@link GenericType#narrowType(Type, Class)}.
+	 */
+	private static final class BoundScan {
+		final Type type;
+		final Type[] bounds;
+		int index;
+		// the most specific bound found so far
+		Class<?> result;
+
+		BoundScan(Type type) {
+			this.type = type;
+			if (type instanceof WildcardType) {
+				bounds = ((WildcardType) type).getUpperBounds();
+			} else {
+				bounds = ((TypeVariable<?>) type).getBounds();
+			}
+		}
+
+		void offer(Class<?> cls, Class<?> targetType) {
+			if (targetType == null || targetType.isAssignableFrom(cls)) {
+				if (result == null || result.isAssignableFrom(cls)) {
+					result = cls;
+				}
+			}
 		}
+
+		Type getNarrowedType() {
+			return result != null ? result : type;
+		}
+	}
+
+	/**
+	 * Narrows the given type. The bounds of nested type variables and
+	 * wildcards are scanned with an explicit stack instead of recursion. Each
+	 * nested scan yields its most specific bound to the enclosing scan.
+	 */
+	private Type narrowType(Type aType, Class<?> targetType) {
 		aType = tryResolve(aType);
 		if (aType instanceof Class<?>) {
 			return (Class<?>) aType;
 		} else if (aType instanceof ParameterizedType) {
 			return ((ParameterizedType) aType).getRawType();
-		} else if (aType instanceof TypeVariable<?> || aType instanceof WildcardType) {
-			Type[] bounds;
-			if (aType instanceof WildcardType) {
-				bounds = ((WildcardType) aType).getUpperBounds();
+		} else if (!(aType instanceof TypeVariable<?>) && !(aType instanceof WildcardType)) {
+			throw new IllegalStateException("Not Supported: " + aType.getClass());
+		}
+		ArrayDeque<BoundScan> enclosingScans = new ArrayDeque<BoundScan>();
+		BoundScan scan = new BoundScan(aType);
+		while (true) {
+			if (scan.index < scan.bounds.length) {
+				Type bound = tryResolve(scan.bounds[scan.index++]);
+				if (bound instanceof TypeVariable<?> || bound instanceof WildcardType) {
+					enclosingScans.push(scan);
+					scan = new BoundScan(bound);
+				} else if (bound instanceof ParameterizedType) {
+					scan.offer((Class<?>) ((ParameterizedType) bound).getRawType(), targetType);
+				} else if (bound instanceof Class<?>) {
+					scan.offer((Class<?>) bound, targetType);
+				} else {
+					throw new IllegalStateException("Not Supported: " + bound.getClass());
+				}
 			} else {
-				bounds = ((TypeVariable<?>) aType).getBounds();
-			}
-			Class<?> result = null;
-			for (Type bound : bounds) {
-				if (bound instanceof TypeVariable<?>) {
-					Type resolvedBound = tryResolve((TypeVariable<?>) bound);
-					if (resolvedBound != null) {
-						bound = resolvedBound;
-					}
+				Type narrowed = scan.getNarrowedType();
+				if (enclosingScans.isEmpty()) {
+					return narrowed;
 				}
-				bound = narrow(bound, targetType);
-				if (bound instanceof Class<?>) {
-					Class<?> cls = (Class<?>) bound;
-					if (targetType != null) {
-						if (targetType.isAssignableFrom(cls)) {
-							if (result == null || (result != null && result.isAssignableFrom(cls))) {
-								result = cls;
-							}
-						}
-					} else {
-						if (result == null || result.isAssignableFrom(cls)) {
-							result = cls;
-						}
-					}
+				scan = enclosingScans.pop();
+				if (narrowed instanceof Class<?>) {
+					scan.offer((Class<?>) narrowed, targetType);
 				}
 			}
-			if (result != null) {
-				return result;
-			} else {
-				return aType;
-			}
-		} else {
-			throw new IllegalStateException("Not Supported: " + aType.getClass());
 		}
 	}
 
 	/**
 	 * Resolves the variable mapping for the given type variable in the given
 	 * class (or its superclass hierarchy).
+	 * <p>
+	 * Only supertypes that are assignable to the declaring class of the
+	 * variable are entered, and the first one entered always leads to it. So
+	 * the walk is a single path up the hierarchy, which is followed in a loop.
+	 * Each class is visited at most once, even in a lattice of interface
+	 * diamonds, and the depth of the hierarchy is not limited by the call
+	 * stack.
+	 * </p>
 	 * 
 	 * @param var
 	 * @param inClass
 	 * @param currentMapping
-	 * @return
+	 * @return the mapping that is valid inside the declaring class of the
+	 *         variable, or <code>null</code> if the variable does not
+	 *         parameterize the given class
 	 */
 	private static VariableMapping resolveTypeVariableInClass(TypeVariable<?> var, Class<?> inClass,
-			final VariableMapping currentMapping) {
+			VariableMapping currentMapping) {
 		assertThatTypeVariableDoesParameterizeAClass(var);
 		Class<?> parameterizedClass = (Class<?>) var.getGenericDeclaration();
-		// Break-Condition 1
-		if (parameterizedClass.equals(inClass)) {
-			return currentMapping;
-		}
-
-		// if the parameterized class is a super type of forClass
-		if (parameterizedClass.isAssignableFrom(inClass)) {
-			// process Superclass
-			{
-				Type inSuperType = inClass.getGenericSuperclass();
-				if (inSuperType != null && isAssignableFrom(parameterizedClass, inSuperType)) {
-					VariableMapping result = resolveTypeVariableInType(var, inSuperType, currentMapping);
-					if (result != null) {
-						return result;
-					}
-				}
+		for (int depth = 0;; depth++) {
+			Resolution.nodeVisited();
+			// Break-Condition 1
+			if (parameterizedClass.equals(inClass)) {
+				Resolution.depthReached(depth);
+				return currentMapping;
 			}
-
-			// process Superinterfaces
-			Type[] superInterfaceTypes = inClass.getGenericInterfaces();
-			for (Type inSuperType : superInterfaceTypes) {
-				if (isAssignableFrom(parameterizedClass, inSuperType)) {
-					VariableMapping result = resolveTypeVariableInType(var, inSuperType, currentMapping);
-					if (result != null) {
-						return result;
-					}
-				}
+			// Break-Condition 2
+			// the given variable does not parameterize the given class
+			SupertypeClosure closure = SupertypeClosure.of(inClass);
+			if (!closure.contains(parameterizedClass)) {
+				return null;
+			}
+			// the superclass first, then the superinterfaces
+			int i = 0;
+			while (!closure.superClosures[i].contains(parameterizedClass)) {
+				i++;
+			}
+			Type superType = closure.superTypes[i];
+			if (superType instanceof ParameterizedType) {
+				ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
+				currentMapping = new VariableMapping(currentMapping, parameterizedSuperType);
+				inClass = (Class<?>) parameterizedSuperType.getRawType();
+			} else {
+				inClass = (Class<?>) superType;
 			}
 		}
-		// Break-Condition 2
-		// the given variable does not parameterize the given class
-		return null;
 	}
 
 	private static void assertThatTypeVariableDoesParameterizeAClass(TypeVariable<?> var) {
@@ -354,195 +1186,120 @@ public class GenericType {
 		}
 	}
 
-	private static VariableMapping resolveTypeVariableInParameterizedType(TypeVariable<?> var,
-			ParameterizedType inParameterizedType, VariableMapping currentMapping) {
-		assertThatTypeVariableDoesParameterizeAClass(var);
-		currentMapping = new VariableMapping(currentMapping, inParameterizedType);
-		Class<?> inClass = (Class<?>) inParameterizedType.getRawType();
-		return resolveTypeVariableInClass(var, inClass, currentMapping);
-	}
-
-	private static boolean isAssignableFrom(Class<?> aClass, Type aType) {
-		if (aType == null) {
-			return false;
-		}
-		if (aType instanceof Class<?>) {
-			return aClass.isAssignableFrom((Class<?>) aType);
-		} else if (aType instanceof ParameterizedType) {
-			return aClass.isAssignableFrom((Class<?>) ((ParameterizedType) aType).getRawType());
-		} else {
-			throw new UnsupportedOperationException("aType=" + aType.getClass().getName());
+	private static GenericType getFieldType(VariableMapping currentMapping, Class<?> startClass, String fieldname) {
+		FieldIndex index = FieldIndex.of(startClass);
+		FieldIndex.Entry entry = index.get(fieldname); // e.g. BClass<String, Integer> bObject;
+		if (entry == null) {
+			// field not found
+			return null;
 		}
-	}
-
-	private static VariableMapping resolveTypeVariableInType(TypeVariable<?> var, Type inType,
-			final VariableMapping currentMapping) throws AssertionError {
-		assertThatTypeVariableDoesParameterizeAClass(var);
-		if (inType instanceof Class<?>) {
-			VariableMapping result = resolveTypeVariableInClass(var, (Class<?>) inType, currentMapping);
-			return result;
-		} else if (inType instanceof ParameterizedType) {
-			ParameterizedType inParameterizedType = (ParameterizedType) inType;
-			VariableMapping result = resolveTypeVariableInParameterizedType(var, inParameterizedType, currentMapping);
-			return result;
-		} else {
-			throw new AssertionError("Unexpected type: " + inType);
+		// the field type only depends on the class if there is no outer mapping
+		boolean cacheable = currentMapping.isEmpty() && TYPE_PARAMETER_CACHE.isEnabled();
+		if (cacheable) {
+			ResolutionCache.Memo<GenericType> memo = entry.unboundType;
+			GenericType memoized = memo == null ? null : memo.get();
+			Resolution.cacheLookup(memoized != null);
+			if (memoized != null) {
+				return memoized;
+			}
 		}
-	}
-
-	private static GenericType getFieldType(VariableMapping currentMapping, Class<?> startClass, String fieldname) {
-		Type type = null;
-		Field field = null; // e.g. BClass<String, Integer> bObject;
-		{
-			Class<?> ownerClass = startClass;
-			findfield: while (true) {
-				Field[] fields = ownerClass.getDeclaredFields();
-				for (Field f : fields) {
-					if (f.getName().equals(fieldname)) {
-						field = f;
-						break findfield;
-					}
-				}
-				// field not found so far
-				// -> search superclass
-				Type superType = ownerClass.getGenericSuperclass();
-				if (superType instanceof ParameterizedType) {
-					ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
-					currentMapping = new VariableMapping(currentMapping, parameterizedSuperType);
-					ownerClass = (Class<?>) parameterizedSuperType.getRawType();
-				} else if (superType instanceof Class<?>) {
-					ownerClass = (Class<?>) superType;
-				} else {
-					throw new IllegalStateException();
+		if (currentMapping.isEmpty()) {
+			Class<?> precomputed = ResolutionTable.of(startClass).getFieldType(fieldname);
+			if (precomputed != null) {
+				GenericType result = new GenericType(precomputed);
+				if (cacheable) {
+					entry.unboundType = ResolutionCache.memo(result);
 				}
+				return result;
 			}
 		}
-
-		type = field.getGenericType(); // e.g. BClass<String, Integer>
-
-		return getGenericType(currentMapping, type);
+		Resolution.depthReached(entry.depth);
+		currentMapping = index.getMapping(currentMapping, entry);
+		GenericType result = getGenericType(currentMapping, entry.genericType); // e.g. BClass<String, Integer>
+		if (cacheable) {
+			entry.unboundType = ResolutionCache.memo(result);
+		}
+		return result;
 	}
 
 	private static GenericType getMethodReturnType(VariableMapping currentMapping, Class<?> startClass,
-			String methodName) {
-		Type type = null;
-		Method method = null;
-		{
-			Class<?> ownerClass = startClass;
-			findmethod: while (true) {
-				Method[] methods = ownerClass.getDeclaredMethods();
-				// List<Method> ma = toList(methods);
-				// Collections.reverse(ma);
-				// methods = ma.toArray(new Method[]{});
-				for (Method m : methods) {
-					if (m.getName().equals(methodName)
-							&& (m.getParameterTypes() == null || m.getParameterTypes().length == 0)) {
-						if (method == null || isMoreSpecific(m, method)) {
-							method = m;
-						}
-					}
-				}
-				if (method != null) {
-					break findmethod;
-				}
-				// method not found so far.
-				// -> search superclass
-				Type superType = ownerClass.getGenericSuperclass();
-				if (superType == null) {
-					// method not found
-					throw new IllegalArgumentException(String.format("Method %s() not found in type %s!", methodName,
-							startClass));
-				} else if (superType instanceof ParameterizedType) {
-					ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
-					currentMapping = new VariableMapping(currentMapping, parameterizedSuperType);
-					ownerClass = (Class<?>) parameterizedSuperType.getRawType();
-				} else if (superType instanceof Class<?>) {
-					ownerClass = (Class<?>) superType;
-				} else {
-					throw new IllegalStateException(String.format("%s", superType));
+			String methodName, Class<?>[] parameterTypes) {
+		MethodIndex index = MethodIndex.of(startClass);
+		MethodIndex.Entry entry = index.get(methodName, parameterTypes);
+		if (entry == null) {
+			// method not found
+			return null;
+		}
+		// the return type only depends on the class if there is no outer mapping
+		boolean cacheable = currentMapping.isEmpty() && TYPE_PARAMETER_CACHE.isEnabled();
+		if (cacheable) {
+			ResolutionCache.Memo<GenericType> memo = entry.unboundReturnType;
+			GenericType memoized = memo == null ? null : memo.get();
+			Resolution.cacheLookup(memoized != null);
+			if (memoized != null) {
+				return memoized;
+			}
+		}
+		if (currentMapping.isEmpty() && parameterTypes.length == 0) {
+			Class<?> precomputed = ResolutionTable.of(startClass).getMethodReturnType(methodName);
+			if (precomputed != null) {
+				GenericType result = new GenericType(precomputed);
+				if (cacheable) {
+					entry.unboundReturnType = ResolutionCache.memo(result);
 				}
+				return result;
 			}
 		}
-
-		type = method.getGenericReturnType();
-
-		return getGenericType(currentMapping, type);
-	}
-
-	private static <T> List<T> toList(T... objs) {
-		List<T> result = new ArrayList<T>(objs.length);
-		for (T obj : objs) {
-			result.add(obj);
+		Resolution.depthReached(entry.path.length);
+		currentMapping = index.getMapping(currentMapping, entry);
+		GenericType result = getGenericType(currentMapping, entry.genericReturnType);
+		if (cacheable) {
+			entry.unboundReturnType = ResolutionCache.memo(result);
 		}
 		return result;
 	}
 
-	/**
-	 * Returns <code>true</code> if method1 is more specific than method2.
-	 * <p>
-	 * The informal intuition is that one method is more specific than another
-	 * if any invocation handled by the first method could be passed on to the
-	 * other one without a compile-time type error. More precisely, if the
-	 * parameter types of method1 are M1[1] to M1[n] and parameter types of
-	 * method2 are M2[1] to M2[n] method1 is more specific then method2 if M1[j]
-	 * can be converted to M2[j] for all j from 1 to n by method invocation
-	 * conversion.
-	 * 
-	 * @param method1
-	 * @param method2
-	 * @return <code>true</code> if method m is more specific that the other
-	 *         method
-	 * @see <pre>
-	 * <a
-	 *      href="http://docs.oracle.com/javase/specs/jls/se7/html/jls-15.html#jls-15.12">The Java Language Specification (JLS) in section 15.12 Method Invocation Expression</a>
-	 * </pre>
-	 */
-	private static boolean isMoreSpecific(Method method1, Method method2) {
-		if (namesAreEqual(method1, method2) && returnTypeIsConvertible(method1, method2)
-				&& parameterTypesAreConvertible(method1, method2)) {
-			return true;
-		} else {
-			return false;
-		}
-	}
-
-	private static boolean parameterTypesAreConvertible(Method method1, Method method2) {
-		Class<?>[] p1 = method1.getParameterTypes();
-		Class<?>[] p2 = method2.getParameterTypes();
-		if (p1.length != p2.length) {
-			// TODO check if we have to allow unequal parameter numbers, e.g.
-			// when using ellipsis
-			return false;
+	private static List<GenericType> getMethodParameterTypes(VariableMapping currentMapping, Class<?> startClass,
+			String methodName, Class<?>[] parameterTypes) {
+		MethodIndex index = MethodIndex.of(startClass);
+		MethodIndex.Entry entry = index.get(methodName, parameterTypes);
+		if (entry == null) {
+			// method not found
+			return null;
 		}
-		int len = p1.length;
-		for (int i = 0; i < len; ++i) {
-			if (!isConvertible(p1[i], p2[i])) {
-				return false;
+		// the parameter types only depend on the class if there is no outer
+		// mapping
+		boolean cacheable = currentMapping.isEmpty() && TYPE_PARAMETER_CACHE.isEnabled();
+		if (cacheable) {
+			ResolutionCache.Memo<List<GenericType>> memo = entry.unboundParameterTypes;
+			List<GenericType> memoized = memo == null ? null : memo.get();
+			Resolution.cacheLookup(memoized != null);
+			if (memoized != null) {
+				return memoized;
 			}
 		}
-		return true;
-	}
-
-	/**
-	 * Returns <code>true</code> if type1 is convertible to type2.
-	 * 
-	 * @param type1
-	 * @param type2
-	 * @return <code>true</code> if type1 is convertible to type2
-	 */
-	private static boolean isConvertible(Class<?> type1, Class<?> type2) {
-		return type2.isAssignableFrom(type1);
-	}
-
-	private static boolean returnTypeIsConvertible(Method method1, Method method2) {
-		return isConvertible(method1.getReturnType(), method2.getReturnType());
+		Resolution.depthReached(entry.path.length);
+		currentMapping = index.getMapping(currentMapping, entry);
+		GenericType[] types = new GenericType[entry.genericParameterTypes.length];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = getGenericType(currentMapping, entry.genericParameterTypes[i]);
+		}
+		List<GenericType> result = Collections.unmodifiableList(Arrays.asList(types));
+		if (cacheable) {
+			entry.unboundParameterTypes = ResolutionCache.memo(result);
+		}
+		return result;
 	}
 
-	private static boolean namesAreEqual(Method method1, Method method2) {
-		return method1.getName().equals(method2.getName());
+	private static <T> List<T> toList(T... objs) {
+		List<T> result = new ArrayList<T>(objs.length);
+		for (T obj : objs) {
+			result.add(obj);
+		}
+		return result;
 	}
 
-	private static GenericType getGenericType(VariableMapping currentMapping, Type type) {
+	static GenericType getGenericType(VariableMapping currentMapping, Type type) {
 		// try to resolve type
 		if (type == null) {
 			throw new IllegalArgumentException("Type must not be null!");
@@ -556,6 +1313,11 @@ public class GenericType {
 		} else if (type instanceof Class<?>) {
 			return new GenericType(currentMapping, (Class) type);
 		} else if (type instanceof TypeVariable<?>) {
+			Type resolvedType = currentMapping.tryResolve((TypeVariable<?>) type);
+			if (resolvedType instanceof ParameterizedType && currentMapping.canMap((ParameterizedType) resolvedType)) {
+				// e.g. E => List<X>, so that the value of X is known in List<X>
+				return getGenericType(currentMapping, resolvedType);
+			}
 			return new GenericType(currentMapping, (TypeVariable<?>) type);
 		} else {
 			throw new IllegalStateException("Type not supported so far: " + type.getClass().getName());
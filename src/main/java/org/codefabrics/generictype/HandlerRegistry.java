@@ -0,0 +1,197 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link HandlerRegistry} dispatches arguments to the implementations of a
+ * generic interface by the actual value of one of its type parameters.
+ * <p>
+ * Example: with a registry for the variable <code>E</code> of
+ * <code>Handler&lt;E&gt;</code>, a handler implementing
+ * <code>Handler&lt;Number&gt;</code> is registered for <code>Number</code>
+ * and is returned for the argument classes <code>Number</code>,
+ * <code>Integer</code>, <code>Double</code> and so on.
+ * </p>
+ * <p>
+ * The type parameter of each handler is resolved once at registration. The
+ * handlers for an argument class are collected on the first dispatch of that
+ * class and are kept in a {@link ClassValue}, so each further dispatch is a
+ * single lookup without any reflection. Registering a handler invalidates the
+ * collected handlers of all classes; they are collected again lazily, on the
+ * next dispatch of each class.
+ * </p>
+ *
+ * @param <H>
+ *            the type of the handlers
+ * @author Michael Karneim
+ */
+public final class HandlerRegistry<H> {
+	private final TypeVariable<? extends Class<?>> variable;
+	private final Class<?> handlerInterface;
+	// the registered handlers by the value of the variable, in registration
+	// order
+	private final Map<Class<?>, List<H>> handlersByType = new LinkedHashMap<Class<?>, List<H>>();
+	// incremented by each registration, which invalidates the dispatch table
+	private volatile int generation;
+	private final ClassValue<Dispatch<H>> dispatchTable = new ClassValue<Dispatch<H>>() {
+		@Override
+		protected Dispatch<H> computeValue(Class<?> type) {
+			return collectHandlers(type);
+		}
+	};
+
+	/**
+	 * The handlers of an argument class, collected while the registry had the
+	 * given generation.
+	 */
+	private static final class Dispatch<H> {
+		final int generation;
+		final List<H> handlers;
+
+		Dispatch(int generation, List<H> handlers) {
+			this.generation = generation;
+			this.handlers = handlers;
+		}
+	}
+
+	/**
+	 * Creates an empty {@link HandlerRegistry} that dispatches by the value of
+	 * the given type variable.
+	 *
+	 * @param variable
+	 *            the type variable of the handler interface, e.g.
+	 *            <code>Handler.class.getTypeParameters()[0]</code>
+	 */
+	public HandlerRegistry(TypeVariable<? extends Class<?>> variable) {
+		this.variable = variable;
+		this.handlerInterface = variable.getGenericDeclaration();
+	}
+
+	/**
+	 * Returns the type variable this registry dispatches by.
+	 *
+	 * @return the type variable this registry dispatches by
+	 */
+	public TypeVariable<? extends Class<?>> getVariable() {
+		return variable;
+	}
+
+	/**
+	 * Registers the given handler for the value of the type variable in the
+	 * class of the handler. Registering a handler that is already registered
+	 * has no effect.
+	 *
+	 * @param handler
+	 * @return the class the handler has been registered for
+	 * @throws IllegalArgumentException
+	 *             if the handler does not implement the handler interface, or
+	 *             if the value of the type variable is not a class or a
+	 *             parameterized type
+	 */
+	public Class<?> register(H handler) throws IllegalArgumentException {
+		if (!handlerInterface.isInstance(handler)) {
+			throw new IllegalArgumentException(String.format("%s is not an instance of %s!", handler,
+					handlerInterface.getName()));
+		}
+		GenericType value = new GenericType(handler.getClass()).getTypeParameter(variable);
+		if (!value.isClass() && !value.isParameterizedType()) {
+			throw new IllegalArgumentException(String.format("%s is not resolved in %s, but %s!", variable,
+					handler.getClass().getName(), value.getType()));
+		}
+		Class<?> type = value.asClass();
+		synchronized (handlersByType) {
+			List<H> handlers = handlersByType.get(type);
+			if (handlers == null) {
+				handlers = new ArrayList<H>(1);
+				handlersByType.put(type, handlers);
+			}
+			if (!handlers.contains(handler)) {
+				handlers.add(handler);
+				generation++;
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Returns all handlers for the given argument class: first those
+	 * registered for the class itself, then those registered for its
+	 * superclasses and superinterfaces, nearest first.
+	 *
+	 * @param argumentType
+	 * @return the handlers for the given argument class, never
+	 *         <code>null</code>
+	 */
+	public List<H> getHandlers(Class<?> argumentType) {
+		Dispatch<H> result = dispatchTable.get(argumentType);
+		while (result.generation != generation) {
+			// collected before the last registration
+			dispatchTable.remove(argumentType);
+			result = dispatchTable.get(argumentType);
+		}
+		return result.handlers;
+	}
+
+	/**
+	 * Returns the most specific handler for the given argument class, or
+	 * <code>null</code> if there is none.
+	 *
+	 * @param argumentType
+	 * @return the most specific handler for the given argument class, or
+	 *         <code>null</code>
+	 */
+	public H getHandler(Class<?> argumentType) {
+		List<H> handlers = getHandlers(argumentType);
+		return handlers.isEmpty() ? null : handlers.get(0);
+	}
+
+	/**
+	 * Returns the handlers registered for the given argument class or its
+	 * supertypes, in breadth first order of the supertypes.
+	 */
+	private Dispatch<H> collectHandlers(Class<?> argumentType) {
+		List<H> result = new ArrayList<H>();
+		int collectedGeneration;
+		synchronized (handlersByType) {
+			collectedGeneration = generation;
+			ArrayDeque<Class<?>> queue = new ArrayDeque<Class<?>>();
+			Set<Class<?>> visited = new HashSet<Class<?>>();
+			queue.add(argumentType);
+			while (!queue.isEmpty()) {
+				Class<?> type = queue.remove();
+				if (!visited.add(type)) {
+					continue;
+				}
+				List<H> handlers = handlersByType.get(type);
+				if (handlers != null) {
+					result.addAll(handlers);
+				}
+				if (type.getSuperclass() != null) {
+					queue.add(type.getSuperclass());
+				}
+				Collections.addAll(queue, type.getInterfaces());
+				if (type.isInterface()) {
+					// interfaces are assignable to Object, too
+					queue.add(Object.class);
+				}
+			}
+		}
+		if (result.isEmpty()) {
+			return new Dispatch<H>(collectedGeneration, Collections.<H> emptyList());
+		}
+		return new Dispatch<H>(collectedGeneration, Collections.unmodifiableList(result));
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link MethodIndex} maps the signatures of all methods of a class, its
+ * superclasses and its superinterfaces to the method that is visible by that
+ * signature.
+ * <p>
+ * Methods declared by classes take precedence over methods declared by
+ * interfaces, and methods declared by subtypes take precedence over methods
+ * declared by their supertypes. Bridge methods are left out, so each signature
+ * maps to a method that declares the generic types of its parameters and its
+ * return type. If more than one type declares a method with the same
+ * signature, the one with the most specific return type is chosen, whatever
+ * its declaring type, so a covariant override in one superinterface wins over
+ * the method it narrows in another.
+ * </p>
+ * <p>
+ * The index is built once per class and is immutable afterwards.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+class MethodIndex {
+	private static final ClassValue<MethodIndex> INDEX = new ClassValue<MethodIndex>() {
+		@Override
+		protected MethodIndex computeValue(Class<?> type) {
+			return new MethodIndex(type);
+		}
+	};
+
+	static final Class<?>[] NO_PARAMETERS = new Class<?>[0];
+
+	private static final ParameterizedType[] NO_PATH = new ParameterizedType[0];
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	/**
+	 * Returns the {@link MethodIndex} of the given class.
+	 *
+	 * @param cls
+	 * @return the {@link MethodIndex} of the given class
+	 */
+	public static MethodIndex of(Class<?> cls) {
+		return INDEX.get(cls);
+	}
+
+	private final Map<String, Entry[]> entries = new HashMap<String, Entry[]>();
+
+	private MethodIndex(Class<?> startClass) {
+		Map<String, List<Entry>> candidates = new HashMap<String, List<Entry>>();
+		// process the superclass chain
+		List<ParameterizedType[]> paths = new ArrayList<ParameterizedType[]>();
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		ParameterizedType[] path = NO_PATH;
+		Class<?> ownerClass = startClass;
+		while (ownerClass != null) {
+			classes.add(ownerClass);
+			paths.add(path);
+			addDeclaredMethods(candidates, ownerClass, path);
+			Type superType = TypeBackend.get().getGenericSuperclass(ownerClass);
+			if (superType instanceof ParameterizedType) {
+				ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
+				path = append(path, parameterizedSuperType);
+				ownerClass = (Class<?>) parameterizedSuperType.getRawType();
+			} else {
+				ownerClass = (Class<?>) superType;
+			}
+		}
+		// process the superinterfaces
+		Set<Class<?>> visited = new HashSet<Class<?>>();
+		for (int i = 0; i < classes.size(); i++) {
+			addInterfaceMethods(candidates, classes.get(i), paths.get(i), visited);
+		}
+		for (Map.Entry<String, List<Entry>> e : candidates.entrySet()) {
+			entries.put(e.getKey(), e.getValue().toArray(new Entry[e.getValue().size()]));
+		}
+	}
+
+	/**
+	 * Adds the methods of the superinterfaces of the given class depth first,
+	 * with an explicit stack instead of recursion.
+	 */
+	private static void addInterfaceMethods(Map<String, List<Entry>> candidates, Class<?> startClass,
+			ParameterizedType[] startPath, Set<Class<?>> visited) {
+		ArrayDeque<Class<?>> classes = new ArrayDeque<Class<?>>();
+		ArrayDeque<ParameterizedType[]> paths = new ArrayDeque<ParameterizedType[]>();
+		pushInterfaces(classes, paths, startClass, startPath);
+		while (!classes.isEmpty()) {
+			Class<?> superInterface = classes.pop();
+			ParameterizedType[] superPath = paths.pop();
+			if (visited.add(superInterface)) {
+				addDeclaredMethods(candidates, superInterface, superPath);
+				pushInterfaces(classes, paths, superInterface, superPath);
+			}
+		}
+	}
+
+	/**
+	 * Pushes the superinterfaces of the given class in reverse order, so that
+	 * the first one is popped first.
+	 */
+	private static void pushInterfaces(ArrayDeque<Class<?>> classes, ArrayDeque<ParameterizedType[]> paths,
+			Class<?> ownerClass, ParameterizedType[] path) {
+		Type[] superInterfaceTypes = TypeBackend.get().getGenericInterfaces(ownerClass);
+		for (int i = superInterfaceTypes.length - 1; i >= 0; i--) {
+			Type superInterfaceType = superInterfaceTypes[i];
+			if (superInterfaceType instanceof ParameterizedType) {
+				ParameterizedType parameterizedSuperType = (ParameterizedType) superInterfaceType;
+				classes.push((Class<?>) parameterizedSuperType.getRawType());
+				paths.push(append(path, parameterizedSuperType));
+			} else {
+				classes.push((Class<?>) superInterfaceType);
+				paths.push(path);
+			}
+		}
+	}
+
+	private static void addDeclaredMethods(Map<String, List<Entry>> candidates, Class<?> ownerClass,
+			ParameterizedType[] path) {
+		for (Method m : ownerClass.getDeclaredMethods()) {
+			if (m.isBridge()) {
+				// a bridge method has the erased signature of the method it
+				// overrides, whose generic signature is found in a supertype
+				continue;
+			}
+			Entry entry = new Entry(m, path);
+			List<Entry> overloads = candidates.get(m.getName());
+			if (overloads == null) {
+				overloads = new ArrayList<Entry>(1);
+				candidates.put(m.getName(), overloads);
+			}
+			int index = indexOf(overloads, entry.parameterTypes);
+			if (index < 0) {
+				overloads.add(entry);
+			} else {
+				Entry other = overloads.get(index);
+				if (hasMoreSpecificReturnType(m, other.method)) {
+					overloads.set(index, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the return type of method1 is a proper
+	 * subtype of the return type of method2, i.e. if method1 is a covariant
+	 * override of method2.
+	 */
+	private static boolean hasMoreSpecificReturnType(Method method1, Method method2) {
+		Class<?> returnType1 = method1.getReturnType();
+		Class<?> returnType2 = method2.getReturnType();
+		return returnType1 != returnType2 && returnType2.isAssignableFrom(returnType1);
+	}
+
+	private static int indexOf(List<Entry> overloads, Class<?>[] parameterTypes) {
+		for (int i = 0; i < overloads.size(); i++) {
+			if (Arrays.equals(overloads.get(i).parameterTypes, parameterTypes)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static ParameterizedType[] append(ParameterizedType[] path, ParameterizedType type) {
+		ParameterizedType[] result = Arrays.copyOf(path, path.length + 1);
+		result[path.length] = type;
+		return result;
+	}
+
+	/**
+	 * Returns the entry of the method with the given name and the given
+	 * parameter types, or <code>null</code> if there is no such method.
+	 *
+	 * @param methodName
+	 * @param parameterTypes
+	 * @return the entry of the method with the given signature
+	 */
+	public Entry get(String methodName, Class<?>... parameterTypes) {
+		Entry[] overloads = entries.get(methodName);
+		if (overloads == null) {
+			overloads = NO_ENTRIES;
+		}
+		for (Entry entry : overloads) {
+			if (Arrays.equals(entry.parameterTypes, parameterTypes)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the names of all methods of the indexed class and its
+	 * supertypes.
+	 *
+	 * @return the names of all methods
+	 */
+	public Set<String> getMethodNames() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * Returns the mapping that is valid inside the type declaring the method of
+	 * the given entry.
+	 *
+	 * @param currentMapping
+	 *            the mapping that is valid inside the indexed class
+	 * @param entry
+	 * @return the mapping that is valid inside the declaring type
+	 */
+	public VariableMapping getMapping(VariableMapping currentMapping, Entry entry) {
+		for (ParameterizedType superType : entry.path) {
+			currentMapping = new VariableMapping(currentMapping, superType);
+		}
+		return currentMapping;
+	}
+
+	/**
+	 * An {@link Entry} describes a method and the parameterized supertypes on
+	 * the way from the indexed class to the type declaring it.
+	 */
+	static class Entry {
+		final Method method;
+		final Class<?>[] parameterTypes;
+		final Type genericReturnType;
+		final Type[] genericParameterTypes;
+		final ParameterizedType[] path;
+		// the return type resolved with an empty start mapping
+		volatile ResolutionCache.Memo<GenericType> unboundReturnType;
+		// the parameter types resolved with an empty start mapping
+		volatile ResolutionCache.Memo<List<GenericType>> unboundParameterTypes;
+
+		Entry(Method method, ParameterizedType[] path) {
+			this.method = method;
+			this.parameterTypes = method.getParameterTypes();
+			TypeBackend backend = TypeBackend.get();
+			this.genericReturnType = backend.getGenericReturnType(method);
+			this.genericParameterTypes = backend.getGenericParameterTypes(method);
+			this.path = path;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link PropertyPath} is a chain of field, method and type parameter steps
+ * that has been resolved against a root {@link GenericType}.
+ * <p>
+ * The path is resolved once when it is compiled. A {@link PropertyPath} is
+ * immutable and can be shared between threads, and all its accessors return
+ * in constant time.
+ * </p>
+ * <p>
+ * The textual form of a path is a dotted list of steps:
+ * <ul>
+ * <li><code>name</code> denotes the field with this name, or if there is no
+ * such field, the getter <code>getName()</code> or <code>isName()</code>,</li>
+ * <li><code>name()</code> denotes the method with this name having no
+ * parameters,</li>
+ * <li><code>&lt;E&gt;</code> denotes the type parameter with this name of the
+ * current type or of one of its super types.</li>
+ * </ul>
+ * For example <code>owner.items.&lt;E&gt;</code> resolves the element type of
+ * the collection <code>items</code> of the field <code>owner</code>.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class PropertyPath {
+	private final GenericType root;
+	private final String path;
+	private final GenericType genericType;
+
+	private PropertyPath(GenericType root, String path, GenericType genericType) {
+		this.root = root;
+		this.path = path;
+		this.genericType = genericType;
+	}
+
+	/**
+	 * Compiles the given path against the given root type.
+	 *
+	 * @param root
+	 * @param path
+	 *            a dotted list of steps, or an empty string
+	 * @return the compiled path
+	 * @throws IllegalArgumentException
+	 *             if a step of the path can't be resolved
+	 */
+	static PropertyPath compile(GenericType root, String path) throws IllegalArgumentException {
+		if (path == null) {
+			throw new IllegalArgumentException("Path must not be null!");
+		}
+		PropertyPath result = new PropertyPath(root, "", root);
+		if (path.length() > 0) {
+			for (String step : path.split("\\.", -1)) {
+				result = result.then(step);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the type this path has been compiled against.
+	 *
+	 * @return the type this path has been compiled against
+	 */
+	public GenericType getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the textual form of this path.
+	 *
+	 * @return the textual form of this path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the resolved type at the end of this path as a
+	 * {@link GenericType}.
+	 *
+	 * @return the resolved type at the end of this path
+	 */
+	public GenericType getGenericType() {
+		return genericType;
+	}
+
+	/**
+	 * Returns the resolved type at the end of this path.
+	 *
+	 * @return the resolved type at the end of this path
+	 */
+	public Type getType() {
+		return genericType.getType();
+	}
+
+	/**
+	 * Returns a new {@link PropertyPath} that extends this path by the given
+	 * step.
+	 *
+	 * @param step
+	 *            a single step in textual form
+	 * @return the extended path
+	 * @throws IllegalArgumentException
+	 *             if the step can't be resolved
+	 */
+	public PropertyPath then(String step) throws IllegalArgumentException {
+		if (step == null || step.length() == 0) {
+			throw new IllegalArgumentException(String.format("Empty step in path '%s'!", path));
+		}
+		GenericType next;
+		try {
+			if (step.startsWith("<") && step.endsWith(">")) {
+				String name = step.substring(1, step.length() - 1);
+				TypeVariable<? extends Class<?>> variable = findTypeParameter(genericType.asClass(), name);
+				if (variable == null) {
+					throw new IllegalArgumentException(String.format("No type parameter %s in type %s!", name,
+							genericType.getType()));
+				}
+				next = genericType.getTypeParameter(variable);
+			} else if (step.endsWith("()")) {
+				next = genericType.getMethodReturnType(step.substring(0, step.length() - 2));
+			} else {
+				next = getProperty(genericType, step);
+			}
+		} catch (RuntimeException ex) {
+			throw new IllegalArgumentException(String.format("Can't resolve step '%s' of path '%s' in %s!", step,
+					path, root.getType()), ex);
+		}
+		return new PropertyPath(root, concat(path, step), next);
+	}
+
+	/**
+	 * Returns a new {@link PropertyPath} that extends this path by the given
+	 * type parameter.
+	 *
+	 * @param variable
+	 *            must parameterize the type at the end of this path or one of
+	 *            it's super types
+	 * @return the extended path
+	 * @throws IllegalArgumentException
+	 *             if the variable does not parameterize the type at the end of
+	 *             this path
+	 */
+	public PropertyPath then(TypeVariable<? extends Class<?>> variable) throws IllegalArgumentException {
+		GenericType next = genericType.getTypeParameter(variable);
+		return new PropertyPath(root, concat(path, "<" + variable.getName() + ">"), next);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", root.getType(), path);
+	}
+
+	private static String concat(String path, String step) {
+		return path.length() == 0 ? step : path + "." + step;
+	}
+
+	private static GenericType getProperty(GenericType type, String name) {
+		GenericType result = type.findFieldType(name);
+		if (result != null) {
+			return result;
+		}
+		String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		result = type.findMethodReturnType("get" + suffix);
+		if (result != null) {
+			return result;
+		}
+		result = type.findMethodReturnType("is" + suffix);
+		if (result != null) {
+			return result;
+		}
+		throw new IllegalArgumentException(String.format("No field or getter for property %s in type %s!", name,
+				type.getType()));
+	}
+
+	/**
+	 * Returns the type parameter with the given name declared by the given
+	 * class or by the first of its super types declaring one. The super types
+	 * are searched depth first, the superclass before the superinterfaces,
+	 * with an explicit stack that visits each type only once.
+	 */
+	@SuppressWarnings("unchecked")
+	private static TypeVariable<? extends Class<?>> findTypeParameter(Class<?> cls, String name) {
+		ArrayDeque<Class<?>> classes = new ArrayDeque<Class<?>>();
+		Set<Class<?>> visited = new HashSet<Class<?>>();
+		classes.push(cls);
+		while (!classes.isEmpty()) {
+			Class<?> current = classes.pop();
+			if (!visited.add(current)) {
+				continue;
+			}
+			for (TypeVariable<?> var : current.getTypeParameters()) {
+				if (var.getName().equals(name)) {
+					return (TypeVariable<? extends Class<?>>) var;
+				}
+			}
+			// push in reverse order, so that the superclass is popped first
+			Type[] superInterfaceTypes = TypeBackend.get().getGenericInterfaces(current);
+			for (int i = superInterfaceTypes.length - 1; i >= 0; i--) {
+				classes.push(rawType(superInterfaceTypes[i]));
+			}
+			Type superType = TypeBackend.get().getGenericSuperclass(current);
+			if (superType != null) {
+				classes.push(rawType(superType));
+			}
+		}
+		return null;
+	}
+
+	private static Class<?> rawType(Type type) {
+		if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		return (Class<?>) type;
+	}
+}
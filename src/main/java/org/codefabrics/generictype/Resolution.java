@@ -0,0 +1,294 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * A {@link Resolution} describes a single resolution performed by a
+ * {@link GenericType}. It is passed to the registered
+ * {@link ResolutionListener}s when the resolution has finished.
+ * <p>
+ * Each thread reuses its own {@link Resolution} instance, so the values are
+ * only valid during the call of {@link ResolutionListener#resolved(Resolution)}.
+ * Resolutions that are started while another one is running in the same
+ * thread are counted as part of the outer one.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class Resolution {
+	/**
+	 * The kind of a {@link Resolution}.
+	 */
+	public enum Operation {
+		/** {@link GenericType#getTypeParameter(java.lang.reflect.TypeVariable)} */
+		TYPE_PARAMETER,
+		/** {@link GenericType#getFieldType(String)} */
+		FIELD_TYPE,
+		/** {@link GenericType#getMethodReturnType(String)} */
+		METHOD_RETURN_TYPE,
+		/** {@link GenericType#getMethodParameterTypes(String, Class...)} */
+		METHOD_PARAMETER_TYPES,
+		/** {@link GenericType#narrow(Type, Class)} */
+		NARROW,
+		/** {@link GenericType#isAssignable(Type, Type)} */
+		ASSIGNABLE
+	}
+
+	private static final ResolutionListener[] NO_LISTENERS = new ResolutionListener[0];
+
+	// true if at least one listener is registered
+	private static volatile boolean enabled;
+	private static volatile ResolutionListener[] listeners = NO_LISTENERS;
+
+	private static final ThreadLocal<Resolution> CURRENT = new ThreadLocal<Resolution>() {
+		@Override
+		protected Resolution initialValue() {
+			return new Resolution();
+		}
+	};
+
+	private boolean active;
+	private Operation operation;
+	private Type rootType;
+	private Object target;
+	private long startTime;
+	private long duration;
+	private int nodesVisited;
+	private int depth;
+	private int mappingsCreated;
+	private int cacheHits;
+	private int cacheMisses;
+
+	private Resolution() {
+	}
+
+	static synchronized void addListener(ResolutionListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null!");
+		}
+		ResolutionListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+		result[listeners.length] = listener;
+		listeners = result;
+		enabled = true;
+	}
+
+	static synchronized void removeListener(ResolutionListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				ResolutionListener[] result = new ResolutionListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, result, 0, i);
+				System.arraycopy(listeners, i + 1, result, i, result.length - i);
+				listeners = result;
+				enabled = result.length > 0;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Starts a resolution in the current thread. Returns <code>null</code> if
+	 * no listener is registered or if another resolution is already running
+	 * in the current thread.
+	 *
+	 * @param operation
+	 * @param rootType
+	 * @param target
+	 * @return the started resolution, or <code>null</code>
+	 */
+	static Resolution begin(Operation operation, Type rootType, Object target) {
+		if (!enabled) {
+			return null;
+		}
+		Resolution result = CURRENT.get();
+		if (result.active) {
+			return null;
+		}
+		result.active = true;
+		result.operation = operation;
+		result.rootType = rootType;
+		result.target = target;
+		result.nodesVisited = 0;
+		result.depth = 0;
+		result.mappingsCreated = 0;
+		result.cacheHits = 0;
+		result.cacheMisses = 0;
+		result.startTime = System.nanoTime();
+		return result;
+	}
+
+	/**
+	 * Finishes this resolution and notifies the listeners.
+	 */
+	void end() {
+		duration = System.nanoTime() - startTime;
+		try {
+			for (ResolutionListener listener : listeners) {
+				listener.resolved(this);
+			}
+		} finally {
+			active = false;
+			rootType = null;
+			target = null;
+		}
+	}
+
+	/**
+	 * Counts a node of the type hierarchy visited by the current resolution.
+	 */
+	static void nodeVisited() {
+		if (enabled) {
+			Resolution current = CURRENT.get();
+			if (current.active) {
+				current.nodesVisited++;
+			}
+		}
+	}
+
+	/**
+	 * Records that the current resolution has reached a supertype at the given
+	 * depth.
+	 *
+	 * @param depth
+	 *            the number of supertype hops from the root type
+	 */
+	static void depthReached(int depth) {
+		if (enabled) {
+			Resolution current = CURRENT.get();
+			if (current.active) {
+				current.depth = Math.max(current.depth, depth);
+			}
+		}
+	}
+
+	/**
+	 * Counts a {@link VariableMapping} created by the current resolution.
+	 */
+	static void mappingCreated() {
+		if (enabled) {
+			Resolution current = CURRENT.get();
+			if (current.active) {
+				current.mappingsCreated++;
+			}
+		}
+	}
+
+	/**
+	 * Counts a cache lookup of the current resolution.
+	 *
+	 * @param hit
+	 *            <code>true</code> if the lookup has found a result
+	 */
+	static void cacheLookup(boolean hit) {
+		if (enabled) {
+			Resolution current = CURRENT.get();
+			if (current.active) {
+				if (hit) {
+					current.cacheHits++;
+				} else {
+					current.cacheMisses++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the kind of this resolution.
+	 *
+	 * @return the kind of this resolution
+	 */
+	public Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Returns the type of the {@link GenericType} that performed this
+	 * resolution.
+	 *
+	 * @return the type of the resolving {@link GenericType}
+	 */
+	public Type getRootType() {
+		return rootType;
+	}
+
+	/**
+	 * Returns what has been resolved: the type variable, the field name, the
+	 * method name or the type to narrow.
+	 *
+	 * @return the target of this resolution
+	 */
+	public Object getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the duration of this resolution in nanoseconds.
+	 *
+	 * @return the duration in nanoseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the number of nodes of the type hierarchy visited by this
+	 * resolution.
+	 *
+	 * @return the number of visited nodes
+	 */
+	public int getNodesVisited() {
+		return nodesVisited;
+	}
+
+	/**
+	 * Returns the largest number of supertype hops from the root type that
+	 * this resolution has walked.
+	 *
+	 * @return the depth of the walked type hierarchy
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the number of {@link VariableMapping}s created by this
+	 * resolution.
+	 *
+	 * @return the number of created mappings
+	 */
+	public int getMappingsCreated() {
+		return mappingsCreated;
+	}
+
+	/**
+	 * Returns the number of cache lookups of this resolution that have found a
+	 * result.
+	 *
+	 * @return the number of cache hits
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Returns the number of cache lookups of this resolution that have not
+	 * found a result.
+	 *
+	 * @return the number of cache misses
+	 */
+	public int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s of %s in %s: %sns, %s nodes, depth %s, %s mappings, %s cache hits, %s cache misses", operation,
+				target, rootType, duration, nodesVisited, depth, mappingsCreated, cacheHits, cacheMisses);
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Member;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link ResolutionCache} memoizes resolution results by root class and
+ * key, e.g. the results of {@link GenericType#getTypeParameter} by root class
+ * and type variable.
+ * <p>
+ * The entries are attached to their root class by a {@link ClassValue}, so the
+ * cache does not prevent the root class from being unloaded. A lookup is a
+ * single {@link ClassValue} probe followed by a single hash probe and does not
+ * allocate.
+ * <p>
+ * A key must not refer to classes the root class can't see, otherwise the
+ * root class would keep them from being unloaded. For keys made of arbitrary
+ * types, {@link #findOwner(Type, Type)} returns a suitable root class.
+ * </p>
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the cached values
+ * @author Michael Karneim
+ */
+class ResolutionCache<K, V> {
+	// incremented by clearMemos(), which invalidates all memos
+	private static volatile int memoGeneration;
+
+	private volatile boolean enabled = true;
+	private volatile ClassValue<ConcurrentMap<K, V>> entries = newEntries();
+
+	private ClassValue<ConcurrentMap<K, V>> newEntries() {
+		return new ClassValue<ConcurrentMap<K, V>>() {
+			@Override
+			protected ConcurrentMap<K, V> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<K, V>(4);
+			}
+		};
+	}
+
+	/**
+	 * Returns <code>true</code> if this cache is enabled.
+	 *
+	 * @return <code>true</code> if this cache is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables this cache. Disabling the cache also removes all
+	 * cached entries.
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		entries = newEntries();
+	}
+
+	/**
+	 * Returns the value cached for the given key in the given root class, or
+	 * <code>null</code> if no value is cached.
+	 *
+	 * @param rootClass
+	 * @param key
+	 * @return the cached value or <code>null</code>
+	 */
+	public V get(Class<?> rootClass, K key) {
+		if (!enabled) {
+			return null;
+		}
+		return entries.get(rootClass).get(key);
+	}
+
+	/**
+	 * Caches the value for the given key in the given root class.
+	 *
+	 * @param rootClass
+	 * @param key
+	 * @param value
+	 * @return the value that is cached now, which is either the given value or
+	 *         the value cached concurrently by another thread
+	 */
+	public V put(Class<?> rootClass, K key, V value) {
+		if (!enabled) {
+			return value;
+		}
+		V old = entries.get(rootClass).putIfAbsent(key, value);
+		return old == null ? value : old;
+	}
+
+	/**
+	 * Returns a memo of the given value, which is valid until the next call of
+	 * {@link #clearMemos()}.
+	 *
+	 * @param value
+	 * @return the memo of the given value
+	 */
+	static <V> Memo<V> memo(V value) {
+		return new Memo<V>(memoGeneration, value);
+	}
+
+	/**
+	 * Invalidates all memos created so far.
+	 */
+	static synchronized void clearMemos() {
+		memoGeneration++;
+	}
+
+	/**
+	 * A {@link Memo} holds a resolution result in a field of an object that
+	 * lives as long as its class, e.g. an entry of a {@link FieldIndex}. Unlike
+	 * an entry of a {@link ResolutionCache}, it is read without any lookup.
+	 * Since such fields can't be reached when the caches are cleared, each
+	 * memo is only valid as long as no memos have been cleared since it was
+	 * created.
+	 *
+	 * @param <V>
+	 *            the type of the memoized value
+	 */
+	static final class Memo<V> {
+		private final int generation;
+		private final V value;
+
+		private Memo(int generation, V value) {
+			this.generation = generation;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the memoized value, or <code>null</code> if the memos have
+		 * been cleared since it was created.
+		 *
+		 * @return the memoized value, or <code>null</code>
+		 */
+		V get() {
+			return generation == memoGeneration ? value : null;
+		}
+	}
+
+	/**
+	 * Returns the class an entry keyed by the given types can be attached to:
+	 * a class whose class loader sees all classes the types refer to, so the
+	 * entry doesn't keep a class of another loader from being unloaded.
+	 * Returns <code>null</code> if the classes are defined by unrelated
+	 * loaders, in which case the entry must not be cached.
+	 *
+	 * @param type
+	 * @param other
+	 *            another type, or <code>null</code>
+	 * @return the class to attach the entry to, or <code>null</code>
+	 */
+	static Class<?> findOwner(Type type, Type other) {
+		Class<?> result = findOwner(Object.class, type);
+		if (result != null && other != null) {
+			result = findOwner(result, other);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the class among the given owner and the classes the given type
+	 * refers to whose loader sees all the others, or <code>null</code> if
+	 * there is none.
+	 */
+	private static Class<?> findOwner(Class<?> owner, Type type) {
+		if (type instanceof Class<?>) {
+			return select(owner, (Class<?>) type);
+		}
+		if (type instanceof ParameterizedType) {
+			ParameterizedType parameterizedType = (ParameterizedType) type;
+			Class<?> result = select(owner, (Class<?>) parameterizedType.getRawType());
+			for (Type argument : parameterizedType.getActualTypeArguments()) {
+				if (result == null) {
+					return null;
+				}
+				result = findOwner(result, argument);
+			}
+			// the owner type refers to enclosing classes of the raw type,
+			// which the raw type sees anyway
+			return result;
+		}
+		if (type instanceof GenericArrayType) {
+			return findOwner(owner, ((GenericArrayType) type).getGenericComponentType());
+		}
+		if (type instanceof WildcardType) {
+			WildcardType wildcardType = (WildcardType) type;
+			Class<?> result = owner;
+			for (Type bound : wildcardType.getUpperBounds()) {
+				if (result == null) {
+					return null;
+				}
+				result = findOwner(result, bound);
+			}
+			for (Type bound : wildcardType.getLowerBounds()) {
+				if (result == null) {
+					return null;
+				}
+				result = findOwner(result, bound);
+			}
+			return result;
+		}
+		if (type instanceof TypeVariable<?>) {
+			// the bounds are visible from the declaring class
+			GenericDeclaration declaration = ((TypeVariable<?>) type).getGenericDeclaration();
+			if (declaration instanceof Class<?>) {
+				return select(owner, (Class<?>) declaration);
+			}
+			return select(owner, ((Member) declaration).getDeclaringClass());
+		}
+		return null;
+	}
+
+	private static Class<?> select(Class<?> owner, Class<?> cls) {
+		if (isVisible(owner, cls)) {
+			return owner;
+		}
+		if (isVisible(cls, owner)) {
+			return cls;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given class is defined by the loader of
+	 * the given owner class or by one of its parents, so an entry attached to
+	 * the owner class may refer to it.
+	 *
+	 * @param owner
+	 * @param cls
+	 * @return <code>true</code> if the owner class sees the given class
+	 */
+	static boolean isVisible(Class<?> owner, Class<?> cls) {
+		ClassLoader loader = cls.getClassLoader();
+		if (loader == null) {
+			return true;
+		}
+		for (ClassLoader ownerLoader = owner.getClassLoader(); ownerLoader != null; ownerLoader = ownerLoader
+				.getParent()) {
+			if (ownerLoader == loader) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The Java Flight Recorder event emitted by the
+ * {@link FlightRecorderResolutionListener} for a slow or deep
+ * {@link Resolution}.
+ *
+ * @author Michael Karneim
+ */
+@Name(ResolutionEvent.NAME)
+@Label("Generic Type Resolution")
+@Category("GenericType")
+@Description("A type resolution that took longer or walked deeper than the configured threshold")
+class ResolutionEvent extends Event {
+	static final String NAME = "org.codefabrics.generictype.Resolution";
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Root Type")
+	@Description("The type of the resolving GenericType")
+	String rootType;
+
+	@Label("Target")
+	@Description("The type variable, field name, method name or type to narrow")
+	String target;
+
+	@Label("Resolution Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long resolutionTime;
+
+	@Label("Depth")
+	@Description("The largest number of supertype hops walked from the root type")
+	int depth;
+
+	@Label("Nodes Visited")
+	int nodesVisited;
+
+	@Label("Mappings Created")
+	@Description("The number of variable mappings allocated")
+	int mappingsCreated;
+}
@@ -0,0 +1,29 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+/**
+ * A {@link ResolutionListener} is notified after each resolution performed by
+ * a {@link GenericType}.
+ * <p>
+ * Listeners are registered with
+ * {@link GenericType#addResolutionListener(ResolutionListener)}. As long as no
+ * listener is registered, the resolutions are not instrumented at all.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public interface ResolutionListener {
+	/**
+	 * Is called in the resolving thread after a resolution has finished. The
+	 * given {@link Resolution} is only valid during this call and must not be
+	 * kept.
+	 *
+	 * @param resolution
+	 *            the statistics of the finished resolution
+	 */
+	void resolved(Resolution resolution);
+}
@@ -0,0 +1,204 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The {@link ResolutionMetrics} is a {@link ResolutionListener} that counts
+ * the resolutions performed by {@link GenericType} and records their latency
+ * histograms.
+ * <p>
+ * Use {@link #install()} to register it as listener and as a JMX MBean named
+ * {@value #OBJECT_NAME}.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public class ResolutionMetrics implements ResolutionListener, ResolutionMetricsMBean {
+	/** The name of the MBean registered by {@link #install()}. */
+	public static final String OBJECT_NAME = "org.codefabrics.generictype:type=ResolutionMetrics";
+
+	// the latency buckets are powers of 2 nanoseconds
+	private static final int BUCKETS = 64;
+
+	private final AtomicLong[] counts = new AtomicLong[Resolution.Operation.values().length];
+	private final AtomicLongArray[] histograms = new AtomicLongArray[Resolution.Operation.values().length];
+	private final AtomicLong nodesVisited = new AtomicLong();
+	private final AtomicLong mappingsCreated = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private ObjectName objectName;
+
+	/**
+	 * Creates a {@link ResolutionMetrics} that is neither registered as
+	 * listener nor as MBean.
+	 */
+	public ResolutionMetrics() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new AtomicLong();
+			histograms[i] = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	/**
+	 * Creates a {@link ResolutionMetrics}, registers it as
+	 * {@link ResolutionListener} and registers it as MBean at the platform
+	 * MBean server.
+	 *
+	 * @return the installed metrics
+	 * @throws IllegalStateException
+	 *             if the MBean can't be registered
+	 */
+	public static ResolutionMetrics install() throws IllegalStateException {
+		ResolutionMetrics result = new ResolutionMetrics();
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			server.registerMBean(result, name);
+			result.objectName = name;
+		} catch (JMException ex) {
+			throw new IllegalStateException(String.format("Can't register MBean %s", OBJECT_NAME), ex);
+		}
+		GenericType.addResolutionListener(result);
+		return result;
+	}
+
+	/**
+	 * Unregisters this {@link ResolutionMetrics} as {@link ResolutionListener}
+	 * and as MBean.
+	 *
+	 * @throws IllegalStateException
+	 *             if the MBean can't be unregistered
+	 */
+	public void uninstall() throws IllegalStateException {
+		GenericType.removeResolutionListener(this);
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+				objectName = null;
+			} catch (JMException ex) {
+				throw new IllegalStateException(String.format("Can't unregister MBean %s", objectName), ex);
+			}
+		}
+	}
+
+	public void resolved(Resolution resolution) {
+		int index = resolution.getOperation().ordinal();
+		counts[index].incrementAndGet();
+		histograms[index].incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(resolution.getDuration()));
+		if (resolution.getNodesVisited() > 0) {
+			nodesVisited.addAndGet(resolution.getNodesVisited());
+		}
+		if (resolution.getMappingsCreated() > 0) {
+			mappingsCreated.addAndGet(resolution.getMappingsCreated());
+		}
+		if (resolution.getCacheHits() > 0) {
+			cacheHits.addAndGet(resolution.getCacheHits());
+		}
+		if (resolution.getCacheMisses() > 0) {
+			cacheMisses.addAndGet(resolution.getCacheMisses());
+		}
+	}
+
+	public long getTypeParameterCount() {
+		return getCount(Resolution.Operation.TYPE_PARAMETER);
+	}
+
+	public long getFieldTypeCount() {
+		return getCount(Resolution.Operation.FIELD_TYPE);
+	}
+
+	public long getMethodReturnTypeCount() {
+		return getCount(Resolution.Operation.METHOD_RETURN_TYPE);
+	}
+
+	public long getMethodParameterTypesCount() {
+		return getCount(Resolution.Operation.METHOD_PARAMETER_TYPES);
+	}
+
+	public long getNarrowCount() {
+		return getCount(Resolution.Operation.NARROW);
+	}
+
+	public long getAssignableCount() {
+		return getCount(Resolution.Operation.ASSIGNABLE);
+	}
+
+	/**
+	 * Returns the number of resolutions of the given kind.
+	 *
+	 * @param operation
+	 * @return the number of resolutions of the given kind
+	 */
+	public long getCount(Resolution.Operation operation) {
+		return counts[operation.ordinal()].get();
+	}
+
+	public long getNodesVisited() {
+		return nodesVisited.get();
+	}
+
+	public long getMappingsCreated() {
+		return mappingsCreated.get();
+	}
+
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	public long[] getLatencyHistogram(String operation) {
+		AtomicLongArray histogram = histograms[Resolution.Operation.valueOf(operation).ordinal()];
+		long[] result = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	public long getLatencyPercentile(String operation, double percentile) {
+		long[] histogram = getLatencyHistogram(operation);
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(total * percentile / 100);
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			sum += histogram[i];
+			if (sum >= threshold && sum > 0) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public void reset() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i].set(0);
+			for (int k = 0; k < BUCKETS; k++) {
+				histograms[i].set(k, 0);
+			}
+		}
+		nodesVisited.set(0);
+		mappingsCreated.set(0);
+		cacheHits.set(0);
+		cacheMisses.set(0);
+	}
+}
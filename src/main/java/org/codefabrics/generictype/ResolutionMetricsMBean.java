@@ -0,0 +1,119 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+/**
+ * The management interface of {@link ResolutionMetrics}.
+ *
+ * @author Michael Karneim
+ */
+public interface ResolutionMetricsMBean {
+	/**
+	 * Returns the number of resolved type parameters.
+	 *
+	 * @return the number of calls of
+	 *         {@link GenericType#getTypeParameter(java.lang.reflect.TypeVariable)}
+	 */
+	long getTypeParameterCount();
+
+	/**
+	 * Returns the number of resolved field types.
+	 *
+	 * @return the number of calls of {@link GenericType#getFieldType(String)}
+	 */
+	long getFieldTypeCount();
+
+	/**
+	 * Returns the number of resolved method return types.
+	 *
+	 * @return the number of calls of
+	 *         {@link GenericType#getMethodReturnType(String)}
+	 */
+	long getMethodReturnTypeCount();
+
+	/**
+	 * Returns the number of resolved method parameter types.
+	 *
+	 * @return the number of calls of
+	 *         {@link GenericType#getMethodParameterTypes(String, Class...)}
+	 */
+	long getMethodParameterTypesCount();
+
+	/**
+	 * Returns the number of narrowed types.
+	 *
+	 * @return the number of calls of
+	 *         {@link GenericType#narrow(java.lang.reflect.Type, Class)}
+	 */
+	long getNarrowCount();
+
+	/**
+	 * Returns the number of assignability checks.
+	 *
+	 * @return the number of calls of
+	 *         {@link GenericType#isAssignable(java.lang.reflect.Type, java.lang.reflect.Type)}
+	 */
+	long getAssignableCount();
+
+	/**
+	 * Returns the total number of nodes of the type hierarchy visited by all
+	 * resolutions.
+	 *
+	 * @return the total number of visited nodes
+	 */
+	long getNodesVisited();
+
+	/**
+	 * Returns the total number of variable mappings created by all
+	 * resolutions.
+	 *
+	 * @return the total number of created mappings
+	 */
+	long getMappingsCreated();
+
+	/**
+	 * Returns the total number of cache lookups that have found a result.
+	 *
+	 * @return the total number of cache hits
+	 */
+	long getCacheHits();
+
+	/**
+	 * Returns the total number of cache lookups that have not found a result.
+	 *
+	 * @return the total number of cache misses
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Returns the latency histogram of the given operation. The element at
+	 * index <code>i</code> counts the resolutions that took less than
+	 * <code>2^i</code> and at least <code>2^(i-1)</code> nanoseconds.
+	 *
+	 * @param operation
+	 *            the name of a {@link Resolution.Operation}
+	 * @return the latency histogram of the given operation
+	 */
+	long[] getLatencyHistogram(String operation);
+
+	/**
+	 * Returns an upper bound of the given percentile of the latency of the
+	 * given operation in nanoseconds.
+	 *
+	 * @param operation
+	 *            the name of a {@link Resolution.Operation}
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return an upper bound of the percentile in nanoseconds, or 0 if there
+	 *         was no resolution
+	 */
+	long getLatencyPercentile(String operation, double percentile);
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	void reset();
+}
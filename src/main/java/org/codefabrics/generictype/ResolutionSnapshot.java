@@ -0,0 +1,491 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link ResolutionSnapshot} is a binary file with the resolved type
+ * parameters, field types and method return types of a set of classes.
+ * <p>
+ * A snapshot is written once with {@link #write(File, Collection)}, for
+ * example at the end of a warm-up run, and loaded at startup with
+ * {@link #load(File)}. Loading maps the file into memory and only reads its
+ * index. The entries of a class are decoded when the class is resolved for the
+ * first time, and only if the class still has the same fingerprint as when the
+ * snapshot was written. Classes that have changed since then are resolved by
+ * reflection.
+ * </p>
+ * <p>
+ * Like the generated {@link ResolutionTable}s, a snapshot only contains values
+ * that are plain classes.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class ResolutionSnapshot {
+	private static final int MAGIC = 0x47545350; // "GTSP"
+	private static final int VERSION = 1;
+	// magic, version, number of strings, number of classes
+	private static final int HEADER_SIZE = 16;
+	// name index, fingerprint, data offset
+	private static final int CLASS_ENTRY_SIZE = 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// the hash of the class file of each class, which can't change while the
+	// class is loaded
+	private static final ClassValue<Long> CLASS_FILE_HASHES = new ClassValue<Long>() {
+		@Override
+		protected Long computeValue(Class<?> type) {
+			return hashClassFile(type);
+		}
+	};
+
+	private static final List<ResolutionSnapshot> INSTALLED = new CopyOnWriteArrayList<ResolutionSnapshot>();
+
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+	static {
+		for (Class<?> cls : Arrays.<Class<?>> asList(boolean.class, byte.class, char.class, short.class, int.class,
+				long.class, float.class, double.class, void.class)) {
+			PRIMITIVES.put(cls.getName(), cls);
+		}
+	}
+
+	private final File file;
+	private final ByteBuffer buffer;
+	private final int[] stringOffsets;
+	private final String[] strings;
+	private final Map<String, Integer> classIndex;
+
+	private ResolutionSnapshot(File file, ByteBuffer buffer) throws IOException {
+		this.file = file;
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(String.format("%s is not a resolution snapshot!", file));
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException(String.format("Unsupported version %s of resolution snapshot %s!",
+					buffer.getInt(4), file));
+		}
+		int stringCount = buffer.getInt(8);
+		int classCount = buffer.getInt(12);
+		this.stringOffsets = new int[stringCount];
+		this.strings = new String[stringCount];
+		int pos = HEADER_SIZE;
+		for (int i = 0; i < stringCount; i++, pos += 4) {
+			stringOffsets[i] = buffer.getInt(pos);
+		}
+		this.classIndex = new HashMap<String, Integer>(classCount * 2);
+		for (int i = 0; i < classCount; i++, pos += CLASS_ENTRY_SIZE) {
+			classIndex.put(getString(buffer.getInt(pos)), pos);
+		}
+	}
+
+	/**
+	 * Loads the snapshot from the given file and installs it, so that it is
+	 * used by all subsequent resolutions.
+	 * <p>
+	 * The snapshot should be loaded before any class contained in it is
+	 * resolved.
+	 * </p>
+	 *
+	 * @param file
+	 * @return the installed snapshot
+	 * @throws IOException
+	 *             if the file can't be read or is not a snapshot
+	 */
+	public static ResolutionSnapshot load(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// the mapping stays valid after the channel has been closed
+			channel.close();
+		}
+		ResolutionSnapshot result = new ResolutionSnapshot(file, buffer);
+		INSTALLED.add(result);
+		ResolutionTable.reset();
+		return result;
+	}
+
+	/**
+	 * Uninstalls this snapshot, so that it is not used by subsequent
+	 * resolutions anymore. Results that have already been cached are not
+	 * affected.
+	 */
+	public void unload() {
+		INSTALLED.remove(this);
+		ResolutionTable.reset();
+	}
+
+	/**
+	 * Returns the file this snapshot has been loaded from.
+	 *
+	 * @return the file this snapshot has been loaded from
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of classes in this snapshot.
+	 *
+	 * @return the number of classes in this snapshot
+	 */
+	public int size() {
+		return classIndex.size();
+	}
+
+	/**
+	 * Returns <code>true</code> if this snapshot contains entries for the given
+	 * class and the class has not changed since the snapshot was written.
+	 *
+	 * @param cls
+	 * @return <code>true</code> if this snapshot is valid for the given class
+	 */
+	public boolean isValidFor(Class<?> cls) {
+		Integer pos = classIndex.get(cls.getName());
+		return pos != null && buffer.getLong(pos + 4) == fingerprint(cls);
+	}
+
+	/**
+	 * Writes a snapshot with the resolved type parameters, field types and
+	 * method return types of the given classes to the given file.
+	 *
+	 * @param file
+	 * @param classes
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static void write(File file, Collection<? extends Class<?>> classes) throws IOException {
+		Map<String, Integer> pool = new LinkedHashMap<String, Integer>();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(data);
+		List<Class<?>> written = new ArrayList<Class<?>>();
+		List<Integer> dataOffsets = new ArrayList<Integer>();
+		for (Class<?> cls : new LinkedHashSet<Class<?>>(classes)) {
+			if (cls.isPrimitive() || cls.isArray()) {
+				continue;
+			}
+			written.add(cls);
+			dataOffsets.add(dataOut.size());
+			writeEntries(cls, pool, dataOut);
+		}
+		dataOut.flush();
+
+		int headerSize = HEADER_SIZE + 4 * pool.size() + CLASS_ENTRY_SIZE * written.size();
+		ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+		DataOutputStream stringOut = new DataOutputStream(stringData);
+		int[] stringOffsets = new int[pool.size()];
+		int i = 0;
+		for (String str : pool.keySet()) {
+			stringOffsets[i++] = headerSize + data.size() + stringOut.size();
+			byte[] bytes = str.getBytes(UTF8);
+			stringOut.writeShort(bytes.length);
+			stringOut.write(bytes);
+		}
+		stringOut.flush();
+
+		OutputStream fileOut = new FileOutputStream(file);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(pool.size());
+			out.writeInt(written.size());
+			for (int offset : stringOffsets) {
+				out.writeInt(offset);
+			}
+			for (int k = 0; k < written.size(); k++) {
+				Class<?> cls = written.get(k);
+				out.writeInt(pool.get(cls.getName()));
+				out.writeLong(fingerprint(cls));
+				out.writeInt(headerSize + dataOffsets.get(k));
+			}
+			data.writeTo(out);
+			stringData.writeTo(out);
+			out.flush();
+		} finally {
+			fileOut.close();
+		}
+	}
+
+	private static void writeEntries(Class<?> cls, Map<String, Integer> pool, DataOutputStream out)
+			throws IOException {
+		intern(pool, cls.getName());
+		GenericType genericType = new GenericType(cls);
+
+		TypeParameterTable typeParameters = genericType.resolveAll();
+		List<int[]> entries = new ArrayList<int[]>();
+		for (int i = 0; i < typeParameters.size(); i++) {
+			TypeVariable<?> var = typeParameters.getVariable(i);
+			Type value = typeParameters.getValue(i).getType();
+			if (value instanceof Class<?>) {
+				Class<?> declaringClass = (Class<?>) var.getGenericDeclaration();
+				entries.add(new int[] { intern(pool, declaringClass.getName()), intern(pool, var.getName()),
+						intern(pool, ((Class<?>) value).getName()) });
+			}
+		}
+		writeEntries(entries, out);
+
+		entries.clear();
+		for (String fieldname : FieldIndex.of(cls).getFieldnames()) {
+			Type value = genericType.getFieldType(fieldname).getType();
+			if (value instanceof Class<?>) {
+				entries.add(new int[] { intern(pool, fieldname), intern(pool, ((Class<?>) value).getName()) });
+			}
+		}
+		writeEntries(entries, out);
+
+		entries.clear();
+		MethodIndex methodIndex = MethodIndex.of(cls);
+		for (String methodName : methodIndex.getMethodNames()) {
+			if (methodIndex.get(methodName, MethodIndex.NO_PARAMETERS) != null) {
+				Type value = genericType.getMethodReturnType(methodName).getType();
+				if (value instanceof Class<?>) {
+					entries.add(new int[] { intern(pool, methodName), intern(pool, ((Class<?>) value).getName()) });
+				}
+			}
+		}
+		writeEntries(entries, out);
+	}
+
+	private static void writeEntries(List<int[]> entries, DataOutputStream out) throws IOException {
+		out.writeInt(entries.size());
+		for (int[] entry : entries) {
+			for (int index : entry) {
+				out.writeInt(index);
+			}
+		}
+	}
+
+	private static int intern(Map<String, Integer> pool, String str) {
+		Integer result = pool.get(str);
+		if (result == null) {
+			result = pool.size();
+			pool.put(str, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the table of the given class from the first installed snapshot
+	 * that is valid for it, or <code>null</code> if there is none.
+	 *
+	 * @param cls
+	 * @return the table of the given class, or <code>null</code>
+	 */
+	static ResolutionTable findTable(Class<?> cls) {
+		for (ResolutionSnapshot snapshot : INSTALLED) {
+			ResolutionTable result = snapshot.getTable(cls);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private ResolutionTable getTable(Class<?> cls) {
+		Integer pos = classIndex.get(cls.getName());
+		if (pos == null || buffer.getLong(pos + 4) != fingerprint(cls)) {
+			return null;
+		}
+		try {
+			return new Table(cls, buffer.getInt(pos + 12));
+		} catch (ClassNotFoundException ex) {
+			// a referenced class is not visible from the given class
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the string with the given index. Strings are decoded on first
+	 * access. Concurrent decoding of the same string is harmless.
+	 */
+	private String getString(int index) {
+		String result = strings[index];
+		if (result == null) {
+			int pos = stringOffsets[index];
+			byte[] bytes = new byte[buffer.getShort(pos) & 0xFFFF];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(pos + 2 + i);
+			}
+			result = new String(bytes, UTF8);
+			strings[index] = result;
+		}
+		return result;
+	}
+
+	private static Class<?> toClass(String name, ClassLoader loader) throws ClassNotFoundException {
+		Class<?> result = PRIMITIVES.get(name);
+		if (result == null) {
+			result = Class.forName(name, false, loader);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a fingerprint of the class files of the given class and all its
+	 * supertypes. It changes whenever one of these classes is recompiled with
+	 * a different content.
+	 * <p>
+	 * Each class file is hashed only once per class, so checking a snapshot
+	 * entry doesn't reflect over the members of the class.
+	 * </p>
+	 *
+	 * @param startClass
+	 * @return the fingerprint of the given class
+	 */
+	static long fingerprint(Class<?> startClass) {
+		long result = FNV_OFFSET_BASIS;
+		// depth first, with an explicit stack instead of recursion
+		Set<Class<?>> visited = new HashSet<Class<?>>();
+		ArrayDeque<Class<?>> stack = new ArrayDeque<Class<?>>();
+		stack.push(startClass);
+		while (!stack.isEmpty()) {
+			Class<?> cls = stack.pop();
+			if (visited.add(cls)) {
+				long hash = CLASS_FILE_HASHES.get(cls);
+				for (int i = 0; i < 64; i += 8) {
+					result = (result ^ (hash >>> i & 0xFF)) * FNV_PRIME;
+				}
+				// push in reverse order, so that the superclass is popped first
+				Class<?>[] superInterfaces = cls.getInterfaces();
+				for (int i = superInterfaces.length - 1; i >= 0; i--) {
+					stack.push(superInterfaces[i]);
+				}
+				if (cls.getSuperclass() != null) {
+					stack.push(cls.getSuperclass());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the FNV-1a hash of the class file of the given class. Classes of
+	 * the runtime are identified by the runtime version, and classes without a
+	 * readable class file by their generic signatures.
+	 */
+	private static long hashClassFile(Class<?> cls) {
+		long result = hash(FNV_OFFSET_BASIS, cls.getName());
+		ClassLoader loader = cls.getClassLoader();
+		if (loader == null) {
+			// they only change with the runtime
+			return hash(result, System.getProperty("java.runtime.version"));
+		}
+		InputStream in = loader.getResourceAsStream(cls.getName().replace('.', '/') + ".class");
+		if (in != null) {
+			try {
+				try {
+					byte[] buffer = new byte[8192];
+					int count;
+					while ((count = in.read(buffer)) != -1) {
+						for (int i = 0; i < count; i++) {
+							result = (result ^ (buffer[i] & 0xFF)) * FNV_PRIME;
+						}
+					}
+					return result;
+				} finally {
+					in.close();
+				}
+			} catch (IOException ex) {
+				// hash the signatures instead
+			}
+		}
+		return hash(result, getSignatures(cls));
+	}
+
+	private static long hash(long hash, String str) {
+		long result = hash;
+		for (int i = 0; i < str.length(); i++) {
+			result = (result ^ str.charAt(i)) * FNV_PRIME;
+		}
+		return (result ^ '\n') * FNV_PRIME;
+	}
+
+	/**
+	 * Returns the generic signatures of the given class and its members, e.g.
+	 * of a generated class.
+	 */
+	private static String getSignatures(Class<?> cls) {
+		List<String> members = new ArrayList<String>();
+		for (Field field : cls.getDeclaredFields()) {
+			members.add(field.getName() + ':' + field.getGenericType());
+		}
+		for (Method method : cls.getDeclaredMethods()) {
+			if (method.getParameterTypes().length == 0) {
+				members.add(method.getName() + "():" + method.getGenericReturnType());
+			}
+		}
+		// the order of the declared members is unspecified
+		Collections.sort(members);
+		return Arrays.toString(cls.getTypeParameters()) + '\n' + cls.getGenericSuperclass() + '\n'
+				+ Arrays.toString(cls.getGenericInterfaces()) + '\n' + members;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResolutionSnapshot[%s, %s classes]", file, classIndex.size());
+	}
+
+	/**
+	 * The {@link ResolutionTable} of a single class decoded from a snapshot.
+	 */
+	private class Table extends ResolutionTable {
+		Table(Class<?> cls, int pos) throws ClassNotFoundException {
+			ClassLoader loader = cls.getClassLoader();
+			int count = buffer.getInt(pos);
+			pos += 4;
+			for (int i = 0; i < count; i++, pos += 12) {
+				Class<?> declaringClass = toClass(getString(buffer.getInt(pos)), loader);
+				String name = getString(buffer.getInt(pos + 4));
+				typeParameter(declaringClass, name, toClass(getString(buffer.getInt(pos + 8)), loader));
+			}
+			count = buffer.getInt(pos);
+			pos += 4;
+			for (int i = 0; i < count; i++, pos += 8) {
+				fieldType(getString(buffer.getInt(pos)), toClass(getString(buffer.getInt(pos + 4)), loader));
+			}
+			count = buffer.getInt(pos);
+			pos += 4;
+			for (int i = 0; i < count; i++, pos += 8) {
+				methodReturnType(getString(buffer.getInt(pos)), toClass(getString(buffer.getInt(pos + 4)), loader));
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ResolutionTable} holds the precomputed values of the type
+ * parameters, field types and method return types of a certain class.
+ * <p>
+ * Subclasses are generated at compile time by the
+ * {@link org.codefabrics.generictype.processor.ResolutionTableProcessor} for
+ * classes marked with {@link GenerateResolutionTable}. They populate the table
+ * in their constructor. The generated table of a class is named like the
+ * binary name of the class followed by {@value #SUFFIX}.
+ * </p>
+ * <p>
+ * Tables of classes without a generated table are read from the installed
+ * {@link ResolutionSnapshot}s.
+ * </p>
+ * 
+ * @author Michael Karneim
+ */
+public abstract class ResolutionTable {
+	/** The suffix of the names of generated tables. */
+	public static final String SUFFIX = "$$GenericTypeTable";
+
+	private static final ResolutionTable NONE = new ResolutionTable() {
+	};
+
+	private static volatile ClassValue<ResolutionTable> tables = newTables();
+
+	private static ClassValue<ResolutionTable> newTables() {
+		return new ClassValue<ResolutionTable>() {
+			@Override
+			protected ResolutionTable computeValue(Class<?> type) {
+				return load(type);
+			}
+		};
+	}
+
+	/**
+	 * Returns the generated table of the given class, or an empty table if
+	 * there is none.
+	 * 
+	 * @param cls
+	 * @return the generated table of the given class
+	 */
+	static ResolutionTable of(Class<?> cls) {
+		return tables.get(cls);
+	}
+
+	/**
+	 * Discards all tables loaded so far, so that they are loaded again on the
+	 * next access. This is called when the installed snapshots change.
+	 */
+	static void reset() {
+		tables = newTables();
+	}
+
+	private static ResolutionTable load(Class<?> cls) {
+		ResolutionTable result = null;
+		if (isMarked(cls)) {
+			result = loadGenerated(cls);
+		}
+		if (result == null) {
+			result = ResolutionSnapshot.findTable(cls);
+		}
+		return result == null ? NONE : result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given class is marked with
+	 * {@link GenerateResolutionTable}.
+	 */
+	private static boolean isMarked(Class<?> cls) {
+		// Class looks up the annotations of a class after those of its
+		// superclass, recursively. Look them up from the top down, so that the
+		// depth of the hierarchy isn't limited by the call stack.
+		List<Class<?>> superclasses = new ArrayList<Class<?>>();
+		for (Class<?> superclass = cls.getSuperclass(); superclass != null; superclass = superclass.getSuperclass()) {
+			superclasses.add(superclass);
+		}
+		for (int i = superclasses.size() - 1; i >= 0; i--) {
+			superclasses.get(i).isAnnotationPresent(GenerateResolutionTable.class);
+		}
+		return cls.isAnnotationPresent(GenerateResolutionTable.class);
+	}
+
+	private static ResolutionTable loadGenerated(Class<?> cls) {
+		try {
+			Class<?> tableClass = Class.forName(cls.getName() + SUFFIX, true, cls.getClassLoader());
+			return (ResolutionTable) tableClass.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException ex) {
+			// the annotation processor has not been run for this class
+			return null;
+		} catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(String.format("Can't load resolution table of %s", cls), ex);
+		} catch (InstantiationException ex) {
+			throw new IllegalStateException(String.format("Can't load resolution table of %s", cls), ex);
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException(String.format("Can't load resolution table of %s", cls), ex);
+		} catch (InvocationTargetException ex) {
+			throw new IllegalStateException(String.format("Can't load resolution table of %s", cls), ex.getCause());
+		}
+	}
+
+	private final Map<TypeVariable<?>, Class<?>> typeParameters = new HashMap<TypeVariable<?>, Class<?>>();
+	private final Map<String, Class<?>> fieldTypes = new HashMap<String, Class<?>>();
+	private final Map<String, Class<?>> methodReturnTypes = new HashMap<String, Class<?>>();
+
+	/**
+	 * Registers the value of the type parameter with the given name of the
+	 * given class.
+	 * 
+	 * @param declaringClass
+	 * @param name
+	 * @param value
+	 */
+	protected final void typeParameter(Class<?> declaringClass, String name, Class<?> value) {
+		for (TypeVariable<?> var : declaringClass.getTypeParameters()) {
+			if (var.getName().equals(name)) {
+				typeParameters.put(var, value);
+				return;
+			}
+		}
+		throw new IllegalArgumentException(String.format("%s has no type parameter %s!", declaringClass, name));
+	}
+
+	/**
+	 * Registers the type of the field with the given name.
+	 * 
+	 * @param fieldname
+	 * @param value
+	 */
+	protected final void fieldType(String fieldname, Class<?> value) {
+		fieldTypes.put(fieldname, value);
+	}
+
+	/**
+	 * Registers the return type of the method with the given name having no
+	 * parameters.
+	 * 
+	 * @param methodName
+	 * @param value
+	 */
+	protected final void methodReturnType(String methodName, Class<?> value) {
+		methodReturnTypes.put(methodName, value);
+	}
+
+	/**
+	 * Returns the precomputed value of the given type variable, or
+	 * <code>null</code> if it is unknown.
+	 * 
+	 * @param variable
+	 * @return the precomputed value, or <code>null</code>
+	 */
+	Class<?> getTypeParameter(TypeVariable<?> variable) {
+		return typeParameters.get(variable);
+	}
+
+	/**
+	 * Returns the precomputed type of the field with the given name, or
+	 * <code>null</code> if it is unknown.
+	 * 
+	 * @param fieldname
+	 * @return the precomputed field type, or <code>null</code>
+	 */
+	Class<?> getFieldType(String fieldname) {
+		return fieldTypes.get(fieldname);
+	}
+
+	/**
+	 * Returns the precomputed return type of the method with the given name
+	 * having no parameters, or <code>null</code> if it is unknown.
+	 * 
+	 * @param methodName
+	 * @return the precomputed return type, or <code>null</code>
+	 */
+	Class<?> getMethodReturnType(String methodName) {
+		return methodReturnTypes.get(methodName);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link SignatureParser} parses the generic signatures of the
+ * <code>Signature</code> attributes of class files into
+ * {@link TypeSignature}s, as specified by the Java Virtual Machine
+ * Specification in section 4.7.9.1.
+ *
+ * @author Michael Karneim
+ */
+final class SignatureParser {
+	/**
+	 * The parsed generic signature of a method.
+	 */
+	static final class MethodSignature {
+		// the names of the type parameters declared by the method
+		final List<String> typeParameters;
+		final List<TypeSignature> parameterTypes;
+		final TypeSignature returnType;
+
+		MethodSignature(List<String> typeParameters, List<TypeSignature> parameterTypes, TypeSignature returnType) {
+			this.typeParameters = Collections.unmodifiableList(typeParameters);
+			this.parameterTypes = Collections.unmodifiableList(parameterTypes);
+			this.returnType = returnType;
+		}
+	}
+
+	private final String signature;
+	// the binary name of the class the signature belongs to
+	private final String className;
+	// the type parameters declared by that class
+	private final Collection<String> classTypeParameters;
+	private int pos;
+
+	private SignatureParser(String signature, String className, Collection<String> classTypeParameters) {
+		this.signature = signature;
+		this.className = className;
+		this.classTypeParameters = classTypeParameters;
+	}
+
+	/**
+	 * Parses the given class signature of the given class.
+	 *
+	 * @param className
+	 *            the binary name of the class
+	 * @param signature
+	 *            e.g. <code>&lt;E:Ljava/lang/Object;&gt;Ljava/util/AbstractList&lt;TE;&gt;;</code>
+	 * @return the parsed class signature
+	 * @throws IllegalArgumentException
+	 *             if the signature is malformed
+	 */
+	static ClassSignature parseClassSignature(String className, String signature) throws IllegalArgumentException {
+		List<String> typeParameters = new ArrayList<String>();
+		List<List<TypeSignature>> bounds = new ArrayList<List<TypeSignature>>();
+		SignatureParser parser = new SignatureParser(signature, className, typeParameters);
+		parser.parseTypeParameters(typeParameters, bounds);
+		TypeSignature superclass = parser.parseClassType();
+		List<TypeSignature> interfaces = new ArrayList<TypeSignature>();
+		while (parser.pos < signature.length()) {
+			interfaces.add(parser.parseClassType());
+		}
+		return new ClassSignature(className, typeParameters, bounds, superclass, interfaces);
+	}
+
+	/**
+	 * Parses the given field type signature of a member of the given class.
+	 *
+	 * @param className
+	 *            the binary name of the class declaring the member
+	 * @param classTypeParameters
+	 *            the names of the type parameters of that class
+	 * @param signature
+	 *            e.g. <code>Ljava/util/List&lt;TE;&gt;;</code>
+	 * @return the parsed type
+	 * @throws IllegalArgumentException
+	 *             if the signature is malformed
+	 */
+	static TypeSignature parseTypeSignature(String className, Collection<String> classTypeParameters,
+			String signature) throws IllegalArgumentException {
+		SignatureParser parser = new SignatureParser(signature, className, classTypeParameters);
+		TypeSignature result = parser.parseType();
+		if (parser.pos != signature.length()) {
+			throw parser.newMalformedSignatureException();
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the given method signature of a method of the given class. Type
+	 * variables declared by the method hide those of the class.
+	 *
+	 * @param className
+	 *            the binary name of the class declaring the method
+	 * @param classTypeParameters
+	 *            the names of the type parameters of that class
+	 * @param signature
+	 *            e.g. <code>&lt;T:Ljava/lang/Object;&gt;([TT;)[TT;</code>
+	 * @return the parsed method signature
+	 * @throws IllegalArgumentException
+	 *             if the signature is malformed
+	 */
+	static MethodSignature parseMethodSignature(String className, Collection<String> classTypeParameters,
+			String signature) throws IllegalArgumentException {
+		List<String> typeParameters = new ArrayList<String>();
+		List<String> visibleClassTypeParameters = new ArrayList<String>(classTypeParameters);
+		SignatureParser parser = new SignatureParser(signature, className, visibleClassTypeParameters);
+		parser.parseTypeParameters(typeParameters, new ArrayList<List<TypeSignature>>());
+		visibleClassTypeParameters.removeAll(typeParameters);
+		List<TypeSignature> parameterTypes = new ArrayList<TypeSignature>();
+		parser.expect('(');
+		while (!parser.accept(')')) {
+			parameterTypes.add(parser.parseType());
+		}
+		TypeSignature returnType = parser.parseType();
+		// the thrown exceptions are not of interest, but must be well-formed
+		while (parser.pos < signature.length()) {
+			parser.expect('^');
+			parser.parseType();
+		}
+		return new MethodSignature(typeParameters, parameterTypes, returnType);
+	}
+
+	/**
+	 * Returns the binary name of the class with the given internal name, e.g.
+	 * <code>java.util.Map$Entry</code> for <code>java/util/Map$Entry</code>.
+	 */
+	static String toBinaryName(String internalName) {
+		return internalName.replace('/', '.');
+	}
+
+	private void parseTypeParameters(List<String> names, List<List<TypeSignature>> bounds) {
+		if (!accept('<')) {
+			return;
+		}
+		while (!accept('>')) {
+			names.add(parseIdentifier(':'));
+			List<TypeSignature> parameterBounds = new ArrayList<TypeSignature>(1);
+			expect(':');
+			if (peek() != ':') {
+				// the class bound
+				parameterBounds.add(parseType());
+			}
+			while (accept(':')) {
+				// an interface bound
+				parameterBounds.add(parseType());
+			}
+			if (parameterBounds.isEmpty()) {
+				parameterBounds.add(TypeSignature.OBJECT);
+			}
+			bounds.add(Collections.unmodifiableList(parameterBounds));
+		}
+	}
+
+	private TypeSignature parseType() {
+		char c = peek();
+		switch (c) {
+		case 'L':
+			return parseClassType();
+		case 'T':
+			pos++;
+			String name = parseIdentifier(';');
+			expect(';');
+			String declaringClassName = classTypeParameters.contains(name) ? className : null;
+			return TypeSignature.typeVariable(name, declaringClassName);
+		case '[':
+			pos++;
+			return TypeSignature.arrayType(parseType());
+		default:
+			String primitive = toPrimitiveName(c);
+			if (primitive == null) {
+				throw newMalformedSignatureException();
+			}
+			pos++;
+			return TypeSignature.primitiveType(primitive);
+		}
+	}
+
+	private TypeSignature parseClassType() {
+		expect('L');
+		TypeSignature owner = null;
+		StringBuilder name = new StringBuilder();
+		while (true) {
+			name.append(parseIdentifier('<', '.', ';'));
+			List<TypeSignature> args = parseTypeArguments();
+			if (accept(';')) {
+				return TypeSignature.classType(toBinaryName(name.toString()), owner, args);
+			}
+			expect('.');
+			// an inner class of a parameterized class
+			if (!args.isEmpty() || owner != null) {
+				owner = TypeSignature.classType(toBinaryName(name.toString()), owner, args);
+			}
+			name.append('$');
+		}
+	}
+
+	private List<TypeSignature> parseTypeArguments() {
+		if (!accept('<')) {
+			return Collections.emptyList();
+		}
+		List<TypeSignature> result = new ArrayList<TypeSignature>();
+		while (!accept('>')) {
+			if (accept('*')) {
+				result.add(TypeSignature.wildcardType(TypeSignature.OBJECT, false));
+			} else if (accept('+')) {
+				result.add(TypeSignature.wildcardType(parseType(), false));
+			} else if (accept('-')) {
+				result.add(TypeSignature.wildcardType(parseType(), true));
+			} else {
+				result.add(parseType());
+			}
+		}
+		return result;
+	}
+
+	private String parseIdentifier(char... terminators) {
+		int start = pos;
+		while (pos < signature.length() && !isTerminator(signature.charAt(pos), terminators)) {
+			pos++;
+		}
+		if (pos == start || pos == signature.length()) {
+			throw newMalformedSignatureException();
+		}
+		return signature.substring(start, pos);
+	}
+
+	private static boolean isTerminator(char c, char[] terminators) {
+		for (char terminator : terminators) {
+			if (c == terminator) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private char peek() {
+		if (pos >= signature.length()) {
+			throw newMalformedSignatureException();
+		}
+		return signature.charAt(pos);
+	}
+
+	private boolean accept(char c) {
+		if (peek() == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw newMalformedSignatureException();
+		}
+	}
+
+	private IllegalArgumentException newMalformedSignatureException() {
+		return new IllegalArgumentException(String.format("Malformed signature %s of %s at position %s!", signature,
+				className, pos));
+	}
+
+	private static String toPrimitiveName(char c) {
+		switch (c) {
+		case 'B':
+			return "byte";
+		case 'C':
+			return "char";
+		case 'D':
+			return "double";
+		case 'F':
+			return "float";
+		case 'I':
+			return "int";
+		case 'J':
+			return "long";
+		case 'S':
+			return "short";
+		case 'Z':
+			return "boolean";
+		case 'V':
+			return "void";
+		default:
+			return null;
+		}
+	}
+}
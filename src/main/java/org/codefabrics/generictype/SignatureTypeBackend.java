@@ -0,0 +1,381 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link SignatureTypeBackend} reads the generic signatures of a class
+ * from its class file, parses them with the {@link SignatureParser} and
+ * converts them into canonical types.
+ * <p>
+ * The class file of each class is read only once. The generic supertypes are
+ * converted at once, the member types on their first request. All types are
+ * shared and never copied. Type variables are the ones returned by
+ * {@link GenericDeclaration#getTypeParameters()}, so all types are equal to
+ * the types returned by the reflection API of the JDK.
+ * </p>
+ * <p>
+ * Classes without a readable class file, or whose class file doesn't match the
+ * loaded class, are delegated to {@link TypeBackend#REFLECTION}. So are single
+ * members whose signature can't be converted.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class SignatureTypeBackend extends TypeBackend {
+	private static final ClassValue<ClassTypes> CLASS_TYPES = new ClassValue<ClassTypes>() {
+		@Override
+		protected ClassTypes computeValue(Class<?> type) {
+			return ClassTypes.create(type);
+		}
+	};
+
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+	static {
+		for (Class<?> cls : new Class<?>[] { byte.class, char.class, double.class, float.class, int.class, long.class,
+				short.class, boolean.class, void.class }) {
+			PRIMITIVES.put(cls.getName(), cls);
+		}
+	}
+
+	@Override
+	public Type getGenericSuperclass(Class<?> cls) {
+		ClassTypes types = CLASS_TYPES.get(cls);
+		return types == ClassTypes.UNAVAILABLE ? REFLECTION.getGenericSuperclass(cls) : types.superclass;
+	}
+
+	@Override
+	public Type[] getGenericInterfaces(Class<?> cls) {
+		ClassTypes types = CLASS_TYPES.get(cls);
+		return types == ClassTypes.UNAVAILABLE ? REFLECTION.getGenericInterfaces(cls) : types.interfaces;
+	}
+
+	@Override
+	public Type getGenericType(Field field) {
+		ClassTypes types = CLASS_TYPES.get(field.getDeclaringClass());
+		return types == ClassTypes.UNAVAILABLE ? REFLECTION.getGenericType(field) : types.getFieldType(field);
+	}
+
+	@Override
+	public Type getGenericReturnType(Method method) {
+		ClassTypes types = CLASS_TYPES.get(method.getDeclaringClass());
+		return types == ClassTypes.UNAVAILABLE ? REFLECTION.getGenericReturnType(method) : types
+				.getMethodTypes(method).returnType;
+	}
+
+	@Override
+	public Type[] getGenericParameterTypes(Method method) {
+		ClassTypes types = CLASS_TYPES.get(method.getDeclaringClass());
+		return types == ClassTypes.UNAVAILABLE ? REFLECTION.getGenericParameterTypes(method) : types
+				.getMethodTypes(method).parameterTypes;
+	}
+
+	@Override
+	public String toString() {
+		return "SIGNATURE";
+	}
+
+	/**
+	 * The generic types of a method.
+	 */
+	private static final class MethodTypes {
+		final Type returnType;
+		final Type[] parameterTypes;
+
+		MethodTypes(Type returnType, Type[] parameterTypes) {
+			this.returnType = returnType;
+			this.parameterTypes = parameterTypes;
+		}
+	}
+
+	/**
+	 * The generic types of a class and its members.
+	 */
+	private static final class ClassTypes {
+		static final ClassTypes UNAVAILABLE = new ClassTypes(null, null, null, null);
+
+		private final Class<?> cls;
+		private final ClassSignature signature;
+		final Type superclass;
+		final Type[] interfaces;
+		// the converted member types by field name or method key
+		private final ConcurrentMap<String, Object> memberTypes = new ConcurrentHashMap<String, Object>();
+
+		private ClassTypes(Class<?> cls, ClassSignature signature, Type superclass, Type[] interfaces) {
+			this.cls = cls;
+			this.signature = signature;
+			this.superclass = superclass;
+			this.interfaces = interfaces;
+		}
+
+		/**
+		 * Reads and converts the signature of the given class, or returns
+		 * {@link #UNAVAILABLE}.
+		 */
+		static ClassTypes create(Class<?> cls) {
+			if (cls.isArray() || cls.isPrimitive()) {
+				return UNAVAILABLE;
+			}
+			ClassSignature signature = readClassSignature(cls);
+			if (signature == null || !matches(signature, cls)) {
+				return UNAVAILABLE;
+			}
+			try {
+				// the class file of an interface names Object as its superclass
+				Type superclass = signature.superclass == null || cls.isInterface() ? null : toType(
+						signature.superclass, cls);
+				Type[] interfaces = new Type[signature.interfaces.size()];
+				for (int i = 0; i < interfaces.length; i++) {
+					interfaces[i] = toType(signature.interfaces.get(i), cls);
+				}
+				return new ClassTypes(cls, signature, superclass, interfaces);
+			} catch (IllegalArgumentException ex) {
+				return UNAVAILABLE;
+			} catch (LinkageError ex) {
+				return UNAVAILABLE;
+			}
+		}
+
+		Type getFieldType(Field field) {
+			Type result = (Type) memberTypes.get(field.getName());
+			if (result == null) {
+				String fieldSignature = signature.fieldSignatures.get(field.getName());
+				result = field.getType();
+				if (fieldSignature != null) {
+					try {
+						result = toType(SignatureParser.parseTypeSignature(signature.name, signature.typeParameters,
+								fieldSignature), cls);
+					} catch (IllegalArgumentException ex) {
+						result = REFLECTION.getGenericType(field);
+					} catch (LinkageError ex) {
+						result = REFLECTION.getGenericType(field);
+					}
+				}
+				memberTypes.putIfAbsent(field.getName(), result);
+			}
+			return result;
+		}
+
+		MethodTypes getMethodTypes(Method method) {
+			String key = getMethodKey(method);
+			MethodTypes result = (MethodTypes) memberTypes.get(key);
+			if (result == null) {
+				String methodSignature = signature.methodSignatures.get(key);
+				if (methodSignature == null) {
+					result = new MethodTypes(method.getReturnType(), method.getParameterTypes());
+				} else {
+					try {
+						result = toMethodTypes(SignatureParser.parseMethodSignature(signature.name,
+								signature.typeParameters, methodSignature), method);
+					} catch (IllegalArgumentException ex) {
+						result = new MethodTypes(REFLECTION.getGenericReturnType(method),
+								REFLECTION.getGenericParameterTypes(method));
+					} catch (LinkageError ex) {
+						result = new MethodTypes(REFLECTION.getGenericReturnType(method),
+								REFLECTION.getGenericParameterTypes(method));
+					}
+				}
+				memberTypes.putIfAbsent(key, result);
+			}
+			return result;
+		}
+
+		private static MethodTypes toMethodTypes(SignatureParser.MethodSignature signature, Method method) {
+			List<TypeSignature> parameters = signature.parameterTypes;
+			if (parameters.size() != method.getParameterTypes().length) {
+				throw new IllegalArgumentException(String.format("Signature of %s does not match its descriptor!",
+						method));
+			}
+			Type[] parameterTypes = new Type[parameters.size()];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				parameterTypes[i] = toType(parameters.get(i), method);
+			}
+			return new MethodTypes(toType(signature.returnType, method), parameterTypes);
+		}
+	}
+
+	/**
+	 * Reads the signature of the given class from its class file, or returns
+	 * <code>null</code> if there is no readable class file.
+	 */
+	private static ClassSignature readClassSignature(Class<?> cls) {
+		String resourceName = cls.getName().replace('.', '/') + ".class";
+		ClassLoader loader = cls.getClassLoader();
+		InputStream in = loader == null ? ClassLoader.getSystemResourceAsStream(resourceName) : loader
+				.getResourceAsStream(resourceName);
+		if (in == null) {
+			return null;
+		}
+		try {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = in.read(buffer)) != -1) {
+					bytes.write(buffer, 0, count);
+				}
+				return ClassFileReader.readWithMembers(ByteBuffer.wrap(bytes.toByteArray()));
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given signature has been read from the
+	 * class file of the given class, and not from a different version of it.
+	 */
+	private static boolean matches(ClassSignature signature, Class<?> cls) {
+		if (!signature.name.equals(cls.getName())) {
+			return false;
+		}
+		Class<?> superclass = cls.getSuperclass();
+		if (cls.isInterface()) {
+			// the class file names Object, but reflection returns null
+			superclass = Object.class;
+		}
+		String superName = signature.superclass == null ? null : signature.superclass.getName();
+		if (superclass == null ? superName != null : !superclass.getName().equals(superName)) {
+			return false;
+		}
+		Class<?>[] interfaces = cls.getInterfaces();
+		if (interfaces.length != signature.interfaces.size()) {
+			return false;
+		}
+		for (int i = 0; i < interfaces.length; i++) {
+			if (!interfaces[i].getName().equals(signature.interfaces.get(i).getName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the key of the given method in {@link ClassSignature#methodSignatures}.
+	 */
+	private static String getMethodKey(Method method) {
+		StringBuilder result = new StringBuilder(method.getName()).append('(');
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			appendDescriptor(result, parameterType);
+		}
+		result.append(')');
+		appendDescriptor(result, method.getReturnType());
+		return result.toString();
+	}
+
+	private static void appendDescriptor(StringBuilder result, Class<?> cls) {
+		while (cls.isArray()) {
+			result.append('[');
+			cls = cls.getComponentType();
+		}
+		if (cls.isPrimitive()) {
+			result.append(cls == boolean.class ? 'Z' : cls == long.class ? 'J' : Character.toUpperCase(cls.getName()
+					.charAt(0)));
+		} else {
+			result.append('L').append(cls.getName().replace('.', '/')).append(';');
+		}
+	}
+
+	/**
+	 * Converts the given signature into a canonical type. Type variables are
+	 * looked up in the given scope and its enclosing scopes.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a type variable is not declared in any scope
+	 * @throws LinkageError
+	 *             if a class can't be loaded
+	 */
+	private static Type toType(TypeSignature signature, GenericDeclaration scope) {
+		switch (signature.getKind()) {
+		case PRIMITIVE:
+			return PRIMITIVES.get(signature.getName());
+		case TYPE_VARIABLE:
+			return findTypeVariable(signature.getName(), scope);
+		case ARRAY:
+			return CanonicalTypes.newArrayType(toType(signature.getComponentType(), scope));
+		case WILDCARD:
+			TypeSignature lowerBound = signature.getLowerBound();
+			if (lowerBound != null) {
+				return CanonicalTypes.newWildcardType(new Type[0], new Type[] { toType(lowerBound, scope) });
+			}
+			return CanonicalTypes.newWildcardType(new Type[] { toType(signature.getUpperBound(), scope) },
+					new Type[0]);
+		default:
+			Class<?> rawType = loadClass(signature.getName(), scope);
+			List<TypeSignature> args = signature.getTypeArguments();
+			if (args.isEmpty() && signature.getOwnerType() == null) {
+				return rawType;
+			}
+			Type owner = signature.getOwnerType() == null ? null : toType(signature.getOwnerType(), scope);
+			Type[] actualTypeArguments = new Type[args.size()];
+			for (int i = 0; i < actualTypeArguments.length; i++) {
+				actualTypeArguments[i] = toType(args.get(i), scope);
+			}
+			return CanonicalTypes.newParameterizedType(owner, rawType, actualTypeArguments);
+		}
+	}
+
+	private static Class<?> loadClass(String name, GenericDeclaration scope) {
+		try {
+			return Class.forName(name, false, getDeclaringClass(scope).getClassLoader());
+		} catch (ClassNotFoundException ex) {
+			throw new NoClassDefFoundError(name);
+		}
+	}
+
+	/**
+	 * Returns the type variable with the given name that is visible in the
+	 * given scope, in the same order as the JDK looks it up: the method, the
+	 * class, the enclosing method or constructor, and the enclosing classes.
+	 */
+	private static TypeVariable<?> findTypeVariable(String name, GenericDeclaration scope) {
+		GenericDeclaration current = scope;
+		while (current != null) {
+			for (TypeVariable<?> var : current.getTypeParameters()) {
+				if (var.getName().equals(name)) {
+					return var;
+				}
+			}
+			if (current instanceof Class<?>) {
+				Class<?> cls = (Class<?>) current;
+				Method enclosingMethod = cls.getEnclosingMethod();
+				Constructor<?> enclosingConstructor = cls.getEnclosingConstructor();
+				current = enclosingMethod != null ? enclosingMethod : enclosingConstructor != null ? enclosingConstructor
+						: cls.getEnclosingClass();
+			} else {
+				current = getDeclaringClass(current);
+			}
+		}
+		throw new IllegalArgumentException(String.format("Type variable %s is not declared in %s!", name, scope));
+	}
+
+	private static Class<?> getDeclaringClass(GenericDeclaration scope) {
+		if (scope instanceof Class<?>) {
+			return (Class<?>) scope;
+		}
+		if (scope instanceof Method) {
+			return ((Method) scope).getDeclaringClass();
+		}
+		return ((Constructor<?>) scope).getDeclaringClass();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The {@link SupertypeClosure} of a class holds its direct generic supertypes
+ * and the set of all raw types it is assignable to.
+ * <p>
+ * It is computed once per class and replaces the repeated calls of
+ * {@link Class#getGenericSuperclass()}, {@link Class#getGenericInterfaces()}
+ * and {@link Class#isAssignableFrom(Class)} during a hierarchy walk. The
+ * closure is immutable afterwards.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+class SupertypeClosure {
+	private static final ClassValue<SupertypeClosure> CLOSURES = new ClassValue<SupertypeClosure>() {
+		@Override
+		protected SupertypeClosure computeValue(Class<?> type) {
+			if (!COMPUTING_SUPERTYPES.get()) {
+				computeSupertypes(type);
+			}
+			return new SupertypeClosure(type);
+		}
+	};
+
+	// true while computeSupertypes() runs on the current thread
+	private static final ThreadLocal<Boolean> COMPUTING_SUPERTYPES = new ThreadLocal<Boolean>() {
+		@Override
+		protected Boolean initialValue() {
+			return Boolean.FALSE;
+		}
+	};
+
+	/**
+	 * Returns the {@link SupertypeClosure} of the given class.
+	 *
+	 * @param cls
+	 * @return the {@link SupertypeClosure} of the given class
+	 */
+	static SupertypeClosure of(Class<?> cls) {
+		return CLOSURES.get(cls);
+	}
+
+	/**
+	 * The direct generic supertypes in search order: the superclass first, if
+	 * any, then the superinterfaces.
+	 */
+	final Type[] superTypes;
+	/** The closures of the erasures of {@link #superTypes}. */
+	final SupertypeClosure[] superClosures;
+	private final Set<Class<?>> rawTypes;
+
+	private SupertypeClosure(Class<?> cls) {
+		TypeBackend backend = TypeBackend.get();
+		Type superclass = backend.getGenericSuperclass(cls);
+		Type[] interfaces = backend.getGenericInterfaces(cls);
+		int offset = superclass == null ? 0 : 1;
+		superTypes = new Type[offset + interfaces.length];
+		if (superclass != null) {
+			superTypes[0] = superclass;
+		}
+		System.arraycopy(interfaces, 0, superTypes, offset, interfaces.length);
+		superClosures = new SupertypeClosure[superTypes.length];
+		rawTypes = new HashSet<Class<?>>();
+		rawTypes.add(cls);
+		for (int i = 0; i < superTypes.length; i++) {
+			superClosures[i] = of(rawType(superTypes[i]));
+			rawTypes.addAll(superClosures[i].rawTypes);
+		}
+	}
+
+	/**
+	 * Computes the closures of all supertypes of the given class, the topmost
+	 * ones first. So the construction of each closure finds the closures of
+	 * its direct supertypes already computed, instead of computing them
+	 * recursively, which would limit the depth of a hierarchy by the call
+	 * stack.
+	 */
+	private static void computeSupertypes(Class<?> cls) {
+		COMPUTING_SUPERTYPES.set(Boolean.TRUE);
+		try {
+			// a depth first walk, which emits each class after its supertypes
+			Set<Class<?>> seen = new HashSet<Class<?>>();
+			seen.add(cls);
+			ArrayDeque<Class<?>> stack = new ArrayDeque<Class<?>>();
+			stack.push(cls);
+			while (!stack.isEmpty()) {
+				Class<?> next = nextUnseenSupertype(stack.peek(), seen);
+				if (next != null) {
+					stack.push(next);
+				} else {
+					Class<?> done = stack.pop();
+					if (done != cls) {
+						CLOSURES.get(done);
+					}
+				}
+			}
+		} finally {
+			COMPUTING_SUPERTYPES.set(Boolean.FALSE);
+		}
+	}
+
+	private static Class<?> nextUnseenSupertype(Class<?> cls, Set<Class<?>> seen) {
+		Class<?> superclass = cls.getSuperclass();
+		if (superclass != null && seen.add(superclass)) {
+			return superclass;
+		}
+		for (Class<?> superInterface : cls.getInterfaces()) {
+			if (seen.add(superInterface)) {
+				return superInterface;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the class of this closure is assignable to
+	 * the given class.
+	 *
+	 * @param cls
+	 * @return <code>true</code> if the given class is the class of this
+	 *         closure or one of its supertypes
+	 */
+	boolean contains(Class<?> cls) {
+		return rawTypes.contains(cls);
+	}
+
+	private static Class<?> rawType(Type type) {
+		if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		return (Class<?>) type;
+	}
+}
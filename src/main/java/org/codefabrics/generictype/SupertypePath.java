@@ -0,0 +1,134 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SupertypePath} is the chain of generic supertypes that leads from a
+ * class to the class declaring a certain type variable.
+ * <p>
+ * Paths are memoized per (class, variable) and share their tails, so the path
+ * from a subclass is a single node prepended to the memoized path of its
+ * supertype. This allows classes with common supertypes to share the
+ * hierarchy walk above them, even across threads.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+class SupertypePath {
+	/** The empty path, which leads from a class to itself. */
+	static final SupertypePath EMPTY = new SupertypePath(null, null, false);
+
+	// the memoized paths by class and variable, cleared and disabled with the
+	// caches of GenericType
+	static final ResolutionCache<TypeVariable<?>, SupertypePath> PATHS = //
+	new ResolutionCache<TypeVariable<?>, SupertypePath>();
+
+	// the parameterized supertype of this step, or null if it is a raw type
+	private final ParameterizedType superType;
+	private final SupertypePath tail;
+	// true if this step or a later one is the raw type of a generic class
+	private final boolean raw;
+
+	private SupertypePath(ParameterizedType superType, SupertypePath tail, boolean raw) {
+		this.superType = superType;
+		this.tail = tail;
+		this.raw = raw;
+	}
+
+	/**
+	 * Returns the path from the given class to the class declaring the given
+	 * variable, or <code>null</code> if the variable does not parameterize the
+	 * class. The supertypes are searched in the same order as
+	 * {@link GenericType#getTypeParameter(TypeVariable)} does, in a loop that
+	 * stops at the first class with a memoized path.
+	 *
+	 * @param inClass
+	 * @param var
+	 *            a variable declared by a class
+	 * @return the path to the declaring class, or <code>null</code>
+	 */
+	static SupertypePath find(Class<?> inClass, TypeVariable<?> var) {
+		Class<?> parameterizedClass = (Class<?>) var.getGenericDeclaration();
+		if (!SupertypeClosure.of(inClass).contains(parameterizedClass)) {
+			return null;
+		}
+		// walk up until the declaring class or a memoized path is reached
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		List<ParameterizedType> superTypes = new ArrayList<ParameterizedType>();
+		List<Boolean> rawSteps = new ArrayList<Boolean>();
+		SupertypePath result = EMPTY;
+		Class<?> cls = inClass;
+		while (!cls.equals(parameterizedClass)) {
+			SupertypePath memoized = PATHS.get(cls, var);
+			if (memoized != null) {
+				result = memoized;
+				break;
+			}
+			Resolution.nodeVisited();
+			SupertypeClosure closure = SupertypeClosure.of(cls);
+			// the superclass first, then the superinterfaces
+			int i = 0;
+			while (!closure.superClosures[i].contains(parameterizedClass)) {
+				i++;
+			}
+			Type superType = closure.superTypes[i];
+			classes.add(cls);
+			if (superType instanceof ParameterizedType) {
+				ParameterizedType parameterizedSuperType = (ParameterizedType) superType;
+				superTypes.add(parameterizedSuperType);
+				rawSteps.add(Boolean.FALSE);
+				cls = (Class<?>) parameterizedSuperType.getRawType();
+			} else {
+				superTypes.add(null);
+				cls = (Class<?>) superType;
+				rawSteps.add(cls.getTypeParameters().length > 0);
+			}
+		}
+		Resolution.depthReached(classes.size());
+		// memoize the path of each class passed, from the top down
+		for (int i = classes.size() - 1; i >= 0; i--) {
+			result = new SupertypePath(superTypes.get(i), result, rawSteps.get(i) || result.raw);
+			PATHS.put(classes.get(i), var, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if this path passes the raw type of a generic
+	 * class, e.g. <code>class Foo extends ArrayList</code>. Then the type
+	 * variables of the classes above are not mapped.
+	 *
+	 * @return <code>true</code> if this path passes a raw type
+	 */
+	boolean isRaw() {
+		return raw;
+	}
+
+	/**
+	 * Returns the mapping that is valid inside the class at the end of this
+	 * path.
+	 *
+	 * @param currentMapping
+	 *            the mapping that is valid inside the class at the start of
+	 *            this path
+	 * @return the mapping that is valid inside the class at the end of this
+	 *         path
+	 */
+	VariableMapping apply(VariableMapping currentMapping) {
+		for (SupertypePath p = this; p != EMPTY; p = p.tail) {
+			if (p.superType != null) {
+				currentMapping = new VariableMapping(currentMapping, p.superType);
+			}
+		}
+		return currentMapping;
+	}
+}
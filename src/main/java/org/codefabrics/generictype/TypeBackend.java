@@ -0,0 +1,139 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * A {@link TypeBackend} supplies the generic types of classes and their
+ * members to the resolution. All other parts of the library access the generic
+ * supertypes, field types and method types only through the current backend.
+ * <p>
+ * Two backends are provided:
+ * <ul>
+ * <li>{@link #REFLECTION} calls the reflection API of the JDK. This is the
+ * default.</li>
+ * <li>{@link #SIGNATURE} reads the <code>Signature</code> attributes of each
+ * class file once and parses them with its own parser into shared, immutable
+ * types. It falls back to reflection for classes without a class file, e.g.
+ * generated ones.</li>
+ * </ul>
+ * Both backends return equal types, so the results of a resolution do not
+ * depend on the backend.
+ * </p>
+ *
+ * @author Michael Karneim
+ * @see GenericType#setTypeBackend(TypeBackend)
+ */
+public abstract class TypeBackend {
+	/**
+	 * The backend calling the reflection API of the JDK.
+	 */
+	public static final TypeBackend REFLECTION = new TypeBackend() {
+		@Override
+		public Type getGenericSuperclass(Class<?> cls) {
+			return cls.getGenericSuperclass();
+		}
+
+		@Override
+		public Type[] getGenericInterfaces(Class<?> cls) {
+			return cls.getGenericInterfaces();
+		}
+
+		@Override
+		public Type getGenericType(Field field) {
+			return field.getGenericType();
+		}
+
+		@Override
+		public Type getGenericReturnType(Method method) {
+			return method.getGenericReturnType();
+		}
+
+		@Override
+		public Type[] getGenericParameterTypes(Method method) {
+			return method.getGenericParameterTypes();
+		}
+
+		@Override
+		public String toString() {
+			return "REFLECTION";
+		}
+	};
+
+	/**
+	 * The backend parsing the generic signatures of the class files.
+	 */
+	public static final TypeBackend SIGNATURE = new SignatureTypeBackend();
+
+	private static volatile TypeBackend current = REFLECTION;
+
+	/**
+	 * Returns the current backend.
+	 */
+	static TypeBackend get() {
+		return current;
+	}
+
+	/**
+	 * Sets the current backend.
+	 */
+	static void set(TypeBackend backend) {
+		if (backend == null) {
+			throw new IllegalArgumentException("backend must not be null");
+		}
+		current = backend;
+	}
+
+	/**
+	 * Returns the generic superclass of the given class, like
+	 * {@link Class#getGenericSuperclass()}.
+	 *
+	 * @param cls
+	 * @return the generic superclass, or <code>null</code>
+	 */
+	public abstract Type getGenericSuperclass(Class<?> cls);
+
+	/**
+	 * Returns the generic superinterfaces of the given class, like
+	 * {@link Class#getGenericInterfaces()}. The caller must not modify the
+	 * returned array.
+	 *
+	 * @param cls
+	 * @return the generic superinterfaces
+	 */
+	public abstract Type[] getGenericInterfaces(Class<?> cls);
+
+	/**
+	 * Returns the generic type of the given field, like
+	 * {@link Field#getGenericType()}.
+	 *
+	 * @param field
+	 * @return the generic type of the field
+	 */
+	public abstract Type getGenericType(Field field);
+
+	/**
+	 * Returns the generic return type of the given method, like
+	 * {@link Method#getGenericReturnType()}.
+	 *
+	 * @param method
+	 * @return the generic return type of the method
+	 */
+	public abstract Type getGenericReturnType(Method method);
+
+	/**
+	 * Returns the generic parameter types of the given method, like
+	 * {@link Method#getGenericParameterTypes()}. The caller must not modify
+	 * the returned array.
+	 *
+	 * @param method
+	 * @return the generic parameter types of the method
+	 */
+	public abstract Type[] getGenericParameterTypes(Method method);
+}
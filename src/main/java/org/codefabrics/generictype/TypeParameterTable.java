@@ -0,0 +1,153 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link TypeParameterTable} is an immutable table of all type variables
+ * of a type and its super types together with their actual values.
+ * <p>
+ * It is created by {@link GenericType#resolveAll()} with a single walk over the
+ * type hierarchy. Each lookup is a single hash probe or array read.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+public final class TypeParameterTable {
+	private final Type rootType;
+	private final TypeVariable<?>[] variables;
+	private final GenericType[] values;
+	private final Map<TypeVariable<?>, Integer> indices;
+
+	TypeParameterTable(Type rootType, Map<TypeVariable<?>, GenericType> entries) {
+		this.rootType = rootType;
+		this.variables = entries.keySet().toArray(new TypeVariable<?>[entries.size()]);
+		this.values = entries.values().toArray(new GenericType[entries.size()]);
+		this.indices = new HashMap<TypeVariable<?>, Integer>(this.variables.length * 2);
+		for (int i = 0; i < this.variables.length; i++) {
+			indices.put(this.variables[i], i);
+		}
+	}
+
+	/**
+	 * Returns the type this table has been created for.
+	 *
+	 * @return the type this table has been created for
+	 */
+	public Type getRootType() {
+		return rootType;
+	}
+
+	/**
+	 * Returns the number of type variables in this table.
+	 *
+	 * @return the number of type variables in this table
+	 */
+	public int size() {
+		return variables.length;
+	}
+
+	/**
+	 * Returns the index of the given variable in this table, or -1 if it is
+	 * not contained.
+	 *
+	 * @param variable
+	 * @return the index of the given variable, or -1
+	 */
+	public int indexOf(TypeVariable<?> variable) {
+		Integer result = indices.get(variable);
+		return result == null ? -1 : result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given variable parameterizes the root
+	 * type or one of its super types.
+	 *
+	 * @param variable
+	 * @return <code>true</code> if the given variable is contained in this
+	 *         table
+	 */
+	public boolean contains(TypeVariable<?> variable) {
+		return indices.containsKey(variable);
+	}
+
+	/**
+	 * Returns the variable at the given index.
+	 *
+	 * @param index
+	 * @return the variable at the given index
+	 */
+	public TypeVariable<?> getVariable(int index) {
+		return variables[index];
+	}
+
+	/**
+	 * Returns the value of the variable at the given index.
+	 *
+	 * @param index
+	 * @return the value of the variable at the given index
+	 */
+	public GenericType getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns the value of the given variable as a {@link GenericType}, or
+	 * <code>null</code> if the variable does not parameterize the root type or
+	 * one of its super types.
+	 *
+	 * @param variable
+	 * @return the value of the given variable, or <code>null</code>
+	 */
+	public GenericType get(TypeVariable<?> variable) {
+		Integer index = indices.get(variable);
+		return index == null ? null : values[index];
+	}
+
+	/**
+	 * Returns the value of the given variable, or <code>null</code> if the
+	 * variable does not parameterize the root type or one of its super types.
+	 *
+	 * @param variable
+	 * @return the value of the given variable, or <code>null</code>
+	 */
+	public Type getType(TypeVariable<?> variable) {
+		GenericType result = get(variable);
+		return result == null ? null : result.getType();
+	}
+
+	/**
+	 * Returns all variables of this table in the order they have been found
+	 * when walking the type hierarchy.
+	 *
+	 * @return all variables of this table
+	 */
+	public List<TypeVariable<?>> getVariables() {
+		return Collections.unmodifiableList(Arrays.asList(variables));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append(rootType).append(" {");
+		for (int i = 0; i < variables.length; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			Class<?> declaringClass = (Class<?>) variables[i].getGenericDeclaration();
+			result.append(declaringClass.getName()).append('.').append(variables[i]).append('=');
+			result.append(values[i].getType());
+		}
+		return result.append('}').toString();
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link TypeSignature} is an immutable model of a generic type as it is
+ * written in the <code>Signature</code> attribute of a class file.
+ * <p>
+ * Unlike a {@link java.lang.reflect.Type} it refers to classes by their binary
+ * names, so it can be created and compared without loading any class.
+ * </p>
+ *
+ * @author Michael Karneim
+ * @see ClasspathScanner
+ */
+public final class TypeSignature {
+	/**
+	 * The kinds of type signatures.
+	 */
+	public enum Kind {
+		/** a primitive type or <code>void</code> */
+		PRIMITIVE,
+		/** a class, possibly with type arguments */
+		CLASS,
+		/** a type variable */
+		TYPE_VARIABLE,
+		/** a wildcard type argument */
+		WILDCARD,
+		/** an array type */
+		ARRAY
+	}
+
+	private static final List<TypeSignature> NO_ARGUMENTS = Collections.emptyList();
+
+	static final TypeSignature OBJECT = classType("java.lang.Object", null, NO_ARGUMENTS);
+
+	private final Kind kind;
+	// the binary class name, the name of the primitive type or of the variable
+	private final String name;
+	private final String declaringClassName;
+	private final TypeSignature ownerType;
+	private final List<TypeSignature> typeArguments;
+	// the component type of an array or the bound of a wildcard
+	private final TypeSignature bound;
+	private final boolean lowerBound;
+
+	private TypeSignature(Kind kind, String name, String declaringClassName, TypeSignature ownerType,
+			List<TypeSignature> typeArguments, TypeSignature bound, boolean lowerBound) {
+		this.kind = kind;
+		this.name = name;
+		this.declaringClassName = declaringClassName;
+		this.ownerType = ownerType;
+		this.typeArguments = typeArguments;
+		this.bound = bound;
+		this.lowerBound = lowerBound;
+	}
+
+	static TypeSignature primitiveType(String name) {
+		return new TypeSignature(Kind.PRIMITIVE, name, null, null, NO_ARGUMENTS, null, false);
+	}
+
+	static TypeSignature classType(String name, TypeSignature ownerType, List<TypeSignature> typeArguments) {
+		List<TypeSignature> args = typeArguments.isEmpty() ? NO_ARGUMENTS : Collections
+				.unmodifiableList(new ArrayList<TypeSignature>(typeArguments));
+		return new TypeSignature(Kind.CLASS, name, null, ownerType, args, null, false);
+	}
+
+	static TypeSignature typeVariable(String name, String declaringClassName) {
+		return new TypeSignature(Kind.TYPE_VARIABLE, name, declaringClassName, null, NO_ARGUMENTS, null, false);
+	}
+
+	static TypeSignature wildcardType(TypeSignature bound, boolean lowerBound) {
+		return new TypeSignature(Kind.WILDCARD, null, null, null, NO_ARGUMENTS, bound, lowerBound);
+	}
+
+	static TypeSignature arrayType(TypeSignature componentType) {
+		return new TypeSignature(Kind.ARRAY, null, null, null, NO_ARGUMENTS, componentType, false);
+	}
+
+	/**
+	 * Returns the kind of this type.
+	 *
+	 * @return the kind of this type
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the binary name of the class, the name of the primitive type or
+	 * the name of the type variable, or <code>null</code> for wildcards and
+	 * arrays.
+	 *
+	 * @return the name of this type
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the binary name of the class declaring this type variable, or
+	 * <code>null</code> if it is not known or this is not a type variable.
+	 *
+	 * @return the binary name of the class declaring this type variable
+	 */
+	public String getDeclaringClassName() {
+		return declaringClassName;
+	}
+
+	/**
+	 * Returns the parameterized type this class is a member of, or
+	 * <code>null</code>.
+	 *
+	 * @return the owner type of this class, or <code>null</code>
+	 */
+	public TypeSignature getOwnerType() {
+		return ownerType;
+	}
+
+	/**
+	 * Returns the type arguments of this class.
+	 *
+	 * @return the type arguments of this class, never <code>null</code>
+	 */
+	public List<TypeSignature> getTypeArguments() {
+		return typeArguments;
+	}
+
+	/**
+	 * Returns the component type of this array, or <code>null</code> if this
+	 * is not an array.
+	 *
+	 * @return the component type of this array
+	 */
+	public TypeSignature getComponentType() {
+		return kind == Kind.ARRAY ? bound : null;
+	}
+
+	/**
+	 * Returns the upper bound of this wildcard, or <code>null</code> if this
+	 * is not a wildcard.
+	 *
+	 * @return the upper bound of this wildcard
+	 */
+	public TypeSignature getUpperBound() {
+		if (kind != Kind.WILDCARD) {
+			return null;
+		}
+		return lowerBound ? OBJECT : bound;
+	}
+
+	/**
+	 * Returns the lower bound of this wildcard, or <code>null</code> if it
+	 * has none or this is not a wildcard.
+	 *
+	 * @return the lower bound of this wildcard
+	 */
+	public TypeSignature getLowerBound() {
+		return kind == Kind.WILDCARD && lowerBound ? bound : null;
+	}
+
+	/**
+	 * Returns this type with each type variable replaced by its value in the
+	 * given map. Type variables that are not contained in the map are kept.
+	 *
+	 * @param values
+	 *            the values of type variables by their names
+	 * @return this type with the given type variables replaced
+	 */
+	TypeSignature substitute(Map<String, TypeSignature> values) {
+		if (values.isEmpty()) {
+			return this;
+		}
+		switch (kind) {
+		case TYPE_VARIABLE:
+			TypeSignature value = values.get(name);
+			return value == null ? this : value;
+		case CLASS:
+			if (typeArguments.isEmpty() && ownerType == null) {
+				return this;
+			}
+			List<TypeSignature> args = new ArrayList<TypeSignature>(typeArguments.size());
+			for (TypeSignature arg : typeArguments) {
+				args.add(arg.substitute(values));
+			}
+			TypeSignature owner = ownerType == null ? null : ownerType.substitute(values);
+			return classType(name, owner, args);
+		case WILDCARD:
+			return wildcardType(bound.substitute(values), lowerBound);
+		case ARRAY:
+			return arrayType(bound.substitute(values));
+		default:
+			return this;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		int result = kind.hashCode();
+		result = 31 * result + (name == null ? 0 : name.hashCode());
+		result = 31 * result + (ownerType == null ? 0 : ownerType.hashCode());
+		result = 31 * result + typeArguments.hashCode();
+		result = 31 * result + (bound == null ? 0 : bound.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TypeSignature)) {
+			return false;
+		}
+		TypeSignature other = (TypeSignature) obj;
+		return kind == other.kind && lowerBound == other.lowerBound && equal(name, other.name)
+				&& equal(declaringClassName, other.declaringClassName) && equal(ownerType, other.ownerType)
+				&& typeArguments.equals(other.typeArguments) && equal(bound, other.bound);
+	}
+
+	private static boolean equal(Object obj1, Object obj2) {
+		return obj1 == null ? obj2 == null : obj1.equals(obj2);
+	}
+
+	/**
+	 * Returns this type in the same notation as
+	 * <code>java.lang.reflect.Type.getTypeName()</code>, e.g.
+	 * <code>java.util.Map&lt;java.lang.String, java.lang.Integer&gt;</code>.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		appendTo(result);
+		return result.toString();
+	}
+
+	private void appendTo(StringBuilder result) {
+		switch (kind) {
+		case CLASS:
+			if (ownerType != null) {
+				ownerType.appendTo(result);
+				result.append('$').append(name.substring(name.lastIndexOf('$') + 1));
+			} else {
+				result.append(name);
+			}
+			if (!typeArguments.isEmpty()) {
+				result.append('<');
+				for (int i = 0; i < typeArguments.size(); i++) {
+					if (i > 0) {
+						result.append(", ");
+					}
+					typeArguments.get(i).appendTo(result);
+				}
+				result.append('>');
+			}
+			break;
+		case WILDCARD:
+			if (lowerBound) {
+				result.append("? super ");
+				bound.appendTo(result);
+			} else if (bound.equals(OBJECT)) {
+				result.append('?');
+			} else {
+				result.append("? extends ");
+				bound.appendTo(result);
+			}
+			break;
+		case ARRAY:
+			bound.appendTo(result);
+			result.append("[]");
+			break;
+		default:
+			result.append(name);
+		}
+	}
+}
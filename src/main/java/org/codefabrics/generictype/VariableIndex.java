@@ -0,0 +1,139 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.lang.reflect.TypeVariable;
+
+/**
+ * The {@link VariableIndex} is an immutable hash trie that maps each type
+ * variable to the nearest {@link VariableMapping} that maps it.
+ * <p>
+ * Each trie node branches by 5 bits of the hash code of the variables and only
+ * stores the branches that are used. Adding a variable copies the nodes on its
+ * path and shares all others with the original index, so deriving the index
+ * of a child mapping takes <i>O(log n)</i> time and memory per added variable,
+ * and a lookup takes <i>O(log n)</i> time, independent of the depth of the
+ * mapping.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+final class VariableIndex {
+	static final VariableIndex EMPTY = new VariableIndex(0, new Object[0]);
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	// a bit for each used branch
+	private final int bitmap;
+	// the used branches in the order of their bits, either an Entry or a
+	// VariableIndex
+	private final Object[] branches;
+
+	private static final class Entry {
+		final TypeVariable<?> variable;
+		final int hash;
+		final VariableMapping mapping;
+		// another entry with the same hash code
+		final Entry next;
+
+		Entry(TypeVariable<?> variable, int hash, VariableMapping mapping, Entry next) {
+			this.variable = variable;
+			this.hash = hash;
+			this.mapping = mapping;
+			this.next = next;
+		}
+	}
+
+	private VariableIndex(int bitmap, Object[] branches) {
+		this.bitmap = bitmap;
+		this.branches = branches;
+	}
+
+	/**
+	 * Returns the mapping the given variable is indexed for, or
+	 * <code>null</code> if it isn't indexed.
+	 *
+	 * @param variable
+	 * @return the mapping of the given variable, or <code>null</code>
+	 */
+	VariableMapping get(TypeVariable<?> variable) {
+		int hash = variable.hashCode();
+		VariableIndex node = this;
+		for (int shift = 0;; shift += BITS) {
+			int bit = 1 << (hash >>> shift & MASK);
+			if ((node.bitmap & bit) == 0) {
+				return null;
+			}
+			Object branch = node.branches[Integer.bitCount(node.bitmap & bit - 1)];
+			if (branch instanceof VariableIndex) {
+				node = (VariableIndex) branch;
+				continue;
+			}
+			for (Entry entry = (Entry) branch; entry != null; entry = entry.next) {
+				if (entry.hash == hash && entry.variable.equals(variable)) {
+					return entry.mapping;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Returns an index that maps the given variable to the given mapping and
+	 * all other variables like this index.
+	 *
+	 * @param variable
+	 * @param mapping
+	 * @return the new index
+	 */
+	VariableIndex put(TypeVariable<?> variable, VariableMapping mapping) {
+		int hash = variable.hashCode();
+		return put(new Entry(variable, hash, mapping, null), 0);
+	}
+
+	private VariableIndex put(Entry entry, int shift) {
+		int bit = 1 << (entry.hash >>> shift & MASK);
+		int position = Integer.bitCount(bitmap & bit - 1);
+		if ((bitmap & bit) == 0) {
+			Object[] newBranches = new Object[branches.length + 1];
+			System.arraycopy(branches, 0, newBranches, 0, position);
+			newBranches[position] = entry;
+			System.arraycopy(branches, position, newBranches, position + 1, branches.length - position);
+			return new VariableIndex(bitmap | bit, newBranches);
+		}
+		Object branch = branches[position];
+		Object newBranch;
+		if (branch instanceof VariableIndex) {
+			newBranch = ((VariableIndex) branch).put(entry, shift + BITS);
+		} else {
+			Entry old = (Entry) branch;
+			if (old.hash == entry.hash || shift + BITS >= Integer.SIZE) {
+				newBranch = replace(old, entry);
+			} else {
+				// split the branch
+				newBranch = EMPTY.put(old, shift + BITS).put(entry, shift + BITS);
+			}
+		}
+		Object[] newBranches = branches.clone();
+		newBranches[position] = newBranch;
+		return new VariableIndex(bitmap, newBranches);
+	}
+
+	/**
+	 * Returns the given chain of entries with the same hash code with the
+	 * given entry, replacing the entry of the same variable.
+	 */
+	private static Entry replace(Entry chain, Entry entry) {
+		if (chain == null) {
+			return entry;
+		}
+		if (chain.variable.equals(entry.variable)) {
+			return new Entry(entry.variable, entry.hash, entry.mapping, chain.next);
+		}
+		return new Entry(chain.variable, chain.hash, chain.mapping, replace(chain.next, entry));
+	}
+}
@@ -8,17 +8,41 @@ package org.codefabrics.generictype;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The {@link VariableMapping} maps type variables to type values.
+ * <p>
+ * A {@link VariableMapping} is immutable. It is linked to its parent mapping
+ * and only stores the entries it adds to it, so that deriving a new mapping
+ * from an existing one does not copy the parent's entries. A
+ * {@link VariableIndex} shared with the parent finds the mapping of a
+ * variable without walking the chain of parents.
+ * </p>
+ * <p>
+ * The only mutable state are the values memoized by {@link #resolve}. They
+ * are written without synchronization, like the hash code of a
+ * {@link String}: a thread that doesn't see the memo of another thread
+ * resolves the value again, with the same result.
+ * </p>
  * 
  * @author Michael Karneim
  */
 public class VariableMapping {
+	private static final TypeVariable<?>[] NO_VARIABLES = new TypeVariable<?>[0];
+	private static final Type[] NO_VALUES = new Type[0];
 
-	private final Map<TypeVariable<?>, Type> mapping = new HashMap<TypeVariable<?>, Type>();
+	private final VariableMapping parent;
+	private final TypeVariable<?>[] variables;
+	private final Type[] values;
+	private final int size;
+	// the nearest mapping of each variable, from this one up to the root
+	private final VariableIndex index;
+	// the values resolved within the parent mapping, computed lazily; a racy
+	// but benign memo, since the values are immutable and any thread computes
+	// the same ones
+	private Type[] resolvedValues;
 
 	/**
 	 * Creates an empty variable mapping.
@@ -28,26 +52,49 @@ public class VariableMapping {
 	}
 
 	/**
-	 * Creates a copy of the given variable mapping.
+	 * Creates a variable mapping with the same entries as the given variable
+	 * mapping.
 	 * 
 	 * @param aParentMapping
 	 */
 	public VariableMapping(VariableMapping aParentMapping) {
-		if (aParentMapping != null) {
-			mapping.putAll(aParentMapping.mapping);
-		}
+		this.parent = skipEmpty(aParentMapping);
+		this.variables = NO_VARIABLES;
+		this.values = NO_VALUES;
+		this.size = parent == null ? 0 : parent.size;
+		this.index = parent == null ? VariableIndex.EMPTY : parent.index;
+		Resolution.mappingCreated();
 	}
 
 	/**
-	 * Creates a copy of the given variable mapping and populates it with the
-	 * type variable mapping of the given parameterized type.
+	 * Creates a variable mapping with the entries of the given variable mapping
+	 * and populates it with the type variable mapping of the given
+	 * parameterized type.
 	 * 
 	 * @param aParentMapping
 	 * @param parameterizedType
 	 */
 	public VariableMapping(VariableMapping aParentMapping, ParameterizedType parameterizedType) {
-		this(aParentMapping);
-		this.addTypeArgumentsOfParameterizedType(parameterizedType);
+		this.parent = skipEmpty(aParentMapping);
+		List<TypeVariable<?>> vars = new ArrayList<TypeVariable<?>>();
+		List<Type> vals = new ArrayList<Type>();
+		addTypeArgumentsOfParameterizedType(parameterizedType, vars, vals);
+		this.variables = vars.toArray(new TypeVariable<?>[vars.size()]);
+		this.values = vals.toArray(new Type[vals.size()]);
+		this.size = (parent == null ? 0 : parent.size) + variables.length;
+		VariableIndex newIndex = parent == null ? VariableIndex.EMPTY : parent.index;
+		for (TypeVariable<?> variable : variables) {
+			newIndex = newIndex.put(variable, this);
+		}
+		this.index = newIndex;
+		Resolution.mappingCreated();
+	}
+
+	private static VariableMapping skipEmpty(VariableMapping aMapping) {
+		while (aMapping != null && aMapping.variables.length == 0) {
+			aMapping = aMapping.parent;
+		}
+		return aMapping;
 	}
 
 	/**
@@ -57,23 +104,189 @@ public class VariableMapping {
 	 * @return <code>true</code> if the given variable is mapped to some value
 	 */
 	public boolean isMapped(TypeVariable<?> variable) {
-		return mapping.containsKey(variable);
+		return get(variable) != null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the type parameters of the given
+	 * parameterized type can be mapped to its actual type arguments without
+	 * remapping a variable that is already mapped to some other value.
+	 * 
+	 * @param parameterizedType
+	 * @return <code>true</code> if the type arguments can be mapped
+	 */
+	boolean canMap(ParameterizedType parameterizedType) {
+		// check the type and all of its parameterized owner types
+		for (ParameterizedType pType = parameterizedType; pType != null; pType = getParameterizedOwnerType(pType)) {
+			Type[] args = pType.getActualTypeArguments();
+			TypeVariable<?>[] params = ((Class<?>) pType.getRawType()).getTypeParameters();
+			for (int i = 0; i < params.length; i++) {
+				Type old = get(params[i]);
+				if (params[i] != args[i] && old != null && old != args[i]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static ParameterizedType getParameterizedOwnerType(ParameterizedType parameterizedType) {
+		Type ownerType = parameterizedType.getOwnerType();
+		return ownerType instanceof ParameterizedType ? (ParameterizedType) ownerType : null;
+	}
+
+	/**
+	 * Returns <code>true</code> if this mapping does not map any variable.
+	 * 
+	 * @return <code>true</code> if this mapping does not map any variable
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value that is directly mapped to the given variable, or
+	 * <code>null</code> if the variable is not mapped.
+	 * 
+	 * @param variable
+	 * @return the value that is directly mapped to the given variable
+	 */
+	private Type get(TypeVariable<?> variable) {
+		VariableMapping m = index.get(variable);
+		return m == null ? null : m.values[m.indexOf(variable)];
 	}
 
 	/**
 	 * Resolves the mapped value of the given variable. Returns the mapped
 	 * value.
+	 * <p>
+	 * If the value is a variable again, it is resolved as well, and so on.
+	 * Each chain of variables is followed only once: afterwards each mapping
+	 * on the chain remembers the final value, so resolving any variable of the
+	 * chain again takes constant time.
+	 * </p>
 	 * 
 	 * @param variable
 	 *            the variable to resolve
 	 * @return the value that is mapped to this variable
+	 * @throws IllegalStateException
+	 *             if the chain of variables is cyclic, e.g.
+	 *             <code>T -> U -> T</code>
 	 */
-	public Type resolve(TypeVariable<?> variable) {
-		Type value = mapping.get(variable);
-		if (value instanceof TypeVariable<?> && isMapped((TypeVariable<?>) value)) {
-			return resolve((TypeVariable<?>) value);
+	public Type resolve(TypeVariable<?> variable) throws IllegalStateException {
+		Type result = null;
+		VariableMapping m = findMappingBelow(null, variable);
+		while (m != null) {
+			result = m.resolveWithin(variable);
+			if (!(result instanceof TypeVariable<?>) || m == this) {
+				break;
+			}
+			// the value could still be mapped by a mapping below m
+			variable = (TypeVariable<?>) result;
+			m = findMappingBelow(m, variable);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first mapping from this one up to, but excluding, the given
+	 * one, that maps the given variable.
+	 */
+	private VariableMapping findMappingBelow(VariableMapping end, TypeVariable<?> variable) {
+		VariableMapping result = index.get(variable);
+		// the mappings below the given one have a larger size
+		if (result == null || end != null && result.size <= end.size) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first mapping from the parent of this one up to the root,
+	 * that maps the given variable.
+	 */
+	private VariableMapping findMappingAbove(TypeVariable<?> variable) {
+		return parent == null ? null : parent.index.get(variable);
+	}
+
+	private int indexOf(TypeVariable<?> variable) {
+		TypeVariable<?>[] vars = variables;
+		for (int i = 0; i < vars.length; i++) {
+			if (vars[i].equals(variable)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Resolves the given variable, which must be mapped by this mapping,
+	 * within this mapping and its parents. The chain of variables is followed
+	 * in a loop from each mapping to the next parent mapping the current
+	 * variable. Since a mapping never
+	 * changes, the resolved value of each variable on the chain is remembered,
+	 * so any later resolution stops at the first mapping it meets that has
+	 * been passed before. This compresses the chain to its final value, like
+	 * the path compression of a union-find structure.
+	 */
+	private Type resolveWithin(TypeVariable<?> variable) throws IllegalStateException {
+		// follow the chain up to the first remembered or final value
+		Type result = null;
+		int passed = 0;
+		TypeVariable<?> var = variable;
+		for (VariableMapping m = this; m != null; m = m.findMappingAbove(var)) {
+			int index = m.indexOf(var);
+			Type[] resolved = m.resolvedValues;
+			if (resolved != null && resolved[index] != null) {
+				result = resolved[index];
+				break;
+			}
+			passed++;
+			result = m.values[index];
+			if (!(result instanceof TypeVariable<?>)) {
+				break;
+			}
+			var = (TypeVariable<?>) result;
+		}
+		// the chain is cyclic if it ends at one of its own variables
+		if (result instanceof TypeVariable<?>) {
+			assertNotPassed(variable, passed, (TypeVariable<?>) result);
+		}
+		// remember the value in each mapping passed
+		var = variable;
+		for (VariableMapping m = this; passed > 0; m = m.findMappingAbove(var)) {
+			int index = m.indexOf(var);
+			Type[] resolved = m.resolvedValues;
+			if (resolved == null) {
+				resolved = new Type[m.values.length];
+				m.resolvedValues = resolved;
+			}
+			resolved[index] = result;
+			passed--;
+			if (m.values[index] instanceof TypeVariable<?>) {
+				var = (TypeVariable<?>) m.values[index];
+			}
+		}
+		return result;
+	}
+
+	private void assertNotPassed(TypeVariable<?> variable, int passed, TypeVariable<?> result)
+			throws IllegalStateException {
+		StringBuilder chain = new StringBuilder();
+		boolean cyclic = false;
+		TypeVariable<?> var = variable;
+		for (VariableMapping m = this; passed > 0; m = m.findMappingAbove(var)) {
+			int index = m.indexOf(var);
+			cyclic |= var.equals(result);
+			chain.append(var).append(" -> ");
+			passed--;
+			if (m.values[index] instanceof TypeVariable<?>) {
+				var = (TypeVariable<?>) m.values[index];
+			}
+		}
+		if (cyclic) {
+			throw new IllegalStateException(String.format("Cyclic mapping of type variables: %s%s", chain, result));
 		}
-		return value;
 	}
 
 	/**
@@ -98,28 +311,27 @@ public class VariableMapping {
 	 * 
 	 * @param variable
 	 * @param toValue
+	 * @param vars
+	 *            the variables added so far
+	 * @param vals
+	 *            the values added so far
 	 * @throws IllegalArgumentException
 	 *             if the variable is already mapped
 	 */
-	private void add(TypeVariable<?> variable, Type toValue) throws IllegalArgumentException {
+	private void add(TypeVariable<?> variable, Type toValue, List<TypeVariable<?>> vars, List<Type> vals)
+			throws IllegalArgumentException {
 		if (variable != toValue) {
-			Type old = mapping.put(variable, toValue);
+			int index = vars.indexOf(variable);
+			Type old = index >= 0 ? vals.get(index) : parent == null ? null : parent.get(variable);
 			if (old != null && old != toValue) {
 				throw new IllegalArgumentException("var already mapped! var=" + variable);
 			}
-		}
-		// throw new IllegalArgumentException();
-	}
-
-	/**
-	 * Maps the given variables to the given values.
-	 * 
-	 * @param variables
-	 * @param toValues
-	 */
-	private void add(TypeVariable<?>[] variables, Type[] toValues) {
-		for (int i = 0; i < variables.length; i++) {
-			add(variables[i], toValues[i]);
+			if (index >= 0) {
+				vals.set(index, toValue);
+			} else {
+				vars.add(variable);
+				vals.add(toValue);
+			}
 		}
 	}
 
@@ -128,12 +340,29 @@ public class VariableMapping {
 	 * type arguments.
 	 * 
 	 * @param parameterizedType
+	 * @param vars
+	 *            the variables added so far
+	 * @param vals
+	 *            the values added so far
 	 */
-	private void addTypeArgumentsOfParameterizedType(ParameterizedType parameterizedType) {
-		if (parameterizedType.getOwnerType() instanceof ParameterizedType) {
-			addTypeArgumentsOfParameterizedType((ParameterizedType) parameterizedType.getOwnerType());
+	private void addTypeArgumentsOfParameterizedType(ParameterizedType parameterizedType, List<TypeVariable<?>> vars,
+			List<Type> vals) {
+		ParameterizedType ownerType = getParameterizedOwnerType(parameterizedType);
+		if (ownerType != null) {
+			// the outermost owner type first
+			List<ParameterizedType> ownerTypes = new ArrayList<ParameterizedType>();
+			while (ownerType != null) {
+				ownerTypes.add(ownerType);
+				ownerType = getParameterizedOwnerType(ownerType);
+			}
+			for (int i = ownerTypes.size() - 1; i >= 0; i--) {
+				addTypeArguments(ownerTypes.get(i), vars, vals);
+			}
 		}
+		addTypeArguments(parameterizedType, vars, vals);
+	}
 
+	private void addTypeArguments(ParameterizedType parameterizedType, List<TypeVariable<?>> vars, List<Type> vals) {
 		// .... extends MyClass<X,String>
 		Type[] args = parameterizedType.getActualTypeArguments();
 
@@ -141,7 +370,9 @@ public class VariableMapping {
 		Class<?> forRawClass = (Class<?>) parameterizedType.getRawType();
 		TypeVariable<?>[] params = forRawClass.getTypeParameters();
 
-		this.add(params, args);
+		for (int i = 0; i < params.length; i++) {
+			add(params[i], args[i], vars, vals);
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,277 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.codefabrics.generictype.GenerateResolutionTable;
+import org.codefabrics.generictype.ResolutionTable;
+
+/**
+ * The {@link ResolutionTableProcessor} generates a {@link ResolutionTable} for
+ * each class marked with {@link GenerateResolutionTable}.
+ * <p>
+ * The processor is registered as a service in its own artifact with the
+ * classifier <code>processor</code>, so it only runs when this artifact is on
+ * the processor path. It doesn't load any class of the library, so the
+ * artifact doesn't need the library jar. It only generates code for marked
+ * classes. Values that do not resolve to a plain, accessible class
+ * are left out of the table and are resolved by reflection at runtime.
+ * </p>
+ *
+ * @author Michael Karneim
+ */
+@SupportedAnnotationTypes("org.codefabrics.generictype.GenerateResolutionTable")
+public class ResolutionTableProcessor extends AbstractProcessor {
+	private static final String TABLE_CLASS_NAME = "org.codefabrics.generictype.ResolutionTable";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		// the only supported annotation is GenerateResolutionTable
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element instanceof TypeElement) {
+					TypeElement type = (TypeElement) element;
+					try {
+						generate(type);
+					} catch (IOException ex) {
+						processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+								"Can't write resolution table: " + ex.getMessage(), type);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		Elements elements = processingEnv.getElementUtils();
+		PackageElement pkg = elements.getPackageOf(type);
+		String binaryName = elements.getBinaryName(type).toString();
+		String tableName = binaryName + ResolutionTable.SUFFIX;
+		String simpleName = pkg.isUnnamed() ? tableName : tableName.substring(pkg.getQualifiedName().length() + 1);
+
+		DeclaredType declaredType = (DeclaredType) type.asType();
+		List<String> typeParameters = new ArrayList<String>();
+		addTypeParameters(declaredType, pkg, typeParameters, new HashSet<Element>());
+		Map<String, String> fieldTypes = new LinkedHashMap<String, String>();
+		Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+		addMembers(declaredType, type, pkg, fieldTypes, methods, new HashSet<Element>());
+		Types types = processingEnv.getTypeUtils();
+		Map<String, String> methodReturnTypes = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, ExecutableElement> entry : methods.entrySet()) {
+			ExecutableType methodType = (ExecutableType) types.asMemberOf(declaredType, entry.getValue());
+			methodReturnTypes.put(entry.getKey(), toClassLiteral(methodType.getReturnType(), pkg));
+		}
+
+		PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(tableName, type).openWriter());
+		try {
+			if (!pkg.isUnnamed()) {
+				out.printf("package %s;%n%n", pkg.getQualifiedName());
+			}
+			out.printf("/**%n * Generated by %s for {@link %s}.%n */%n", getClass().getName(), type.getQualifiedName());
+			out.printf("public final class %s extends %s {%n", simpleName, TABLE_CLASS_NAME);
+			out.printf("\tpublic %s() {%n", simpleName);
+			for (String statement : typeParameters) {
+				out.printf("\t\t%s%n", statement);
+			}
+			for (Map.Entry<String, String> entry : fieldTypes.entrySet()) {
+				if (entry.getValue() != null) {
+					out.printf("\t\tfieldType(\"%s\", %s);%n", entry.getKey(), entry.getValue());
+				}
+			}
+			for (Map.Entry<String, String> entry : methodReturnTypes.entrySet()) {
+				if (entry.getValue() != null) {
+					out.printf("\t\tmethodReturnType(\"%s\", %s);%n", entry.getKey(), entry.getValue());
+				}
+			}
+			out.printf("\t}%n}%n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Adds a statement for each type parameter of the supertypes of the given
+	 * type that resolves to a plain class. The supertypes are visited in the
+	 * same order as {@link org.codefabrics.generictype.GenericType} does.
+	 */
+	private void addTypeParameters(DeclaredType type, PackageElement pkg, List<String> statements,
+			Set<Element> visited) {
+		Types types = processingEnv.getTypeUtils();
+		for (TypeMirror superType : types.directSupertypes(type)) {
+			if (superType.getKind() != TypeKind.DECLARED) {
+				continue;
+			}
+			DeclaredType declaredSuperType = (DeclaredType) superType;
+			TypeElement superElement = (TypeElement) declaredSuperType.asElement();
+			if (!visited.add(superElement)) {
+				continue;
+			}
+			List<? extends TypeParameterElement> params = superElement.getTypeParameters();
+			List<? extends TypeMirror> args = declaredSuperType.getTypeArguments();
+			String declaringClass = toClassLiteral(types.erasure(declaredSuperType), pkg);
+			if (declaringClass != null && params.size() == args.size()) {
+				for (int i = 0; i < params.size(); i++) {
+					String value = toClassLiteral(args.get(i), pkg);
+					if (value != null) {
+						statements.add(String.format("typeParameter(%s, \"%s\", %s);", declaringClass, params.get(i)
+								.getSimpleName(), value));
+					}
+				}
+			}
+			addTypeParameters(declaredSuperType, pkg, statements, visited);
+		}
+	}
+
+	/**
+	 * Adds the types of the fields and methods without parameters declared by
+	 * the given type element and its supertypes, as seen from the given root
+	 * type, and collects the methods without parameters by name. Fields
+	 * declared by subtypes hide fields declared by supertypes, and fields are
+	 * only searched in classes. Methods are chosen like
+	 * {@link org.codefabrics.generictype.GenericType} does: the first one found
+	 * wins, unless a later one has a more specific return type.
+	 */
+	private void addMembers(DeclaredType root, TypeElement element, PackageElement pkg,
+			Map<String, String> fieldTypes, Map<String, ExecutableElement> methods, Set<Element> visited) {
+		// process the superclass chain first
+		for (TypeElement cls = element; cls != null; cls = superclassOf(cls)) {
+			visited.add(cls);
+			addDeclaredMembers(root, cls, pkg, fieldTypes, methods);
+		}
+		// then the superinterfaces
+		for (TypeElement cls = element; cls != null; cls = superclassOf(cls)) {
+			addInterfaceMembers(root, cls, pkg, methods, visited);
+		}
+	}
+
+	private void addInterfaceMembers(DeclaredType root, TypeElement element, PackageElement pkg,
+			Map<String, ExecutableElement> methods, Set<Element> visited) {
+		Types types = processingEnv.getTypeUtils();
+		for (TypeMirror superInterface : element.getInterfaces()) {
+			TypeElement superElement = (TypeElement) types.asElement(superInterface);
+			if (superElement != null && visited.add(superElement)) {
+				addDeclaredMembers(root, superElement, pkg, null, methods);
+				addInterfaceMembers(root, superElement, pkg, methods, visited);
+			}
+		}
+	}
+
+	private void addDeclaredMembers(DeclaredType root, TypeElement element, PackageElement pkg,
+			Map<String, String> fieldTypes, Map<String, ExecutableElement> methods) {
+		Types types = processingEnv.getTypeUtils();
+		for (Element member : element.getEnclosedElements()) {
+			String name = member.getSimpleName().toString();
+			if (member.getKind() == ElementKind.FIELD && fieldTypes != null && !fieldTypes.containsKey(name)) {
+				TypeMirror fieldType = types.asMemberOf(root, member);
+				fieldTypes.put(name, toClassLiteral(fieldType, pkg));
+			} else if (member.getKind() == ElementKind.METHOD && ((ExecutableElement) member).getParameters().isEmpty()) {
+				ExecutableElement method = (ExecutableElement) member;
+				ExecutableElement other = methods.get(name);
+				if (other == null || hasMoreSpecificReturnType(method, other)) {
+					methods.put(name, method);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the erased return type of method1 is a
+	 * proper subtype of the erased return type of method2, the same rule as
+	 * the runtime method index applies to the declared return types.
+	 */
+	private boolean hasMoreSpecificReturnType(ExecutableElement method1, ExecutableElement method2) {
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror returnType1 = types.erasure(method1.getReturnType());
+		TypeMirror returnType2 = types.erasure(method2.getReturnType());
+		if (returnType1.getKind().isPrimitive() || returnType1.getKind() == TypeKind.VOID
+				|| returnType2.getKind().isPrimitive() || returnType2.getKind() == TypeKind.VOID) {
+			// primitive types are only assignable to themselves at runtime
+			return false;
+		}
+		return !types.isSameType(returnType1, returnType2) && types.isSubtype(returnType1, returnType2);
+	}
+
+	private TypeElement superclassOf(TypeElement element) {
+		TypeMirror superclass = element.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		return (TypeElement) ((DeclaredType) superclass).asElement();
+	}
+
+	/**
+	 * Returns the class literal of the given type, or <code>null</code> if the
+	 * type is not a plain class that is accessible from the given package.
+	 */
+	private String toClassLiteral(TypeMirror type, PackageElement pkg) {
+		if (type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID) {
+			return type.toString() + ".class";
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		DeclaredType declaredType = (DeclaredType) type;
+		if (!declaredType.getTypeArguments().isEmpty()) {
+			return null;
+		}
+		// an inner class of a generic class is a parameterized type at runtime,
+		// e.g. Outer<String>.Inner
+		for (TypeMirror t = declaredType.getEnclosingType(); t.getKind() == TypeKind.DECLARED; t = ((DeclaredType) t)
+				.getEnclosingType()) {
+			if (!((TypeElement) ((DeclaredType) t).asElement()).getTypeParameters().isEmpty()) {
+				return null;
+			}
+		}
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement element = (TypeElement) declaredType.asElement();
+		for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement) e;
+			if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS
+					|| t.getModifiers().contains(Modifier.PRIVATE)) {
+				return null;
+			}
+			if (!t.getModifiers().contains(Modifier.PUBLIC) && !elements.getPackageOf(t).equals(pkg)) {
+				return null;
+			}
+		}
+		return element.getQualifiedName().toString() + ".class";
+	}
+}
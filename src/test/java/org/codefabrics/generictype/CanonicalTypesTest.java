@@ -0,0 +1,128 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class CanonicalTypesTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(CanonicalTypesTest.class);
+	}
+
+	private static class Fields<T> {
+		@SuppressWarnings("unused")
+		Map<String, List<Integer>> map1;
+		@SuppressWarnings("unused")
+		Map<String, List<Integer>> map2;
+		@SuppressWarnings("unused")
+		List<? extends Number> numbers;
+		@SuppressWarnings("unused")
+		List<? super T> consumers;
+		@SuppressWarnings("unused")
+		List<T>[] lists;
+		@SuppressWarnings("unused")
+		List<T> items;
+	}
+
+	private static class LongFields extends Fields<Long> {
+	}
+
+	private static Type typeOf(String fieldname) throws NoSuchFieldException {
+		return Fields.class.getDeclaredField(fieldname).getGenericType();
+	}
+
+	@Test
+	public void testCanonicalizeIsEqualToJdkType() throws NoSuchFieldException {
+		// Given:
+		Type jdkType = typeOf("map1");
+		// When:
+		Type canonical = CanonicalTypes.canonicalize(jdkType);
+		// Then:
+		assertTrue("canonical instanceof ParameterizedType", canonical instanceof ParameterizedType);
+		assertEquals("canonical", jdkType, canonical);
+		assertEquals("jdkType", canonical, jdkType);
+		assertEquals("canonical.hashCode()", jdkType.hashCode(), canonical.hashCode());
+		assertEquals("canonical.toString()", jdkType.toString(), canonical.toString());
+	}
+
+	@Test
+	public void testEqualTypesAreIdentical() throws NoSuchFieldException {
+		// Given:
+		Type jdkType1 = typeOf("map1");
+		Type jdkType2 = typeOf("map2");
+		// When:
+		Type canonical1 = CanonicalTypes.canonicalize(jdkType1);
+		Type canonical2 = CanonicalTypes.canonicalize(jdkType2);
+		Type canonical3 = CanonicalTypes.newParameterizedType(null, Map.class, String.class,
+				CanonicalTypes.newParameterizedType(null, List.class, Integer.class));
+		// Then:
+		assertSame("canonical2", canonical1, canonical2);
+		assertSame("canonical3", canonical1, canonical3);
+		assertSame("canonicalize(canonical1)", canonical1, CanonicalTypes.canonicalize(canonical1));
+	}
+
+	@Test
+	public void testWildcardType() throws NoSuchFieldException {
+		// Given:
+		ParameterizedType jdkType = (ParameterizedType) typeOf("numbers");
+		// When:
+		ParameterizedType canonical = (ParameterizedType) CanonicalTypes.canonicalize(jdkType);
+		WildcardType wildcard = (WildcardType) canonical.getActualTypeArguments()[0];
+		// Then:
+		assertEquals("wildcard", jdkType.getActualTypeArguments()[0], wildcard);
+		assertEquals("wildcard.hashCode()", jdkType.getActualTypeArguments()[0].hashCode(), wildcard.hashCode());
+		assertEquals("wildcard.toString()", "? extends java.lang.Number", wildcard.toString());
+		assertSame("newWildcardType", wildcard,
+				CanonicalTypes.newWildcardType(new Type[] { Number.class }, new Type[0]));
+	}
+
+	@Test
+	public void testGenericArrayType() throws NoSuchFieldException {
+		// Given:
+		Type jdkType = typeOf("lists");
+		// When:
+		Type canonical = CanonicalTypes.canonicalize(jdkType);
+		// Then:
+		assertTrue("canonical instanceof GenericArrayType", canonical instanceof GenericArrayType);
+		assertEquals("canonical", jdkType, canonical);
+		assertEquals("canonical.hashCode()", jdkType.hashCode(), canonical.hashCode());
+		assertEquals("newArrayType(String.class)", String[].class, CanonicalTypes.newArrayType(String.class));
+	}
+
+	@Test
+	public void testGetCanonicalType() {
+		// Given:
+		GenericType gt = new GenericType(LongFields.class);
+		// When:
+		Type consumers = gt.getFieldType("consumers").getCanonicalType();
+		Type items = gt.getFieldType("items").getCanonicalType();
+		// Then:
+		assertEquals("consumers.toString()", "java.util.List<? super java.lang.Long>", consumers.toString());
+		assertSame("items", CanonicalTypes.newParameterizedType(null, List.class, Long.class), items);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfTypeArguments() {
+		// Given:
+		Class<?> rawType = Map.class;
+		// When:
+		CanonicalTypes.newParameterizedType(null, rawType, String.class);
+		// Then: expect exception
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathScannerTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ClasspathScannerTest.class);
+	}
+
+	static interface Handler<E> {
+	}
+
+	static class Base<K, V> implements Handler<List<V>> {
+	}
+
+	static class Middle<V> extends Base<String, V> {
+	}
+
+	static class IntegerMiddle extends Middle<Integer> {
+	}
+
+	@SuppressWarnings("rawtypes")
+	static class RawMiddle<K> extends Base {
+	}
+
+	static class StringRawMiddle extends RawMiddle<String> {
+	}
+
+	@SuppressWarnings("serial")
+	static class StringList extends ArrayList<String> {
+	}
+
+	static class Outer<T> {
+		class Inner {
+		}
+
+		static class InnerList<U> extends ArrayList<Outer<U[]>.Inner> {
+			private static final long serialVersionUID = 1L;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static File getTestClassesDirectory() throws URISyntaxException {
+		return new File(ClasspathScannerTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+	}
+
+	@Test
+	public void testScanDirectory() throws Exception {
+		// Given:
+		File root = getTestClassesDirectory();
+		// When:
+		ClasspathScanner scanner = ClasspathScanner.scan(root);
+		// Then:
+		assertTrue("scanner.getClassNames().contains(IntegerMiddle)",
+				scanner.getClassNames().contains(IntegerMiddle.class.getName()));
+		assertEquals("K", "java.lang.String",
+				scanner.getTypeParameter(IntegerMiddle.class.getName(), Base.class.getTypeParameters()[0]).toString());
+		assertEquals("V", "java.lang.Integer",
+				scanner.getTypeParameter(IntegerMiddle.class.getName(), Base.class.getTypeParameters()[1]).toString());
+		assertEquals("E", "java.util.List<java.lang.Integer>",
+				scanner.getTypeParameter(IntegerMiddle.class.getName(), Handler.class.getTypeParameters()[0])
+						.toString());
+	}
+
+	@Test
+	public void testSameResultAsGenericType() throws Exception {
+		// Given:
+		ClasspathScanner scanner = ClasspathScanner.scan(getTestClassesDirectory());
+		// When:
+		TypeSignature v = scanner.getTypeParameter(Middle.class.getName(), Base.class.getTypeParameters()[1]);
+		TypeSignature e = scanner.getTypeParameter(StringList.class.getName(), Collection.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("v.getKind()", TypeSignature.Kind.TYPE_VARIABLE, v.getKind());
+		assertEquals("v.getName()", "V", v.getName());
+		assertEquals("v.getDeclaringClassName()", Middle.class.getName(), v.getDeclaringClassName());
+		assertTrue("GenericType V isTypeVariable()",
+				new GenericType(Middle.class).getTypeParameter(Base.class.getTypeParameters()[1]).isTypeVariable());
+		assertEquals("e", String.class.getName(), e.toString());
+		assertEquals("GenericType E", String.class,
+				new GenericType(StringList.class).getTypeParameter(Collection.class.getTypeParameters()[0]).getType());
+		assertNull("unrelated", scanner.getTypeParameter(StringList.class.getName(), Base.class.getTypeParameters()[0]));
+	}
+
+	@Test
+	public void testInnerClassOfParameterizedType() throws Exception {
+		// Given:
+		ClasspathScanner scanner = ClasspathScanner.scan(getTestClassesDirectory());
+		// When:
+		TypeSignature e = scanner.getTypeParameter(Outer.InnerList.class.getName(),
+				Collection.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("e.getName()", Outer.Inner.class.getName(), e.getName());
+		assertEquals("e.getOwnerType().getName()", Outer.class.getName(), e.getOwnerType().getName());
+		assertEquals("e.getOwnerType().getTypeArguments().get(0).getKind()", TypeSignature.Kind.ARRAY, e
+				.getOwnerType().getTypeArguments().get(0).getKind());
+	}
+
+	@Test
+	public void testFindBindings() throws Exception {
+		// Given:
+		ClasspathScanner scanner = ClasspathScanner.scan(getTestClassesDirectory());
+		// When:
+		Map<String, TypeSignature> bindings = scanner.findBindings(Base.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("bindings.get(Middle)", "java.lang.String", bindings.get(Middle.class.getName()).toString());
+		assertEquals("bindings.get(IntegerMiddle)", "java.lang.String", bindings.get(IntegerMiddle.class.getName())
+				.toString());
+		assertFalse("bindings.containsKey(Base)", bindings.containsKey(Base.class.getName()));
+		assertEquals("loadClass", IntegerMiddle.class, scanner.loadClass(IntegerMiddle.class.getName()));
+	}
+
+	@Test
+	public void testMemoizedBindingOfRawType() throws Exception {
+		// Given:
+		ClasspathScanner scanner = ClasspathScanner.scan(getTestClassesDirectory());
+		scanner.findBindings(Base.class.getTypeParameters()[0]);
+		// When:
+		TypeSignature k = scanner.getTypeParameter(StringRawMiddle.class.getName(), Base.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("k.getKind()", TypeSignature.Kind.TYPE_VARIABLE, k.getKind());
+		assertEquals("k.getDeclaringClassName()", Base.class.getName(), k.getDeclaringClassName());
+		assertTrue("GenericType K isTypeVariable()", new GenericType(StringRawMiddle.class).getTypeParameter(
+				Base.class.getTypeParameters()[0]).isTypeVariable());
+	}
+
+	@Test
+	public void testScanJar() throws IOException {
+		// Given:
+		File jar = folder.newFile("classes.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			addClass(out, IntegerMiddle.class, ZipEntry.DEFLATED);
+			addClass(out, Middle.class, ZipEntry.STORED);
+			addClass(out, Base.class, ZipEntry.DEFLATED);
+		} finally {
+			out.close();
+		}
+		// When:
+		ClasspathScanner scanner = ClasspathScanner.scan(jar);
+		// Then:
+		assertEquals("scanner.getClassNames().size()", 3, scanner.getClassNames().size());
+		assertEquals("V", "java.lang.Integer",
+				scanner.getTypeParameter(IntegerMiddle.class.getName(), Base.class.getTypeParameters()[1]).toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testScanInvalidJar() throws IOException {
+		// Given:
+		File file = folder.newFile("invalid.jar");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("no jar".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		// When:
+		ClasspathScanner.scan(file);
+		// Then: expect exception
+	}
+
+	private static void addClass(JarOutputStream out, Class<?> cls, int method) throws IOException {
+		String name = cls.getName().replace('.', '/') + ".class";
+		InputStream in = cls.getClassLoader().getResourceAsStream(name);
+		byte[] bytes;
+		try {
+			bytes = new byte[in.available()];
+			int length = 0;
+			while (length < bytes.length) {
+				length += in.read(bytes, length, bytes.length - length);
+			}
+		} finally {
+			in.close();
+		}
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(method);
+		if (method == ZipEntry.STORED) {
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			entry.setSize(bytes.length);
+			entry.setCompressedSize(bytes.length);
+			entry.setCrc(crc.getValue());
+		}
+		out.putNextEntry(entry);
+		out.write(bytes);
+		out.closeEntry();
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.TypeVariable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DeepHierarchyTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(DeepHierarchyTest.class);
+	}
+
+	private static final int DEPTH = 1500;
+	// small enough to overflow if the resolution recursed along the hierarchy
+	private static final long STACK_SIZE = 256 * 1024;
+	private static final String OBJECT = "Ljava/lang/Object;";
+	private static final String DECLARATION = "<T:" + OBJECT + ">";
+
+	@After
+	public void tearDown() {
+		GenericType.setCacheEnabled(true);
+	}
+
+	/**
+	 * Generates the classes <code>C0&lt;T&gt;</code> to
+	 * <code>C<i>n</i>&lt;T&gt;</code>, where each class extends its predecessor
+	 * and passes <code>T</code> on to it, or the same with interfaces. Returns
+	 * the last one.
+	 */
+	private static Class<?> generateChain(GeneratedClassLoader loader, String pkg, boolean interfaces) {
+		Class<?> result = interfaces ? loader.defineInterface(pkg + "C0", DECLARATION + OBJECT) : loader
+				.defineClass(pkg + "C0", "java.lang.Object", DECLARATION + OBJECT);
+		for (int i = 1; i < DEPTH; i++) {
+			String name = pkg + "C" + i;
+			String superName = pkg + "C" + (i - 1);
+			if (interfaces) {
+				result = loader.defineInterface(name, DECLARATION + OBJECT + toSignature(superName, "TT;"), superName);
+			} else {
+				result = loader.defineClass(name, superName, DECLARATION + toSignature(superName, "TT;"));
+			}
+		}
+		return result;
+	}
+
+	private static String toSignature(String name, String argument) {
+		return "L" + name.replace('.', '/') + "<" + argument + ">;";
+	}
+
+	private static TypeVariable<? extends Class<?>> getVariable(ClassLoader loader, String pkg)
+			throws ClassNotFoundException {
+		@SuppressWarnings("unchecked")
+		TypeVariable<? extends Class<?>> result = (TypeVariable<? extends Class<?>>) loader.loadClass(pkg + "C0")
+				.getTypeParameters()[0];
+		return result;
+	}
+
+	/**
+	 * Runs the given task in a thread with a small stack and rethrows its
+	 * failure.
+	 */
+	private static void runWithSmallStack(final Runnable task) throws Throwable {
+		final Throwable[] failure = new Throwable[1];
+		Thread thread = new Thread(null, new Runnable() {
+			public void run() {
+				try {
+					task.run();
+				} catch (Throwable ex) {
+					failure[0] = ex;
+				}
+			}
+		}, "small-stack", STACK_SIZE);
+		thread.start();
+		thread.join();
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+	@Test
+	public void testDeepSuperclassChain() throws Throwable {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		String pkg = "deep.superclasses.";
+		String last = generateChain(loader, pkg, false).getName();
+		final Class<?> root = loader.defineClass(pkg + "Root", last, toSignature(last, "Ljava/lang/String;"));
+		final TypeVariable<? extends Class<?>> T = getVariable(loader, pkg);
+		GenericType.setCacheEnabled(false);
+		final GenericType[] result = new GenericType[1];
+		final TypeParameterTable[] table = new TypeParameterTable[1];
+		// When:
+		runWithSmallStack(new Runnable() {
+			public void run() {
+				GenericType gt = new GenericType(root);
+				result[0] = gt.getTypeParameter(T);
+				table[0] = gt.resolveAll();
+			}
+		});
+		// Then:
+		assertEquals("result.getType()", String.class, result[0].getType());
+		assertEquals("table.size()", DEPTH, table[0].size());
+		assertEquals("table.get(T).getType()", String.class, table[0].get(T).getType());
+	}
+
+	@Test
+	public void testDeepInterfaceChain() throws Throwable {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		String pkg = "deep.interfaces.";
+		String last = generateChain(loader, pkg, true).getName();
+		final Class<?> root = loader.defineClass(pkg + "Root", "java.lang.Object",
+				OBJECT + toSignature(last, "Ljava/lang/Integer;"), last);
+		final TypeVariable<? extends Class<?>> T = getVariable(loader, pkg);
+		final GenericType[] result = new GenericType[1];
+		// When:
+		runWithSmallStack(new Runnable() {
+			public void run() {
+				result[0] = new GenericType(root).getTypeParameter(T);
+			}
+		});
+		// Then:
+		assertEquals("result.getType()", Integer.class, result[0].getType());
+	}
+
+	@Test
+	public void testDeepChainOfOpenVariables() throws Throwable {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		String pkg = "deep.open.";
+		String last = generateChain(loader, pkg, false).getName();
+		final Class<?> open = loader.defineClass(pkg + "Open", last, "<X:" + OBJECT + ">" + toSignature(last, "TX;"));
+		final TypeVariable<? extends Class<?>> T = getVariable(loader, pkg);
+		final GenericType[] result = new GenericType[1];
+		// When:
+		runWithSmallStack(new Runnable() {
+			public void run() {
+				result[0] = new GenericType(open).getTypeParameter(T);
+			}
+		});
+		// Then:
+		assertTrue("result.getType() instanceof TypeVariable", result[0].getType() instanceof TypeVariable);
+		assertEquals("result.getType()", open.getTypeParameters()[0], result[0].getType());
+	}
+
+	@Test
+	public void testBulkResolutionOfDeepChain() throws Throwable {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		String pkg = "deep.bulk.";
+		String last = generateChain(loader, pkg, false).getName();
+		Class<?> root = loader.defineClass(pkg + "Root", last, toSignature(last, "Ljava/lang/Long;"));
+		TypeVariable<? extends Class<?>> T = getVariable(loader, pkg);
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				return new Thread(null, task, "small-stack", STACK_SIZE);
+			}
+		});
+		try {
+			// When:
+			Map<Class<?>, Map<TypeVariable<?>, GenericType>> result = GenericType.resolveAll(
+					Collections.<Class<?>> singletonList(root),
+					Collections.<TypeVariable<? extends Class<?>>> singletonList(T), executor);
+			// Then:
+			assertEquals("result.get(root).get(T)", Long.class, result.get(root).get(T).getType());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlightRecorderResolutionListenerTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(FlightRecorderResolutionListenerTest.class);
+	}
+
+	private static class Base<K, V> {
+	}
+
+	private static class Middle<V> extends Base<String, V> {
+	}
+
+	private static class Leaf extends Middle<Integer> {
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ResolutionListener listener;
+
+	@After
+	public void tearDown() {
+		GenericType.removeResolutionListener(listener);
+		GenericType.setCacheEnabled(true);
+	}
+
+	@Test
+	public void testDeepResolutionIsRecorded() throws IOException {
+		// Given:
+		GenericType.setCacheEnabled(false);
+		listener = FlightRecorderResolutionListener.install(1, TimeUnit.HOURS, 2);
+		GenericType gt = new GenericType(Leaf.class);
+		File file = folder.newFile("recording.jfr");
+		Recording recording = new Recording();
+		recording.enable(ResolutionEvent.NAME);
+		// When:
+		recording.start();
+		gt.getTypeParameter(Base.class.getTypeParameters()[0]);
+		gt.getTypeParameter(Middle.class.getTypeParameters()[0]);
+		recording.stop();
+		recording.dump(file.toPath());
+		recording.close();
+		// Then:
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		assertEquals("events.size()", 1, events.size());
+		RecordedEvent event = events.get(0);
+		assertEquals("operation", "TYPE_PARAMETER", event.getString("operation"));
+		assertEquals("rootType", Leaf.class.toString(), event.getString("rootType"));
+		assertEquals("target", "K", event.getString("target"));
+		assertEquals("depth", 2, event.getInt("depth"));
+		assertEquals("mappingsCreated", 2, event.getInt("mappingsCreated"));
+	}
+
+	@Test
+	public void testSlowResolutionIsRecorded() throws IOException {
+		// Given:
+		listener = FlightRecorderResolutionListener.install(0, TimeUnit.NANOSECONDS, Integer.MAX_VALUE);
+		GenericType gt = new GenericType(Leaf.class);
+		File file = folder.newFile("recording.jfr");
+		Recording recording = new Recording();
+		recording.enable(ResolutionEvent.NAME);
+		// When:
+		recording.start();
+		gt.getMethodReturnType("toString");
+		recording.stop();
+		recording.dump(file.toPath());
+		recording.close();
+		// Then:
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		assertEquals("events.size()", 1, events.size());
+		assertEquals("target", "toString", events.get(0).getString("target"));
+	}
+
+	@Test
+	public void testNothingIsRecordedWithoutRecording() {
+		// Given:
+		listener = FlightRecorderResolutionListener.install(0, TimeUnit.NANOSECONDS, 0);
+		GenericType gt = new GenericType(Leaf.class);
+		// When:
+		GenericType result = gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		// Then:
+		assertEquals("result.getType()", Integer.class, result.getType());
+	}
+}
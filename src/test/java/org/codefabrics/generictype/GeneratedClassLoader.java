@@ -0,0 +1,115 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link GeneratedClassLoader} defines empty classes and interfaces from
+ * their generic signature, without a compiler. It is used to build hierarchies
+ * that are too large to be written by hand, or too expensive for javac to
+ * compile.
+ * 
+ * @author Michael Karneim
+ */
+public class GeneratedClassLoader extends ClassLoader {
+
+	public GeneratedClassLoader() {
+		super(GeneratedClassLoader.class.getClassLoader());
+	}
+
+	/**
+	 * Defines a public interface without members.
+	 * 
+	 * @param name
+	 *            the binary name of the interface
+	 * @param signature
+	 *            the generic signature, as specified by the JVM specification
+	 * @param interfaces
+	 *            the binary names of the superinterfaces
+	 * @return the interface
+	 */
+	public Class<?> defineInterface(String name, String signature, String... interfaces) {
+		return define(name, true, "java.lang.Object", signature, interfaces);
+	}
+
+	/**
+	 * Defines a public class without members.
+	 * 
+	 * @param name
+	 *            the binary name of the class
+	 * @param superclass
+	 *            the binary name of the superclass
+	 * @param signature
+	 *            the generic signature, as specified by the JVM specification
+	 * @param interfaces
+	 *            the binary names of the superinterfaces
+	 * @return the class
+	 */
+	public Class<?> defineClass(String name, String superclass, String signature, String... interfaces) {
+		return define(name, false, superclass, signature, interfaces);
+	}
+
+	private Class<?> define(String name, boolean isInterface, String superclass, String signature,
+			String... interfaces) {
+		try {
+			byte[] bytes = toClassFile(name, isInterface, superclass, signature, interfaces);
+			return defineClass(name, bytes, 0, bytes.length);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static byte[] toClassFile(String name, boolean isInterface, String superclass, String signature,
+			String... interfaces) throws IOException {
+		List<String> utf8s = new ArrayList<String>();
+		utf8s.add(name.replace('.', '/'));
+		utf8s.add(superclass.replace('.', '/'));
+		for (String superInterface : interfaces) {
+			utf8s.add(superInterface.replace('.', '/'));
+		}
+		utf8s.add("Signature");
+		utf8s.add(signature);
+		// constant pool: the utf8 entries first, then a class entry for each
+		// class name
+		int classCount = 2 + interfaces.length;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(51); // Java 7
+		out.writeShort(1 + utf8s.size() + classCount);
+		for (String utf8 : utf8s) {
+			out.writeByte(1); // CONSTANT_Utf8
+			out.writeUTF(utf8);
+		}
+		for (int i = 0; i < classCount; i++) {
+			out.writeByte(7); // CONSTANT_Class
+			out.writeShort(1 + i);
+		}
+		int firstClass = 1 + utf8s.size();
+		// ACC_PUBLIC and ACC_INTERFACE | ACC_ABSTRACT or ACC_SUPER
+		out.writeShort(isInterface ? 0x0601 : 0x0021);
+		out.writeShort(firstClass);
+		out.writeShort(firstClass + 1);
+		out.writeShort(interfaces.length);
+		for (int i = 0; i < interfaces.length; i++) {
+			out.writeShort(firstClass + 2 + i);
+		}
+		out.writeShort(0); // fields
+		out.writeShort(0); // methods
+		out.writeShort(1); // attributes
+		out.writeShort(1 + classCount);
+		out.writeInt(2);
+		out.writeShort(2 + classCount);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
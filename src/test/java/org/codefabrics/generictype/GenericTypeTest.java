@@ -6,10 +6,15 @@
 package org.codefabrics.generictype;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileFilter;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.math.BigDecimal;
@@ -17,6 +22,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JComponent;
 import javax.swing.JDialog;
@@ -338,6 +345,40 @@ public class GenericTypeTest {
 		assertEquals("bounds[0]", BigDecimal.class, bounds[0]);
 	}
 
+	private static interface DiamondTop<T> {
+
+	}
+
+	private static interface DiamondLeft<T> extends DiamondTop<T> {
+
+	}
+
+	private static interface DiamondRight<T> extends DiamondTop<T> {
+
+	}
+
+	private static interface DiamondBottom<T> extends DiamondLeft<T>, DiamondRight<T> {
+
+	}
+
+	private static class StringDiamond implements DiamondBottom<String>, DiamondRight<String> {
+
+	}
+
+	@Test
+	public void testResolveAllInDiamond() {
+		// Given:
+		GenericType gt = new GenericType(StringDiamond.class);
+		// When:
+		TypeParameterTable table = gt.resolveAll();
+		// Then:
+		assertEquals("table.size()", 4, table.size());
+		for (int i = 0; i < table.size(); i++) {
+			assertEquals("table.getValue(" + table.getVariable(i) + ")", String.class, table.getValue(i).getType());
+		}
+		assertEquals("table.getVariable(3)", DiamondRight.class, table.getVariable(3).getGenericDeclaration());
+	}
+
 	@SuppressWarnings("serial")
 	private static class ChildStringList extends StringList {
 
@@ -621,6 +662,38 @@ public class GenericTypeTest {
 
 	}
 
+	@Test
+	public void testNarrowToTargetType() {
+		// Given:
+		GenericType gt = new GenericType(FileFilterDialog2.class);
+		GenericType typeParam0 = gt.getTypeParameter(ServiceContainer.class.getTypeParameters()[0]);
+		// When:
+		Type fileFilter = typeParam0.narrow(typeParam0.getType(), FileFilter.class);
+		Type component = typeParam0.narrow(typeParam0.getType(), JComponent.class);
+		Type number = typeParam0.narrow(typeParam0.getType(), Number.class);
+		// Then:
+		assertEquals("fileFilter", FileFilter.class, fileFilter);
+		assertEquals("component", JComponent.class, component);
+		assertEquals("number", typeParam0.getType(), number);
+		assertSame("cached", fileFilter, typeParam0.narrow(typeParam0.getType(), FileFilter.class));
+	}
+
+	private static class NestedBounds<A extends Number, B extends A, C extends B> {
+	}
+
+	@Test
+	public void testNarrowNestedBounds() {
+		// Given:
+		GenericType gt = new GenericType(NestedBounds.class);
+		TypeVariable<?> C = NestedBounds.class.getTypeParameters()[2];
+		// When:
+		Type number = gt.narrow(C, null);
+		Type comparable = gt.narrow(C, Comparable.class);
+		// Then:
+		assertEquals("number", Number.class, number);
+		assertEquals("comparable", C, comparable);
+	}
+
 	@Test
 	public void testMethodGetServiceInFileFilterDialog2() {
 		// Given:
@@ -806,4 +879,554 @@ public class GenericTypeTest {
 		// Then:
 		assertEquals("typeParam0.getType()", Exception.class, typeParam0.getType());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCachedTypeParameter() {
+		// Given:
+		Class<?> cls = StringIntegerPair.class;
+		// When:
+		GenericType typeParam1 = new GenericType(cls).getTypeParameter(Pair.class.getTypeParameters()[0]);
+		GenericType typeParam2 = new GenericType(cls).getTypeParameter(Pair.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("typeParam1.getType()", String.class, typeParam1.getType());
+		assertSame("typeParam2", typeParam1, typeParam2);
+	}
+
+	@Test
+	public void testUncachedTypeParameter() {
+		// Given:
+		Class<?> cls = StringIntegerPair.class;
+		GenericType.setCacheEnabled(false);
+		try {
+			// When:
+			GenericType typeParam1 = new GenericType(cls).getTypeParameter(Pair.class.getTypeParameters()[1]);
+			GenericType typeParam2 = new GenericType(cls).getTypeParameter(Pair.class.getTypeParameters()[1]);
+			// Then:
+			assertEquals("typeParam1.getType()", Integer.class, typeParam1.getType());
+			assertEquals("typeParam2.getType()", Integer.class, typeParam2.getType());
+			assertNotSame("typeParam2", typeParam1, typeParam2);
+		} finally {
+			GenericType.setCacheEnabled(true);
+		}
+	}
+
+	@Test
+	public void testCachedFieldType() {
+		// Given:
+		Class<?> cls = ClassWithConcreteNumberList.class;
+		// When:
+		GenericType fieldGT1 = new GenericType(cls).getFieldType("list");
+		GenericType fieldGT2 = new GenericType(cls).getFieldType("list");
+		// Then:
+		assertSame("fieldGT2", fieldGT1, fieldGT2);
+		assertEquals("typeParam0.getType()", Long.class,
+				fieldGT2.getTypeParameter(Collection.class.getTypeParameters()[0]).getType());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnknownField() {
+		// Given:
+		Class<?> cls = ClassWithConcreteNumberList.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		gt.getFieldType("unknown");
+		// Then: this must throw an IllegalStateException
+	}
+
+	@Test
+	public void testMethodGetServiceInComponentContainer() {
+		// Given:
+		Class<?> cls = ComponentContainer.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		GenericType returnType = gt.getMethodReturnType("getService");
+		// Then:
+		assertEquals("returnType.getType()", JComponent.class, returnType.getType());
+	}
+
+	@SuppressWarnings("serial")
+	private static class CovariantStringList extends StringList {
+		@SuppressWarnings("unused")
+		public CovariantStringList getSelf() {
+			return this;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class CovariantChildStringList extends CovariantStringList {
+		@Override
+		public CovariantChildStringList getSelf() {
+			return this;
+		}
+	}
+
+	@Test
+	public void testCovariantMethod() {
+		// Given:
+		Class<?> cls = CovariantChildStringList.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		GenericType returnType = gt.getMethodReturnType("getSelf");
+		// Then:
+		assertEquals("returnType.getType()", CovariantChildStringList.class, returnType.getType());
+	}
+
+	private static interface ObjectSupplier {
+		Object get();
+	}
+
+	private static interface StringSupplier {
+		String get();
+	}
+
+	private static abstract class ObjectAndStringSupplier implements ObjectSupplier, StringSupplier {
+	}
+
+	@Test
+	public void testCovariantInterfaceMethod() throws NoSuchMethodException {
+		// Given:
+		Class<?> cls = ObjectAndStringSupplier.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		GenericType returnType = gt.getMethodReturnType("get");
+		// Then:
+		assertEquals("returnType.getType()", String.class, returnType.getType());
+		assertEquals("reflection", cls.getMethod("get").getReturnType(), returnType.getType());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownMethod() {
+		// Given:
+		Class<?> cls = ComponentContainer.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		gt.getMethodReturnType("getUnknown");
+		// Then: this must throw an IllegalArgumentException
+	}
+
+	@Test
+	public void testResolveAll() {
+		// Given:
+		Class<?> cls = AnotherIntegerStringMap.class;
+		GenericType gt = new GenericType(cls);
+		// When:
+		TypeParameterTable table = gt.resolveAll();
+		// Then:
+		assertEquals("table.size()", 4, table.size());
+		assertEquals("K", Integer.class, table.getType(Map.class.getTypeParameters()[0]));
+		assertEquals("V", String.class, table.getType(Map.class.getTypeParameters()[1]));
+		assertEquals("VE", String.class, table.getType(SwitchArgumentsMap.class.getTypeParameters()[0]));
+		assertEquals("KE", Integer.class, table.getType(SwitchArgumentsMap.class.getTypeParameters()[1]));
+		assertEquals("E", null, table.get(Collection.class.getTypeParameters()[0]));
+	}
+
+	@Test
+	public void testResolveAllMatchesGetTypeParameter() {
+		// Given:
+		Class<?>[] classes = { StringList.class, IntegerErrorPair.class, DoubleBind3.class, FileFilterDialog2.class,
+				YetAnotherStringList.class, X12Class.X13Class.X14Class.class };
+		for (Class<?> cls : classes) {
+			GenericType gt = new GenericType(cls);
+			// When:
+			TypeParameterTable table = gt.resolveAll();
+			// Then:
+			for (TypeVariable<?> var : table.getVariables()) {
+				@SuppressWarnings("unchecked")
+				TypeVariable<? extends Class<?>> classVar = (TypeVariable<? extends Class<?>>) var;
+				assertEquals(cls + " " + var, gt.getTypeParameter(classVar).getType(), table.getType(var));
+			}
+		}
+	}
+
+	@Test
+	public void testResolveAllOfFieldType() {
+		// Given:
+		Class<?> cls = ClassWithMap.class;
+		GenericType fieldGT = new GenericType(cls).getFieldType("map");
+		// When:
+		TypeParameterTable table = fieldGT.resolveAll();
+		// Then:
+		assertEquals("K", String.class, table.getType(Map.class.getTypeParameters()[0]));
+		assertEquals("V", Integer.class, table.getType(Map.class.getTypeParameters()[1]));
+	}
+
+	@Test
+	public void testBulkResolveAll() {
+		// Given:
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (int i = 0; i < 50; i++) {
+			classes.add(StringList.class);
+			classes.add(IntegerErrorPair.class);
+			classes.add(AnotherIntegerStringMap.class);
+			classes.add(X12Class.X13Class.X14Class.class);
+			classes.add(NoGenericClass.class);
+		}
+		List<TypeVariable<? extends Class<?>>> variables = new ArrayList<TypeVariable<? extends Class<?>>>();
+		variables.add(Collection.class.getTypeParameters()[0]);
+		variables.add(Pair.class.getTypeParameters()[1]);
+		variables.add(Map.class.getTypeParameters()[0]);
+		// When:
+		Map<Class<?>, Map<TypeVariable<?>, GenericType>> result = GenericType.resolveAll(classes, variables);
+		// Then:
+		assertEquals("result.size()", 5, result.size());
+		assertEquals("StringList.E", String.class, result.get(StringList.class).get(variables.get(0)).getType());
+		assertEquals("IntegerErrorPair.V", Error.class, result.get(IntegerErrorPair.class).get(variables.get(1))
+				.getType());
+		assertEquals("AnotherIntegerStringMap.K", Integer.class, result.get(AnotherIntegerStringMap.class)
+				.get(variables.get(2)).getType());
+		assertEquals("X14Class.E", Exception.class, result.get(X12Class.X13Class.X14Class.class)
+				.get(variables.get(0)).getType());
+		assertTrue("NoGenericClass", result.get(NoGenericClass.class).isEmpty());
+		assertEquals("StringList.size()", 1, result.get(StringList.class).size());
+	}
+
+	@Test
+	public void testBulkResolveAllWithExecutor() throws InterruptedException {
+		// Given:
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(YetAnotherStringList.class);
+		classes.add(ThrowableCollectionClass.class);
+		List<TypeVariable<? extends Class<?>>> variables = new ArrayList<TypeVariable<? extends Class<?>>>();
+		variables.add(Collection.class.getTypeParameters()[0]);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// When:
+			Map<Class<?>, Map<TypeVariable<?>, GenericType>> result = GenericType.resolveAll(classes, variables,
+					executor);
+			// Then:
+			assertEquals("YetAnotherStringList.E", String.class, result.get(YetAnotherStringList.class)
+					.get(variables.get(0)).getType());
+			assertEquals("ThrowableCollectionClass.E", Throwable.class, result.get(ThrowableCollectionClass.class)
+					.get(variables.get(0)).getType());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFindTypeParameter() {
+		// Given:
+		GenericType gt = new GenericType(StringList.class);
+		// When:
+		GenericType element = gt.findTypeParameter(List.class.getTypeParameters()[0]);
+		GenericType key = gt.findTypeParameter(Map.class.getTypeParameters()[0]);
+		GenericType again = gt.findTypeParameter(Map.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("element.getType()", String.class, element.getType());
+		assertNull("key", key);
+		assertNull("again", again);
+	}
+
+	@Test
+	public void testFindFieldTypeAndMethodReturnType() {
+		// Given:
+		GenericType gt = new GenericType(StringList.class);
+		// When:
+		GenericType field = gt.findFieldType("noSuchField");
+		GenericType method = gt.findMethodReturnType("noSuchMethod");
+		GenericType size = gt.findMethodReturnType("size");
+		// Then:
+		assertNull("field", field);
+		assertNull("method", method);
+		assertEquals("size.getType()", int.class, size.getType());
+	}
+
+	@Test
+	public void testMissOfForeignVariableDoesNotPinItsLoader() throws InterruptedException {
+		// Given:
+		WeakReference<ClassLoader> loader = probeWithForeignVariable();
+		// When:
+		for (int i = 0; i < 100 && loader.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		// Then:
+		assertNull("loader.get()", loader.get());
+	}
+
+	/**
+	 * Looks up a variable of a class of a throw-away loader in a class that
+	 * can't see it, and returns a weak reference to the loader.
+	 */
+	private static WeakReference<ClassLoader> probeWithForeignVariable() {
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		Class<?> pluginType = loader.defineInterface("plugin.Type", "<T:Ljava/lang/Object;>Ljava/lang/Object;");
+		TypeVariable<?> T = pluginType.getTypeParameters()[0];
+		assertNull("findTypeParameter(T)", new GenericType(StringList.class).findTypeParameter(T));
+		assertNull("resolveTypeParameterOfClass(T)", GenericType.resolveTypeParameterOfClass(String.class, T));
+		return new WeakReference<ClassLoader>(loader);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetTypeParameterAfterCachedMiss() {
+		// Given:
+		GenericType gt = new GenericType(StringList.class);
+		gt.findTypeParameter(Map.class.getTypeParameters()[1]);
+		// When:
+		gt.getTypeParameter(Map.class.getTypeParameters()[1]);
+		// Then: expect exception
+	}
+
+	@Test
+	public void testDescribe() {
+		// Given:
+		GenericType gt = new GenericType(Subclass.class);
+		// When:
+		BeanDescriptor descriptor = gt.describe();
+		// Then:
+		GenericType field = descriptor.getFieldType("inner");
+		GenericType method = descriptor.getMethodReturnType("getInner");
+		assertEquals("field element type", Integer.class,
+				field.getTypeParameter(Collection.class.getTypeParameters()[0]).getType());
+		assertEquals("method element type", Integer.class,
+				method.getTypeParameter(Collection.class.getTypeParameters()[0]).getType());
+		assertNull("descriptor.getFieldType(\"noSuchField\")", descriptor.getFieldType("noSuchField"));
+		assertNull("descriptor.getMethodReturnType(\"setService\")", descriptor.getMethodReturnType("setService"));
+		assertNull("descriptor.getMethodReturnType(\"getClass\")", descriptor.getMethodReturnType("getClass"));
+		assertNull("descriptor.getMethodReturnType(\"hashCode\")", descriptor.getMethodReturnType("hashCode"));
+		assertNull("descriptor.getMethodReturnType(\"toString\")", descriptor.getMethodReturnType("toString"));
+		assertTrue("gt.describe() == descriptor", gt.describe() == descriptor);
+	}
+
+	@Test
+	public void testDescribeMatchesFindFieldTypeAndMethodReturnType() {
+		// Given:
+		// FileFilterDialog inherits generic array fields from Component, which
+		// can't be described, see testDescribeGenericArrayField()
+		Class<?>[] classes = { Subclass.class, ClassWithConcreteNumberList.class, CovariantChildStringList.class,
+				X12Class.X13Class.X14Class.class };
+		for (Class<?> cls : classes) {
+			GenericType gt = new GenericType(cls);
+			// When:
+			BeanDescriptor descriptor = gt.describe();
+			// Then:
+			for (String fieldname : descriptor.getFieldnames()) {
+				assertEquals(cls + " " + fieldname, gt.findFieldType(fieldname).getType(),
+						descriptor.getFieldType(fieldname).getType());
+			}
+			for (String methodName : descriptor.getMethodNames()) {
+				assertEquals(cls + " " + methodName + "()", gt.findMethodReturnType(methodName).getType(), descriptor
+						.getMethodReturnType(methodName).getType());
+			}
+		}
+	}
+
+	private static class ClassWithPair {
+		@SuppressWarnings("unused")
+		Pair<String, List<Integer>> pair;
+	}
+
+	@Test
+	public void testDescribeFieldType() {
+		// Given:
+		GenericType fieldGT = new GenericType(ClassWithPair.class).getFieldType("pair");
+		// When:
+		BeanDescriptor descriptor = fieldGT.describe();
+		// Then:
+		GenericType value = descriptor.getMethodReturnType("getValue");
+		assertEquals("key type", String.class, descriptor.getMethodReturnType("getKey").getType());
+		assertEquals("value element type", Integer.class,
+				value.getTypeParameter(Collection.class.getTypeParameters()[0]).getType());
+		assertNull("descriptor.getMethodReturnType(\"setKey\")", descriptor.getMethodReturnType("setKey"));
+	}
+
+	private static class ClassWithGenericArray<T> {
+		@SuppressWarnings("unused")
+		T[] elements;
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDescribeGenericArrayField() {
+		// Given:
+		GenericType gt = new GenericType(ClassWithGenericArray.class);
+		// When:
+		gt.describe();
+		// Then: expect exception
+	}
+
+	private static class StringKeyPair extends Pair<String, Integer> {
+		@Override
+		public void setKey(String key) {
+			super.setKey(key);
+		}
+	}
+
+	private static class Overloads<T> {
+		@SuppressWarnings("unused")
+		public void put(T element) {
+		}
+
+		@SuppressWarnings("unused")
+		public void put(T element, int index) {
+		}
+
+		@SuppressWarnings("unused")
+		public T put(List<T> elements) {
+			return null;
+		}
+	}
+
+	private static class StringOverloads extends Overloads<String> {
+	}
+
+	@Test
+	public void testMethodParameterTypes() {
+		// Given:
+		GenericType gt = new GenericType(StringIntegerPair.class);
+		// When:
+		List<GenericType> keyTypes = gt.getMethodParameterTypes("setKey", Object.class);
+		List<GenericType> valueTypes = gt.getMethodParameterTypes("setValue", Object.class);
+		GenericType returnType = gt.getMethodReturnType("setKey", Object.class);
+		// Then:
+		assertEquals("keyTypes.size()", 1, keyTypes.size());
+		assertEquals("keyTypes.get(0).getType()", String.class, keyTypes.get(0).getType());
+		assertEquals("valueTypes.get(0).getType()", Integer.class, valueTypes.get(0).getType());
+		assertEquals("returnType.getType()", void.class, returnType.getType());
+	}
+
+	@Test
+	public void testMethodParameterTypesInSuperinterface() {
+		// Given:
+		GenericType gt = new GenericType(ComponentContainer.class);
+		// When:
+		List<GenericType> types = gt.getMethodParameterTypes("setService", Object.class);
+		// Then:
+		assertEquals("types.get(0).getType()", JComponent.class, types.get(0).getType());
+	}
+
+	@Test
+	public void testMethodParameterTypesOfOverride() {
+		// Given:
+		GenericType gt = new GenericType(StringKeyPair.class);
+		// When:
+		List<GenericType> overrideTypes = gt.getMethodParameterTypes("setKey", String.class);
+		List<GenericType> erasedTypes = gt.getMethodParameterTypes("setKey", Object.class);
+		// Then:
+		assertEquals("overrideTypes.get(0).getType()", String.class, overrideTypes.get(0).getType());
+		assertEquals("erasedTypes.get(0).getType()", String.class, erasedTypes.get(0).getType());
+	}
+
+	@Test
+	public void testOverloadedMethods() {
+		// Given:
+		GenericType gt = new GenericType(StringOverloads.class);
+		// When:
+		List<GenericType> single = gt.getMethodParameterTypes("put", Object.class);
+		List<GenericType> indexed = gt.getMethodParameterTypes("put", Object.class, int.class);
+		List<GenericType> list = gt.getMethodParameterTypes("put", List.class);
+		GenericType listReturnType = gt.getMethodReturnType("put", List.class);
+		// Then:
+		assertEquals("single.get(0).getType()", String.class, single.get(0).getType());
+		assertEquals("indexed.get(0).getType()", String.class, indexed.get(0).getType());
+		assertEquals("indexed.get(1).getType()", int.class, indexed.get(1).getType());
+		assertEquals("list element type", String.class,
+				list.get(0).getTypeParameter(List.class.getTypeParameters()[0]).getType());
+		assertEquals("listReturnType.getType()", String.class, listReturnType.getType());
+		assertNull("put(String)", gt.findMethodParameterTypes("put", String.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownMethodParameterTypes() {
+		// Given:
+		GenericType gt = new GenericType(StringOverloads.class);
+		// When:
+		gt.getMethodParameterTypes("put", Object.class, Object.class);
+		// Then: expect exception
+	}
+
+	@Test
+	public void testIsAssignableWithWildcards() {
+		// Given:
+		Type integerList = CanonicalTypes.newParameterizedType(null, List.class, Integer.class);
+		Type numbers = CanonicalTypes.newParameterizedType(null, Collection.class, Number.class);
+		Type extendsNumber = CanonicalTypes.newParameterizedType(null, Collection.class,
+				CanonicalTypes.newWildcardType(new Type[] { Number.class }, new Type[0]));
+		Type superInteger = CanonicalTypes.newParameterizedType(null, Collection.class,
+				CanonicalTypes.newWildcardType(new Type[0], new Type[] { Integer.class }));
+		Type superNumber = CanonicalTypes.newParameterizedType(null, Collection.class,
+				CanonicalTypes.newWildcardType(new Type[0], new Type[] { Number.class }));
+		// When:
+		// Then:
+		assertTrue("Collection<? extends Number> = List<Integer>", GenericType.isAssignable(extendsNumber, integerList));
+		assertFalse("Collection<Number> = List<Integer>", GenericType.isAssignable(numbers, integerList));
+		assertTrue("Collection<? super Integer> = List<Integer>", GenericType.isAssignable(superInteger, integerList));
+		assertFalse("Collection<? super Number> = List<Integer>", GenericType.isAssignable(superNumber, integerList));
+		assertTrue("Collection<? super Integer> = Collection<? super Number>",
+				GenericType.isAssignable(superInteger, superNumber));
+		assertFalse("List<Integer> = Collection<? extends Number>", GenericType.isAssignable(integerList, extendsNumber));
+	}
+
+	@Test
+	public void testIsAssignableAlongHierarchy() {
+		// Given:
+		Type integerErrorPair = CanonicalTypes.newParameterizedType(null, Pair.class, Integer.class, Error.class);
+		Type integerExceptionPair = CanonicalTypes.newParameterizedType(null, Pair.class, Integer.class,
+				Exception.class);
+		Type boundedPair = CanonicalTypes.newParameterizedType(null, Pair.class,
+				CanonicalTypes.newWildcardType(new Type[] { Number.class }, new Type[0]),
+				CanonicalTypes.newWildcardType(new Type[] { Throwable.class }, new Type[0]));
+		Type charSequences = CanonicalTypes.newParameterizedType(null, Collection.class,
+				CanonicalTypes.newWildcardType(new Type[] { CharSequence.class }, new Type[0]));
+		// When:
+		// Then:
+		assertTrue("Pair<Integer, Error> = IntegerErrorPair",
+				GenericType.isAssignable(integerErrorPair, IntegerErrorPair.class));
+		assertTrue("Pair<? extends Number, ? extends Throwable> = IntegerErrorPair",
+				GenericType.isAssignable(boundedPair, IntegerErrorPair.class));
+		assertFalse("Pair<Integer, Exception> = IntegerErrorPair",
+				GenericType.isAssignable(integerExceptionPair, IntegerErrorPair.class));
+		assertTrue("Collection<? extends CharSequence> = StringList",
+				GenericType.isAssignable(charSequences, StringList.class));
+		assertFalse("IntegerErrorPair = Pair<Integer, Error>",
+				GenericType.isAssignable(IntegerErrorPair.class, integerErrorPair));
+	}
+
+	@Test
+	public void testIsAssignableWithBoundedVariables() {
+		// Given:
+		TypeVariable<?> KE = BoundedPair.class.getTypeParameters()[0];
+		TypeVariable<?> VE = BoundedPair.class.getTypeParameters()[1];
+		TypeVariable<?> E = DoubleBind.class.getTypeParameters()[0];
+		Type pairOfVariables = CanonicalTypes.newParameterizedType(null, BoundedPair.class, KE, VE);
+		Type boundedPair = CanonicalTypes.newParameterizedType(null, Pair.class,
+				CanonicalTypes.newWildcardType(new Type[] { Number.class }, new Type[0]),
+				CanonicalTypes.newWildcardType(new Type[] { Throwable.class }, new Type[0]));
+		// When:
+		// Then:
+		assertTrue("Number = KE", GenericType.isAssignable(Number.class, KE));
+		assertFalse("Integer = KE", GenericType.isAssignable(Integer.class, KE));
+		assertFalse("KE = Integer", GenericType.isAssignable(KE, Integer.class));
+		assertTrue("Number[] = KE[]", GenericType.isAssignable(Number[].class, CanonicalTypes.newArrayType(KE)));
+		assertTrue("Pair<? extends Number, ? extends Throwable> = BoundedPair<KE, VE>",
+				GenericType.isAssignable(boundedPair, pairOfVariables));
+		assertTrue("Cloneable = E", GenericType.isAssignable(Cloneable.class, E));
+		assertTrue("Serializable = E", GenericType.isAssignable(Serializable.class, E));
+		assertFalse("Number = E", GenericType.isAssignable(Number.class, E));
+	}
+
+	@Test
+	public void testIsAssignableRawType() {
+		// Given:
+		Type stringList = CanonicalTypes.newParameterizedType(null, List.class, String.class);
+		// When:
+		// Then:
+		assertTrue("List<String> = ArrayList", GenericType.isAssignable(stringList, ArrayList.class));
+		assertTrue("List = List<String>", GenericType.isAssignable(List.class, stringList));
+		assertFalse("List<String> = Map", GenericType.isAssignable(stringList, Map.class));
+	}
+
+	@Test
+	public void testIsAssignableFrom() {
+		// Given:
+		GenericType number = new GenericType(Number.class);
+		GenericType key = new GenericType(IntegerErrorPair.class).getTypeParameter(Pair.class.getTypeParameters()[0]);
+		GenericType value = new GenericType(IntegerErrorPair.class).getTypeParameter(Pair.class.getTypeParameters()[1]);
+		// When:
+		boolean keyIsNumber = number.isAssignableFrom(key);
+		boolean valueIsNumber = number.isAssignableFrom(value);
+		// Then:
+		assertTrue("keyIsNumber", keyIsNumber);
+		assertFalse("valueIsNumber", valueIsNumber);
+		assertTrue("cached", number.isAssignableFrom(key));
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class HandlerRegistryTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HandlerRegistryTest.class);
+	}
+
+	static interface Handler<E> {
+		void handle(E event);
+	}
+
+	static abstract class AbstractHandler<X, E> implements Handler<E> {
+		public void handle(E event) {
+		}
+	}
+
+	static class NumberHandler extends AbstractHandler<String, Number> {
+	}
+
+	static class IntegerHandler implements Handler<Integer> {
+		public void handle(Integer event) {
+		}
+	}
+
+	static class SerializableHandler implements Handler<Serializable> {
+		public void handle(Serializable event) {
+		}
+	}
+
+	static class ListHandler implements Handler<List<String>> {
+		public void handle(List<String> event) {
+		}
+	}
+
+	static class OpenHandler<E> implements Handler<E> {
+		public void handle(E event) {
+		}
+	}
+
+	private static HandlerRegistry<Handler<?>> newRegistry() {
+		return new HandlerRegistry<Handler<?>>(Handler.class.getTypeParameters()[0]);
+	}
+
+	@Test
+	public void testRegister() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		// When:
+		Class<?> numberType = registry.register(new NumberHandler());
+		Class<?> listType = registry.register(new ListHandler());
+		// Then:
+		assertEquals("numberType", Number.class, numberType);
+		assertEquals("listType", List.class, listType);
+	}
+
+	@Test
+	public void testGetHandlers() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		NumberHandler numberHandler = new NumberHandler();
+		IntegerHandler integerHandler = new IntegerHandler();
+		SerializableHandler serializableHandler = new SerializableHandler();
+		registry.register(serializableHandler);
+		registry.register(numberHandler);
+		registry.register(integerHandler);
+		// When:
+		List<Handler<?>> integerHandlers = registry.getHandlers(Integer.class);
+		List<Handler<?>> doubleHandlers = registry.getHandlers(Double.class);
+		List<Handler<?>> stringHandlers = registry.getHandlers(String.class);
+		// Then:
+		assertEquals("integerHandlers", Arrays.asList(integerHandler, numberHandler, serializableHandler),
+				integerHandlers);
+		assertEquals("doubleHandlers", Arrays.asList(numberHandler, serializableHandler), doubleHandlers);
+		assertEquals("stringHandlers", Collections.singletonList(serializableHandler), stringHandlers);
+		assertSame("getHandler(Integer.class)", integerHandler, registry.getHandler(Integer.class));
+		assertNull("getHandler(Object.class)", registry.getHandler(Object.class));
+	}
+
+	@Test
+	public void testGetHandlersAfterRegister() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		NumberHandler numberHandler = new NumberHandler();
+		IntegerHandler integerHandler = new IntegerHandler();
+		registry.register(numberHandler);
+		List<Handler<?>> before = registry.getHandlers(Integer.class);
+		// When:
+		registry.register(integerHandler);
+		List<Handler<?>> after = registry.getHandlers(Integer.class);
+		// Then:
+		assertEquals("before", Collections.singletonList(numberHandler), before);
+		assertEquals("after", Arrays.asList(integerHandler, numberHandler), after);
+		assertSame("getHandlers(Integer.class)", after, registry.getHandlers(Integer.class));
+	}
+
+	@Test
+	public void testRegisterTwice() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		IntegerHandler integerHandler = new IntegerHandler();
+		registry.register(integerHandler);
+		List<Handler<?>> before = registry.getHandlers(Integer.class);
+		// When:
+		Class<?> type = registry.register(integerHandler);
+		List<Handler<?>> after = registry.getHandlers(Integer.class);
+		// Then:
+		assertEquals("type", Integer.class, type);
+		assertEquals("after", Collections.singletonList(integerHandler), after);
+		assertSame("getHandlers(Integer.class)", before, after);
+	}
+
+	@Test
+	public void testInterfaceArgument() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		ListHandler listHandler = new ListHandler();
+		registry.register(listHandler);
+		// When:
+		Handler<?> result = registry.getHandler(java.util.ArrayList.class);
+		// Then:
+		assertSame("result", listHandler, result);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterUnresolvedHandler() {
+		// Given:
+		HandlerRegistry<Handler<?>> registry = newRegistry();
+		// When:
+		registry.register(new OpenHandler<String>());
+		// Then: expect exception
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterForeignHandler() {
+		// Given:
+		HandlerRegistry<Object> registry = new HandlerRegistry<Object>(Handler.class.getTypeParameters()[0]);
+		// When:
+		registry.register("no handler");
+		// Then: expect exception
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class PropertyPathTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(PropertyPathTest.class);
+	}
+
+	private static class Item<T> {
+		@SuppressWarnings("unused")
+		T value;
+	}
+
+	private static class Owner<T> {
+		@SuppressWarnings("unused")
+		List<Item<T>> items;
+
+		@SuppressWarnings("unused")
+		public Map<String, T> getIndex() {
+			return null;
+		}
+
+		@SuppressWarnings("unused")
+		public boolean isEmpty() {
+			return true;
+		}
+	}
+
+	private static class Order {
+		@SuppressWarnings("unused")
+		Owner<Long> owner;
+	}
+
+	@Test
+	public void testFieldPath() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		PropertyPath path = gt.compilePath("owner.items.<E>.value");
+		// Then:
+		assertEquals("path.getType()", Long.class, path.getType());
+		assertEquals("path.getPath()", "owner.items.<E>.value", path.getPath());
+	}
+
+	@Test
+	public void testGetterPath() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		PropertyPath path = gt.compilePath("owner.index.<V>");
+		// Then:
+		assertEquals("path.getType()", Long.class, path.getType());
+	}
+
+	@Test
+	public void testBooleanGetterPath() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		PropertyPath path = gt.compilePath("owner.empty");
+		// Then:
+		assertEquals("path.getType()", boolean.class, path.getType());
+	}
+
+	@Test
+	public void testMethodPath() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		PropertyPath path = gt.compilePath("owner.getIndex()").then(Map.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("path.getType()", String.class, path.getType());
+		assertEquals("path.getPath()", "owner.getIndex().<K>", path.getPath());
+	}
+
+	@Test
+	public void testTypeParameterOfSupertype() {
+		// Given:
+		GenericType gt = new GenericType(Owner.class);
+		// When:
+		PropertyPath path = gt.compilePath("items").then(Collection.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("path.getGenericType().asClass()", Item.class, path.getGenericType().asClass());
+	}
+
+	@Test
+	public void testCachedPath() {
+		// When:
+		PropertyPath path1 = new GenericType(Order.class).compilePath("owner.items");
+		PropertyPath path2 = new GenericType(Order.class).compilePath("owner.items");
+		// Then:
+		assertSame("path2", path1, path2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownProperty() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		gt.compilePath("owner.unknown");
+		// Then: this must throw an IllegalArgumentException
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownTypeParameter() {
+		// Given:
+		GenericType gt = new GenericType(Order.class);
+		// When:
+		gt.compilePath("owner.items.<X>");
+		// Then: this must throw an IllegalArgumentException
+	}
+
+	/**
+	 * Generates a lattice of interfaces, where both interfaces of each level
+	 * extend both interfaces of the next level, and the top interface declares
+	 * the type parameter <code>T</code>. Returns one of the bottom interfaces.
+	 */
+	private static Class<?> generateLattice(GeneratedClassLoader loader, String pkg, int levels) {
+		String object = "Ljava/lang/Object;";
+		String top = pkg + "Top";
+		Class<?> result = loader.defineInterface(top, "<T:" + object + ">" + object);
+		String[] next = { top };
+		for (int i = levels - 1; i >= 0; i--) {
+			String signature = object;
+			for (String superName : next) {
+				signature += "L" + superName.replace('.', '/') + ";";
+			}
+			String[] current = { pkg + "A" + i, pkg + "B" + i };
+			for (String name : current) {
+				result = loader.defineInterface(name, signature, next);
+			}
+			next = current;
+		}
+		return result;
+	}
+
+	@Test(timeout = 10000)
+	public void testTypeParameterOfLattice() {
+		// Given:
+		GenericType gt = new GenericType(generateLattice(new GeneratedClassLoader(), "lattice.", 40));
+		// When:
+		PropertyPath path = gt.compilePath("<T>");
+		// Then:
+		assertEquals("path.getPath()", "<T>", path.getPath());
+	}
+
+	@Test(timeout = 10000, expected = IllegalArgumentException.class)
+	public void testUnknownTypeParameterOfLattice() {
+		// Given:
+		GenericType gt = new GenericType(generateLattice(new GeneratedClassLoader(), "lattice.unknown.", 40));
+		// When:
+		gt.compilePath("<X>");
+		// Then: this must throw an IllegalArgumentException
+	}
+}
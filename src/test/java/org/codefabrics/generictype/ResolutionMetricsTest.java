@@ -0,0 +1,271 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolutionMetricsTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ResolutionMetricsTest.class);
+	}
+
+	private static class Base<K, V> {
+		@SuppressWarnings("unused")
+		K key;
+
+		@SuppressWarnings("unused")
+		public V getValue() {
+			return null;
+		}
+	}
+
+	private static class Middle<V> extends Base<String, V> {
+	}
+
+	private static class Leaf extends Middle<Integer> {
+	}
+
+	private static class OtherLeaf extends Middle<Long> {
+	}
+
+	private static class RecordingListener implements ResolutionListener {
+		final List<String> resolutions = new ArrayList<String>();
+		int nodesVisited;
+		int mappingsCreated;
+		int cacheHits;
+
+		public void resolved(Resolution resolution) {
+			resolutions.add(resolution.getOperation() + " " + resolution.getTarget());
+			nodesVisited = resolution.getNodesVisited();
+			mappingsCreated = resolution.getMappingsCreated();
+			cacheHits = resolution.getCacheHits();
+		}
+	}
+
+	private final List<ResolutionListener> listeners = new ArrayList<ResolutionListener>();
+	private ResolutionMetrics metrics;
+
+	@Before
+	public void setUp() {
+		GenericType.clearCache();
+	}
+
+	@After
+	public void tearDown() {
+		for (ResolutionListener listener : listeners) {
+			GenericType.removeResolutionListener(listener);
+		}
+		if (metrics != null) {
+			metrics.uninstall();
+		}
+		GenericType.setCacheEnabled(true);
+	}
+
+	private RecordingListener addListener() {
+		RecordingListener result = new RecordingListener();
+		GenericType.addResolutionListener(result);
+		listeners.add(result);
+		return result;
+	}
+
+	@Test
+	public void testListenerIsNotified() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType.setCacheEnabled(false);
+		TypeVariable<?> K = Base.class.getTypeParameters()[0];
+		GenericType gt = new GenericType(Leaf.class);
+		// When:
+		gt.getTypeParameter(Base.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("listener.resolutions", "[TYPE_PARAMETER " + K + "]", listener.resolutions.toString());
+		assertEquals("listener.nodesVisited", 3, listener.nodesVisited);
+		assertEquals("listener.mappingsCreated", 2, listener.mappingsCreated);
+	}
+
+	@Test
+	public void testMissIsCached() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType gt = new GenericType(OtherLeaf.class);
+		TypeVariable<?> E = List.class.getTypeParameters()[0];
+		gt.findTypeParameter(E);
+		// When:
+		GenericType result = gt.findTypeParameter(E);
+		// Then:
+		assertNull("result", result);
+		assertEquals("listener.cacheHits", 1, listener.cacheHits);
+		assertEquals("listener.nodesVisited", 0, listener.nodesVisited);
+	}
+
+	@Test
+	public void testClearCacheClearsMemoizedMembers() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType gt = new GenericType(Leaf.class);
+		gt.getFieldType("key");
+		gt.getMethodReturnType("getValue");
+		gt.getFieldType("key");
+		int fieldCacheHits = listener.cacheHits;
+		// When:
+		GenericType.clearCache();
+		gt.getFieldType("key");
+		int fieldCacheHitsAfterClear = listener.cacheHits;
+		gt.getMethodReturnType("getValue");
+		int methodCacheHitsAfterClear = listener.cacheHits;
+		// Then:
+		assertEquals("fieldCacheHits", 1, fieldCacheHits);
+		assertEquals("fieldCacheHitsAfterClear", 0, fieldCacheHitsAfterClear);
+		assertEquals("methodCacheHitsAfterClear", 0, methodCacheHitsAfterClear);
+	}
+
+	@Test
+	public void testAllOperationsAreReported() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType gt = new GenericType(Leaf.class);
+		Type V = Base.class.getTypeParameters()[1];
+		// When:
+		gt.getFieldType("key");
+		gt.getMethodReturnType("getValue");
+		gt.narrow(V, null);
+		// Then:
+		assertEquals("listener.resolutions", "[FIELD_TYPE key, METHOD_RETURN_TYPE getValue, NARROW " + V + "]",
+				listener.resolutions.toString());
+	}
+
+	@Test
+	public void testNarrowIsCached() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType gt = new GenericType(Leaf.class);
+		GenericType value = gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		Type V = Base.class.getTypeParameters()[1];
+		gt.narrow(V, null);
+		value.narrow(V, Number.class);
+		// When:
+		gt.narrow(V, null);
+		int emptyMappingCacheHits = listener.cacheHits;
+		Type result = value.narrow(V, Number.class);
+		int cacheHits = listener.cacheHits;
+		// Then:
+		assertEquals("emptyMappingCacheHits", 1, emptyMappingCacheHits);
+		assertEquals("cacheHits", 0, cacheHits);
+		assertEquals("result", Integer.class, result);
+	}
+
+	@Test
+	public void testAssignabilityIsCached() {
+		// Given:
+		RecordingListener listener = addListener();
+		Type target = CanonicalTypes.newParameterizedType(null, Collection.class, Number.class);
+		Type source = CanonicalTypes.newParameterizedType(null, List.class, Number.class);
+		GenericType.isAssignable(target, source);
+		// When:
+		boolean result = GenericType.isAssignable(target, source);
+		// Then:
+		assertEquals("cacheHits", 1, listener.cacheHits);
+		assertEquals("result", true, result);
+	}
+
+	@Test
+	public void testAssignabilityOfUnrelatedLoadersIsNotCached() {
+		// Given:
+		RecordingListener listener = addListener();
+		Class<?> pluginType = new GeneratedClassLoader().defineInterface("plugin.Type", "Ljava/lang/Object;");
+		Class<?> otherPluginType = new GeneratedClassLoader().defineInterface("plugin.Type", "Ljava/lang/Object;");
+		GenericType.isAssignable(pluginType, otherPluginType);
+		// When:
+		boolean result = GenericType.isAssignable(pluginType, otherPluginType);
+		// Then:
+		assertEquals("cacheHits", 0, listener.cacheHits);
+		assertEquals("result", false, result);
+	}
+
+	@Test
+	public void testNarrowOfUnrelatedLoadersIsNotCached() {
+		// Given:
+		RecordingListener listener = addListener();
+		Class<?> pluginType = new GeneratedClassLoader().defineInterface("plugin.Type", "Ljava/lang/Object;");
+		Class<?> otherPluginType = new GeneratedClassLoader().defineInterface("plugin.Type", "Ljava/lang/Object;");
+		GenericType gt = new GenericType(Leaf.class);
+		gt.narrow(pluginType, otherPluginType);
+		// When:
+		Type result = gt.narrow(pluginType, otherPluginType);
+		// Then:
+		assertEquals("cacheHits", 0, listener.cacheHits);
+		assertEquals("result", pluginType, result);
+	}
+
+	@Test
+	public void testRemovedListenerIsNotNotified() {
+		// Given:
+		RecordingListener listener = addListener();
+		GenericType.removeResolutionListener(listener);
+		GenericType gt = new GenericType(Leaf.class);
+		// When:
+		gt.getFieldType("key");
+		// Then:
+		assertEquals("listener.resolutions.size()", 0, listener.resolutions.size());
+	}
+
+	@Test
+	public void testMetrics() {
+		// Given:
+		metrics = ResolutionMetrics.install();
+		GenericType gt = new GenericType(Leaf.class);
+		// When:
+		gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		new GenericType(OtherLeaf.class).getFieldType("key");
+		// Then:
+		assertEquals("metrics.getTypeParameterCount()", 2, metrics.getTypeParameterCount());
+		assertEquals("metrics.getFieldTypeCount()", 1, metrics.getFieldTypeCount());
+		assertEquals("metrics.getMethodReturnTypeCount()", 0, metrics.getMethodReturnTypeCount());
+		assertEquals("metrics.getCacheHits()", 1, metrics.getCacheHits());
+		assertEquals("metrics.getCacheMisses()", 2, metrics.getCacheMisses());
+		assertTrue("metrics.getNodesVisited() > 0", metrics.getNodesVisited() > 0);
+		long[] histogram = metrics.getLatencyHistogram("TYPE_PARAMETER");
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		assertEquals("total", 2, total);
+		assertTrue("metrics.getLatencyPercentile(TYPE_PARAMETER, 50) > 0",
+				metrics.getLatencyPercentile("TYPE_PARAMETER", 50) > 0);
+	}
+
+	@Test
+	public void testMBean() throws JMException {
+		// Given:
+		metrics = ResolutionMetrics.install();
+		GenericType gt = new GenericType(Leaf.class);
+		// When:
+		gt.getMethodReturnType("getValue");
+		// Then:
+		Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName(ResolutionMetrics.OBJECT_NAME), "MethodReturnTypeCount");
+		assertEquals("count", 1L, count);
+	}
+}
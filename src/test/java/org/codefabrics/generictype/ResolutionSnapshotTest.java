@@ -0,0 +1,171 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResolutionSnapshotTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ResolutionSnapshotTest.class);
+	}
+
+	static class Base<K, V> {
+		@SuppressWarnings("unused")
+		K key;
+		@SuppressWarnings("unused")
+		List<V> values;
+
+		public V getFirst() {
+			return null;
+		}
+	}
+
+	static class StringIntegerBase extends Base<String, Integer> {
+		@SuppressWarnings("unused")
+		int count;
+	}
+
+	static class LongMap extends Base<Long, Map<String, Long>> {
+	}
+
+	static class OtherLongMap extends Base<Long, Map<String, Integer>> {
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<ResolutionSnapshot> loaded = new ArrayList<ResolutionSnapshot>();
+
+	@After
+	public void tearDown() {
+		for (ResolutionSnapshot snapshot : loaded) {
+			snapshot.unload();
+		}
+		GenericType.clearCache();
+	}
+
+	private ResolutionSnapshot load(File file) throws IOException {
+		ResolutionSnapshot result = ResolutionSnapshot.load(file);
+		loaded.add(result);
+		GenericType.clearCache();
+		return result;
+	}
+
+	@Test
+	public void testWriteAndLoad() throws IOException {
+		// Given:
+		File file = folder.newFile("snapshot.bin");
+		ResolutionSnapshot.write(file, Arrays.<Class<?>> asList(StringIntegerBase.class, LongMap.class));
+		// When:
+		ResolutionSnapshot snapshot = load(file);
+		// Then:
+		assertEquals("snapshot.size()", 2, snapshot.size());
+		assertTrue("snapshot.isValidFor(StringIntegerBase.class)", snapshot.isValidFor(StringIntegerBase.class));
+		assertFalse("snapshot.isValidFor(OtherLongMap.class)", snapshot.isValidFor(OtherLongMap.class));
+		ResolutionTable table = ResolutionTable.of(StringIntegerBase.class);
+		assertEquals("table.getTypeParameter(K)", String.class, table.getTypeParameter(Base.class.getTypeParameters()[0]));
+		assertEquals("table.getTypeParameter(V)", Integer.class, table.getTypeParameter(Base.class.getTypeParameters()[1]));
+		assertEquals("table.getFieldType(\"key\")", String.class, table.getFieldType("key"));
+		assertEquals("table.getFieldType(\"count\")", int.class, table.getFieldType("count"));
+		assertNull("table.getFieldType(\"values\")", table.getFieldType("values"));
+		assertEquals("table.getMethodReturnType(\"getFirst\")", Integer.class, table.getMethodReturnType("getFirst"));
+	}
+
+	@Test
+	public void testResolveFromSnapshot() throws IOException {
+		// Given:
+		File file = folder.newFile("snapshot.bin");
+		ResolutionSnapshot.write(file, Arrays.<Class<?>> asList(StringIntegerBase.class, LongMap.class));
+		load(file);
+		GenericType gt = new GenericType(LongMap.class);
+		// When:
+		GenericType key = gt.getTypeParameter(Base.class.getTypeParameters()[0]);
+		GenericType value = gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		GenericType element = gt.getFieldType("values").getTypeParameter(List.class.getTypeParameters()[0]);
+		// Then:
+		assertEquals("key.getType()", Long.class, key.getType());
+		assertNull("table.getTypeParameter(V)",
+				ResolutionTable.of(LongMap.class).getTypeParameter(Base.class.getTypeParameters()[1]));
+		assertEquals("value.getType()", "java.util.Map<java.lang.String, java.lang.Long>", value.getType().toString());
+		assertEquals("element.getType()", "java.util.Map<java.lang.String, java.lang.Long>", element.getType()
+				.toString());
+	}
+
+	@Test
+	public void testStaleClassIsIgnored() throws IOException {
+		// Given:
+		File file = folder.newFile("snapshot.bin");
+		ResolutionSnapshot.write(file, Arrays.<Class<?>> asList(StringIntegerBase.class));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			// overwrite the fingerprint of the only class
+			int stringCount = readInt(raf, 8);
+			raf.seek(16 + 4 * stringCount + 4);
+			raf.writeLong(0L);
+		} finally {
+			raf.close();
+		}
+		// When:
+		ResolutionSnapshot snapshot = load(file);
+		// Then:
+		assertFalse("snapshot.isValidFor(StringIntegerBase.class)", snapshot.isValidFor(StringIntegerBase.class));
+		assertNull("table.getFieldType(\"key\")", ResolutionTable.of(StringIntegerBase.class).getFieldType("key"));
+		assertEquals("getFieldType(\"key\").getType()", String.class, new GenericType(StringIntegerBase.class)
+				.getFieldType("key").getType());
+	}
+
+	@Test
+	public void testFingerprintsDiffer() {
+		// Given:
+		Class<?> cls1 = LongMap.class;
+		Class<?> cls2 = OtherLongMap.class;
+		// When:
+		long fingerprint1 = ResolutionSnapshot.fingerprint(cls1);
+		long fingerprint2 = ResolutionSnapshot.fingerprint(cls2);
+		// Then:
+		assertEquals("fingerprint(cls1)", fingerprint1, ResolutionSnapshot.fingerprint(cls1));
+		assertFalse("fingerprint1 == fingerprint2", fingerprint1 == fingerprint2);
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadInvalidFile() throws IOException {
+		// Given:
+		File file = folder.newFile("invalid.bin");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("no snapshot".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		// When:
+		load(file);
+		// Then: expect exception
+	}
+
+	private static int readInt(RandomAccessFile raf, long pos) throws IOException {
+		raf.seek(pos);
+		return raf.readInt();
+	}
+}
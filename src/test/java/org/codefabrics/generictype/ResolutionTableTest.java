@@ -0,0 +1,204 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.TypeVariable;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class ResolutionTableTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ResolutionTableTest.class);
+	}
+
+	static class Base<K, V> {
+		@SuppressWarnings("unused")
+		K key;
+		@SuppressWarnings("unused")
+		V value;
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+	}
+
+	static class Middle<V> extends Base<String, V> {
+	}
+
+	@GenerateResolutionTable
+	static class Annotated extends Middle<Integer> {
+	}
+
+	@GenerateResolutionTable
+	static class AnnotatedWithList extends Base<Long, List<String>> {
+	}
+
+	static class GenericOuter<T> {
+		class Inner {
+		}
+	}
+
+	@GenerateResolutionTable
+	static class AnnotatedWithInner extends Base<GenericOuter<String>.Inner, String> {
+	}
+
+	static class NotAnnotated extends Middle<Integer> {
+	}
+
+	interface ObjectSupplier {
+		Object get();
+	}
+
+	interface StringSupplier {
+		String get();
+	}
+
+	@GenerateResolutionTable
+	static abstract class AnnotatedSupplier implements ObjectSupplier, StringSupplier {
+	}
+
+	static abstract class NotAnnotatedSupplier implements ObjectSupplier, StringSupplier {
+	}
+
+	@Test
+	public void testGeneratedTableIsLoaded() throws ClassNotFoundException {
+		// Given:
+		String tableName = Annotated.class.getName() + ResolutionTable.SUFFIX;
+		// When:
+		ResolutionTable table = ResolutionTable.of(Annotated.class);
+		// Then:
+		assertEquals("table.getClass()", Class.forName(tableName), table.getClass());
+		assertEquals("table.getTypeParameter(K)", String.class, table.getTypeParameter(Base.class.getTypeParameters()[0]));
+		assertEquals("table.getTypeParameter(V)", Integer.class, table.getTypeParameter(Base.class.getTypeParameters()[1]));
+		assertEquals("table.getTypeParameter(Middle.V)", Integer.class,
+				table.getTypeParameter(Middle.class.getTypeParameters()[0]));
+	}
+
+	@Test
+	public void testNoTableForClassesWithoutAnnotation() {
+		// Given:
+		Class<?> cls = NotAnnotated.class;
+		// When:
+		ResolutionTable table = ResolutionTable.of(cls);
+		// Then:
+		assertNull("table.getTypeParameter(V)", table.getTypeParameter(Base.class.getTypeParameters()[1]));
+		assertNull("table.getFieldType(\"value\")", table.getFieldType("value"));
+	}
+
+	@Test
+	public void testGetTypeParameter() {
+		// Given:
+		GenericType gt = new GenericType(Annotated.class);
+		// When:
+		GenericType key = gt.getTypeParameter(Base.class.getTypeParameters()[0]);
+		GenericType value = gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		// Then:
+		assertEquals("key.getType()", String.class, key.getType());
+		assertEquals("value.getType()", Integer.class, value.getType());
+	}
+
+	@Test
+	public void testGetFieldTypeAndMethodReturnType() {
+		// Given:
+		GenericType gt = new GenericType(Annotated.class);
+		// When:
+		GenericType field = gt.getFieldType("value");
+		GenericType method = gt.getMethodReturnType("getKey");
+		// Then:
+		assertEquals("field.getType()", Integer.class, field.getType());
+		assertEquals("method.getType()", String.class, method.getType());
+	}
+
+	@Test
+	public void testSameResultAsReflection() {
+		// Given:
+		GenericType annotated = new GenericType(Annotated.class);
+		GenericType notAnnotated = new GenericType(NotAnnotated.class);
+		// When:
+		TypeParameterTable expected = notAnnotated.resolveAll();
+		TypeParameterTable actual = annotated.resolveAll();
+		// Then:
+		assertEquals("actual.size()", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			@SuppressWarnings("unchecked")
+			TypeVariable<? extends Class<?>> var = (TypeVariable<? extends Class<?>>) expected.getVariable(i);
+			assertEquals("getTypeParameter(" + var + ")", expected.getValue(i).getType(), annotated
+					.getTypeParameter(var).getType());
+		}
+	}
+
+	@Test
+	public void testParameterizedValuesAreResolvedByReflection() {
+		// Given:
+		GenericType gt = new GenericType(AnnotatedWithList.class);
+		ResolutionTable table = ResolutionTable.of(AnnotatedWithList.class);
+		// When:
+		GenericType value = gt.getTypeParameter(Base.class.getTypeParameters()[1]);
+		// Then:
+		assertNull("table.getTypeParameter(V)", table.getTypeParameter(Base.class.getTypeParameters()[1]));
+		assertEquals("table.getTypeParameter(K)", Long.class, table.getTypeParameter(Base.class.getTypeParameters()[0]));
+		ParameterizedType pType = (ParameterizedType) value.getType();
+		assertEquals("pType.getRawType()", List.class, pType.getRawType());
+		assertEquals("pType.getActualTypeArguments()[0]", String.class, pType.getActualTypeArguments()[0]);
+	}
+
+	@Test
+	public void testInnerClassOfGenericClassIsResolvedByReflection() {
+		// Given:
+		GenericType gt = new GenericType(AnnotatedWithInner.class);
+		ResolutionTable table = ResolutionTable.of(AnnotatedWithInner.class);
+		// When:
+		GenericType key = gt.getTypeParameter(Base.class.getTypeParameters()[0]);
+		// Then:
+		assertNull("table.getTypeParameter(K)", table.getTypeParameter(Base.class.getTypeParameters()[0]));
+		assertNull("table.getFieldType(\"key\")", table.getFieldType("key"));
+		assertEquals("table.getFieldType(\"value\")", String.class, table.getFieldType("value"));
+		ParameterizedType pType = (ParameterizedType) key.getType();
+		assertEquals("pType.getRawType()", GenericOuter.Inner.class, pType.getRawType());
+		assertEquals("pType.getOwnerType()", GenericOuter.class, ((ParameterizedType) pType.getOwnerType())
+				.getRawType());
+	}
+
+	@Test
+	public void testPrecomputedMembersAreMemoized() {
+		// Given:
+		GenericType gt = new GenericType(Annotated.class);
+		// When:
+		GenericType field1 = gt.getFieldType("value");
+		GenericType field2 = gt.getFieldType("value");
+		GenericType method1 = gt.getMethodReturnType("getKey");
+		GenericType method2 = gt.getMethodReturnType("getKey");
+		// Then:
+		assertSame("field2", field1, field2);
+		assertSame("method2", method1, method2);
+	}
+
+	@Test
+	public void testCovariantInterfaceMethodAsReflection() throws NoSuchMethodException {
+		// Given:
+		ResolutionTable table = ResolutionTable.of(AnnotatedSupplier.class);
+		GenericType notAnnotated = new GenericType(NotAnnotatedSupplier.class);
+		// When:
+		Class<?> generated = table.getMethodReturnType("get");
+		GenericType reflective = notAnnotated.getMethodReturnType("get");
+		// Then:
+		assertEquals("generated", String.class, generated);
+		assertEquals("reflective.getType()", generated, reflective.getType());
+		assertEquals("reflection", AnnotatedSupplier.class.getMethod("get").getReturnType(), generated);
+	}
+}
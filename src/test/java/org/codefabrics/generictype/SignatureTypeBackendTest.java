@@ -0,0 +1,178 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SignatureTypeBackendTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(SignatureTypeBackendTest.class);
+	}
+
+	static class Outer<T> {
+		class Inner {
+		}
+	}
+
+	static class Holder<T> {
+		T value;
+		List<? super T> sinks;
+		Map<String, ? extends T[]> arrays;
+		Outer<T>.Inner inner;
+		int count;
+		String[] names;
+
+		List<T> getValues() {
+			return null;
+		}
+
+		// hides the type parameter of the class
+		<T> T shadow(T t) {
+			return t;
+		}
+
+		<E extends Comparable<? super E>> void sort(List<E> list, int[] indexes) {
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class StringHolder extends Holder<String> implements Comparable<StringHolder>, Serializable {
+		public int compareTo(StringHolder o) {
+			return 0;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static <X> Class<?> localClassOf() {
+		class Local extends ArrayList<X> {
+		}
+		return Local.class;
+	}
+
+	@After
+	public void tearDown() {
+		GenericType.setTypeBackend(TypeBackend.REFLECTION);
+	}
+
+	@Test
+	public void testSameTypesAsReflection() {
+		// Given:
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.addAll(Arrays.asList(SignatureTypeBackendTest.class.getDeclaredClasses()));
+		classes.addAll(Arrays.asList(GenericTypeTest.class.getDeclaredClasses()));
+		classes.addAll(Arrays.asList(ClasspathScannerTest.class.getDeclaredClasses()));
+		classes.add(localClassOf());
+		classes.add(Outer.Inner.class);
+		classes.addAll(Arrays.<Class<?>> asList(ArrayList.class, HashMap.class, AbstractMap.SimpleEntry.class,
+				Map.Entry.class, Enum.class, String.class));
+		// When:
+		// Then:
+		for (Class<?> cls : classes) {
+			assertSameTypes(cls);
+		}
+	}
+
+	@Test
+	public void testTypesAreShared() throws NoSuchMethodException {
+		// Given:
+		TypeBackend backend = TypeBackend.SIGNATURE;
+		Method method = Holder.class.getDeclaredMethod("getValues");
+		// When:
+		Type first = backend.getGenericReturnType(method);
+		Type second = backend.getGenericReturnType(Holder.class.getDeclaredMethod("getValues"));
+		// Then:
+		assertSame("second", first, second);
+		assertSame("getGenericSuperclass", backend.getGenericSuperclass(StringHolder.class),
+				backend.getGenericSuperclass(StringHolder.class));
+	}
+
+	@Test
+	public void testTypeVariableOfMethod() throws NoSuchMethodException {
+		// Given:
+		Method method = Holder.class.getDeclaredMethod("shadow", Object.class);
+		// When:
+		Type result = TypeBackend.SIGNATURE.getGenericReturnType(method);
+		// Then:
+		assertEquals("result", method.getTypeParameters()[0], result);
+	}
+
+	@Test
+	public void testResolve() throws NoSuchMethodException {
+		// Given:
+		GenericType.setTypeBackend(TypeBackend.SIGNATURE);
+		GenericType gt = new GenericType(StringHolder.class);
+		TypeVariable<? extends Class<?>> T = Holder.class.getTypeParameters()[0];
+		// When:
+		GenericType value = gt.getTypeParameter(T);
+		GenericType sinks = gt.getFieldType("sinks");
+		GenericType values = gt.getMethodReturnType("getValues");
+		List<GenericType> sortParameters = gt.getMethodParameterTypes("sort", List.class, int[].class);
+		// Then:
+		assertEquals("value.getType()", String.class, value.getType());
+		assertEquals("sinks.getCanonicalType()", CanonicalTypes.newParameterizedType(null, List.class,
+				CanonicalTypes.newWildcardType(new Type[0], new Type[] { String.class })), sinks.getCanonicalType());
+		assertEquals("values.getCanonicalType()", CanonicalTypes.newParameterizedType(null, List.class, String.class),
+				values.getCanonicalType());
+		assertEquals("sortParameters.get(1).getType()", int[].class, sortParameters.get(1).getType());
+	}
+
+	@Test
+	public void testGeneratedClass() {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		Class<?> cls = loader.defineClass("generated.IntegerList", "java.util.ArrayList",
+				"Ljava/util/ArrayList<Ljava/lang/Integer;>;");
+		// When:
+		Type result = TypeBackend.SIGNATURE.getGenericSuperclass(cls);
+		// Then:
+		assertEquals("result", cls.getGenericSuperclass(), result);
+		assertEquals("result.getActualTypeArguments()[0]", Integer.class,
+				((ParameterizedType) result).getActualTypeArguments()[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetNullBackend() {
+		// Given:
+		// When:
+		GenericType.setTypeBackend(null);
+		// Then: expect exception
+	}
+
+	private static void assertSameTypes(Class<?> cls) {
+		TypeBackend backend = TypeBackend.SIGNATURE;
+		assertEquals(cls + ".getGenericSuperclass()", cls.getGenericSuperclass(), backend.getGenericSuperclass(cls));
+		assertEquals(cls + ".getGenericInterfaces()", Arrays.asList(cls.getGenericInterfaces()),
+				Arrays.asList(backend.getGenericInterfaces(cls)));
+		for (Field field : cls.getDeclaredFields()) {
+			assertEquals(field + ".getGenericType()", field.getGenericType(), backend.getGenericType(field));
+		}
+		for (Method method : cls.getDeclaredMethods()) {
+			assertEquals(method + ".getGenericReturnType()", method.getGenericReturnType(),
+					backend.getGenericReturnType(method));
+			assertEquals(method + ".getGenericParameterTypes()", Arrays.asList(method.getGenericParameterTypes()),
+					Arrays.asList(backend.getGenericParameterTypes(method)));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * GenericType - Runtime Generic Type Resolution for Java 
+ * (C) by Michael Karneim, codefabrics.org
+ * Use is subject to license terms. See license.txt.
+ */
+package org.codefabrics.generictype;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class VariableMappingTest {
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(VariableMappingTest.class);
+	}
+
+	static class First<X> {
+	}
+
+	static class Second<Y> {
+	}
+
+	static class Third<Z> {
+	}
+
+	static class Pair<A, B> {
+	}
+
+	private static final TypeVariable<?> X = First.class.getTypeParameters()[0];
+	private static final TypeVariable<?> Y = Second.class.getTypeParameters()[0];
+	private static final TypeVariable<?> Z = Third.class.getTypeParameters()[0];
+	private static final TypeVariable<?> A = Pair.class.getTypeParameters()[0];
+	private static final TypeVariable<?> B = Pair.class.getTypeParameters()[1];
+
+	@Test
+	public void testResolveChain() {
+		// Given:
+		VariableMapping first = new VariableMapping(null, CanonicalTypes.newParameterizedType(null, First.class,
+				String.class));
+		VariableMapping second = new VariableMapping(first, CanonicalTypes.newParameterizedType(null, Second.class, X));
+		VariableMapping third = new VariableMapping(second, CanonicalTypes.newParameterizedType(null, Third.class, Y));
+		// When:
+		Object z = third.resolve(Z);
+		// Then:
+		assertEquals("z", String.class, z);
+		assertEquals("third.resolve(Z)", String.class, third.resolve(Z));
+		assertEquals("third.resolve(Y)", String.class, third.resolve(Y));
+		assertEquals("second.resolve(Y)", String.class, second.resolve(Y));
+		assertEquals("first.resolve(X)", String.class, first.resolve(X));
+	}
+
+	@Test
+	public void testResolveOpenChain() {
+		// Given:
+		VariableMapping first = new VariableMapping(null, CanonicalTypes.newParameterizedType(null, First.class, B));
+		VariableMapping second = new VariableMapping(first, CanonicalTypes.newParameterizedType(null, Second.class, X));
+		// When:
+		Object y = second.resolve(Y);
+		// Then:
+		assertEquals("y", B, y);
+		assertEquals("second.resolve(X)", B, second.resolve(X));
+	}
+
+	@Test
+	public void testSwappedVariablesAreNoCycle() {
+		// Given:
+		VariableMapping mapping = new VariableMapping(null, CanonicalTypes.newParameterizedType(null, Pair.class, B, A));
+		// When:
+		Object a = mapping.resolve(A);
+		Object b = mapping.resolve(B);
+		// Then:
+		assertEquals("a", B, a);
+		assertEquals("b", A, b);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testResolveCycle() {
+		// Given:
+		VariableMapping first = new VariableMapping(null, CanonicalTypes.newParameterizedType(null, First.class, Y));
+		VariableMapping second = new VariableMapping(first, CanonicalTypes.newParameterizedType(null, Second.class, X));
+		// When:
+		second.resolve(X);
+		// Then: expect exception
+	}
+
+	@Test
+	public void testResolveLongChain() {
+		// Given:
+		GeneratedClassLoader loader = new GeneratedClassLoader();
+		int length = 2000;
+		TypeVariable<?>[] variables = new TypeVariable<?>[length];
+		VariableMapping mapping = new VariableMapping(null, CanonicalTypes.newParameterizedType(null, First.class,
+				String.class));
+		Type value = X;
+		for (int i = 0; i < length; i++) {
+			Class<?> cls = loader.defineClass("chain.C" + i, "java.lang.Object",
+					"<T:Ljava/lang/Object;>Ljava/lang/Object;");
+			variables[i] = cls.getTypeParameters()[0];
+			mapping = new VariableMapping(mapping, CanonicalTypes.newParameterizedType(null, cls, value));
+			value = variables[i];
+		}
+		// When:
+		Object last = mapping.resolve(variables[length - 1]);
+		// Then:
+		assertEquals("last", String.class, last);
+		for (int i = 0; i < length; i++) {
+			assertEquals("mapping.isMapped(variables[" + i + "])", true, mapping.isMapped(variables[i]));
+		}
+		assertEquals("mapping.resolve(variables[0])", String.class, mapping.resolve(variables[0]));
+		assertEquals("mapping.isMapped(Y)", false, mapping.isMapped(Y));
+	}
+}